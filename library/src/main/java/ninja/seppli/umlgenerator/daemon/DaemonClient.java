@@ -0,0 +1,179 @@
+package ninja.seppli.umlgenerator.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sends commands to a {@link DiagramDaemon}. Every command opens its own
+ * connection, so a client can be used from multiple threads.
+ */
+public class DaemonClient {
+    /**
+     * how long the daemon may take to answer a command by default
+     */
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofMinutes(5);
+
+    /**
+     * closes the connections of the commands the daemon didn't answer in time
+     */
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "uml-daemon-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * the socket file the daemon listens on
+     */
+    private Path socket;
+
+    /**
+     * how long the daemon may take to answer a command, zero if there is no
+     * limit
+     */
+    private Duration timeout = DEFAULT_TIMEOUT;
+
+    /**
+     * Constructor
+     *
+     * @param socket the socket file the daemon listens on
+     */
+    public DaemonClient(Path socket) {
+        this.socket = socket;
+    }
+
+    /**
+     * @return how long the daemon may take to answer a command, zero if there
+     *         is no limit
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets how long the daemon may take to answer a command. The connection of
+     * a command which isn't answered in time is closed, so a stuck daemon
+     * doesn't block the build.
+     *
+     * @param timeout the timeout, zero if there is no limit
+     * @returns this instance for a fluent like api
+     */
+    public DaemonClient setTimeout(Duration timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Checks if a daemon is listening on the socket, by connecting without
+     * sending a command. The daemon doesn't have to serve the connection.
+     *
+     * @return if a daemon is listening on the socket
+     */
+    public boolean isRunning() {
+        if (!Files.exists(socket))
+            return false;
+        try (SocketChannel channel = connect()) {
+            return channel.isConnected();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Lets the daemon render a diagram
+     *
+     * @param request the request
+     * @return the response of the daemon
+     * @throws SocketTimeoutException if the daemon didn't answer within the
+     *                                timeout
+     * @throws IOException            if the daemon couldn't be reached
+     */
+    public RenderResponse render(RenderRequest request) throws IOException {
+        try (SocketChannel channel = connect();
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(channel)));
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)))) {
+            AtomicBoolean timedOut = new AtomicBoolean();
+            ScheduledFuture<?> watchdog = startWatchdog(channel, timedOut);
+            try {
+                out.writeInt(DiagramDaemon.PROTOCOL_VERSION);
+                out.writeByte(DiagramDaemon.RENDER);
+                request.write(out);
+                out.flush();
+                return RenderResponse.read(in);
+            } catch (IOException e) {
+                if (!timedOut.get())
+                    throw e;
+                SocketTimeoutException timeoutException = new SocketTimeoutException(
+                        "The daemon didn't answer within " + timeout.toMillis() + " ms");
+                timeoutException.initCause(e);
+                throw timeoutException;
+            } finally {
+                if (watchdog != null) {
+                    watchdog.cancel(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the daemon
+     *
+     * @throws IOException if the daemon couldn't be reached
+     */
+    public void stop() throws IOException {
+        try (SocketChannel channel = connect();
+                DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+                DataInputStream in = new DataInputStream(Channels.newInputStream(channel))) {
+            out.writeInt(DiagramDaemon.PROTOCOL_VERSION);
+            out.writeByte(DiagramDaemon.STOP);
+            out.flush();
+            in.readBoolean();
+        }
+    }
+
+    /**
+     * Closes the given connection once the timeout is over, which makes a
+     * blocked read or write on it fail
+     *
+     * @param channel  the connection of a command
+     * @param timedOut set if the connection was closed by the watchdog
+     * @return the watchdog, to be cancelled once the command is answered, null
+     *         if there is no timeout
+     */
+    private ScheduledFuture<?> startWatchdog(SocketChannel channel, AtomicBoolean timedOut) {
+        if (timeout.isZero())
+            return null;
+        return WATCHDOG.schedule(() -> {
+            timedOut.set(true);
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // the blocked command fails either way
+            }
+        }, timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return a connection to the daemon
+     * @throws IOException if the daemon couldn't be reached
+     */
+    private SocketChannel connect() throws IOException {
+        return SocketChannel.open(UnixDomainSocketAddress.of(socket));
+    }
+}
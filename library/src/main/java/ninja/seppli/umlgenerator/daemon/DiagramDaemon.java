@@ -0,0 +1,389 @@
+package ninja.seppli.umlgenerator.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ninja.seppli.umlgenerator.model.DiagramModel;
+import ninja.seppli.umlgenerator.options.PlantumlOptions;
+import ninja.seppli.umlgenerator.options.UmlOptions;
+import ninja.seppli.umlgenerator.renderer.PlantumlRenderer;
+import ninja.seppli.umlgenerator.renderer.RenderFragmentCache;
+import ninja.seppli.umlgenerator.scanner.DiagramGenerator;
+
+/**
+ * A long-lived process which renders diagrams for its clients, like the Gradle
+ * task. Every build started in a new JVM pays the class loading of spoon and
+ * JDT and runs the parser in the interpreter, the daemon pays it once. It keeps
+ * a {@link DiagramGenerator} per source root and options warm, so a repeated
+ * request only parses the files which changed since the last one.
+ *
+ * The daemon listens on a unix domain socket, which only local processes with
+ * access to the socket file can connect to. The socket file and the directory
+ * the daemon creates for it are only accessible by the owner. A client sends
+ * one command per connection, see {@link DaemonClient}.
+ */
+public class DiagramDaemon implements Closeable {
+    /**
+     * the socket a daemon listens on by default
+     */
+    public static final Path DEFAULT_SOCKET = Paths.get(System.getProperty("user.home"), ".umlgenerator",
+            "daemon.sock");
+
+    /**
+     * the version of the protocol, sent before every command
+     */
+    static final int PROTOCOL_VERSION = 2;
+
+    /**
+     * the command to render a diagram, followed by a {@link RenderRequest}
+     */
+    static final byte RENDER = 1;
+
+    /**
+     * the command to stop the daemon
+     */
+    static final byte STOP = 2;
+
+    /**
+     * how many generators are kept warm, the least recently used one is dropped
+     * first
+     */
+    private static final int MAX_GENERATORS = 8;
+
+    /**
+     * the permissions of the directory of the socket
+     */
+    private static final Set<PosixFilePermission> OWNER_ONLY_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+
+    /**
+     * the permissions of the socket file
+     */
+    private static final Set<PosixFilePermission> OWNER_ONLY_FILE = PosixFilePermissions.fromString("rw-------");
+
+    /**
+     * logger
+     */
+    private Logger logger = LoggerFactory.getLogger(getClass());
+
+    /**
+     * the socket file
+     */
+    private Path socket;
+
+    /**
+     * the server channel, null until the daemon is started
+     */
+    private ServerSocketChannel server;
+
+    /**
+     * handles the connections
+     */
+    private ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "uml-daemon-connection");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * the warm generators by the {@link RenderRequest#getGeneratorKey() key} of
+     * the requests they serve, in the order they were used
+     */
+    private Map<String, WarmGenerator> generators = new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, WarmGenerator> eldest) {
+            if (size() <= MAX_GENERATORS)
+                return false;
+            // closed outside of the lock of the map, it may still be rendering
+            evictedGenerators.add(eldest.getValue());
+            return true;
+        }
+    };
+
+    /**
+     * the generators which were dropped from {@link #generators} but aren't
+     * closed yet, guarded by the lock of {@link #generators}
+     */
+    private List<WarmGenerator> evictedGenerators = new ArrayList<>();
+
+    /**
+     * Constructor
+     *
+     * @param socket the socket file the daemon listens on
+     */
+    public DiagramDaemon(Path socket) {
+        this.socket = socket;
+    }
+
+    /**
+     * @return the socket file the daemon listens on
+     */
+    public Path getSocket() {
+        return socket;
+    }
+
+    /**
+     * Binds the socket. A socket file left behind by a daemon which didn't stop
+     * cleanly is replaced. The socket file and its directory, if the daemon
+     * creates it or it is the directory of the {@link #DEFAULT_SOCKET}, are
+     * restricted to the owner.
+     *
+     * @throws IOException if the socket couldn't be bound or another daemon is
+     *                     already listening on it
+     */
+    public void start() throws IOException {
+        if (Files.exists(socket)) {
+            if (new DaemonClient(socket).isRunning())
+                throw new IOException("A daemon is already listening on \"" + socket + "\"");
+            Files.delete(socket);
+        }
+        Path directory = socket.toAbsolutePath().getParent();
+        if (directory != null && (Files.notExists(directory) || directory.equals(DEFAULT_SOCKET.getParent()))) {
+            Files.createDirectories(directory);
+            restrictToOwner(directory, OWNER_ONLY_DIRECTORY);
+        }
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socket));
+        restrictToOwner(socket, OWNER_ONLY_FILE);
+        logger.info("listening on \"{}\"", socket);
+    }
+
+    /**
+     * Accepts connections until the daemon is {@link #close() closed} or
+     * stopped by a client
+     *
+     * @throws IOException if a connection couldn't be accepted
+     */
+    public void serve() throws IOException {
+        try {
+            while (true) {
+                SocketChannel channel = server.accept();
+                executor.execute(() -> handle(channel));
+            }
+        } catch (AsynchronousCloseException e) {
+            logger.info("stopped listening on \"{}\"", socket);
+        }
+    }
+
+    /**
+     * Stops accepting connections, deletes the socket file and closes the warm
+     * generators
+     */
+    @Override
+    public void close() throws IOException {
+        executor.shutdown();
+        if (server != null) {
+            server.close();
+            Files.deleteIfExists(socket);
+        }
+        List<WarmGenerator> closed;
+        synchronized (generators) {
+            closed = new ArrayList<>(generators.values());
+            closed.addAll(evictedGenerators);
+            generators.clear();
+            evictedGenerators.clear();
+        }
+        closed.forEach(this::closeGenerator);
+    }
+
+    /**
+     * Sets the permissions of a file, if the file system supports posix
+     * permissions
+     *
+     * @param path        the file
+     * @param permissions the permissions
+     * @throws IOException if they couldn't be set
+     */
+    private static void restrictToOwner(Path path, Set<PosixFilePermission> permissions) throws IOException {
+        if (path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.setPosixFilePermissions(path, permissions);
+        }
+    }
+
+    /**
+     * Handles the command of a connection
+     *
+     * @param channel the connection
+     */
+    private void handle(SocketChannel channel) {
+        try (channel;
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+            in.mark(1);
+            if (in.read() < 0) {
+                // a client which only checks if the daemon is running
+                logger.debug("a client disconnected without a command");
+                return;
+            }
+            in.reset();
+            int version = in.readInt();
+            if (version != PROTOCOL_VERSION) {
+                new RenderResponse(null, "Unsupported protocol version " + version).write(out);
+                return;
+            }
+            byte command = in.readByte();
+            if (command == STOP) {
+                out.writeBoolean(true);
+                out.flush();
+                close();
+            } else if (command == RENDER) {
+                render(RenderRequest.read(in)).write(out);
+            } else {
+                new RenderResponse(null, "Unknown command " + command).write(out);
+            }
+        } catch (IOException e) {
+            logger.warn("Couldn't handle a connection", e);
+        }
+    }
+
+    /**
+     * Renders the diagram of a request with a warm generator. Requests for the
+     * same generator are served one after the other.
+     *
+     * @param request the request
+     * @return the response
+     */
+    RenderResponse render(RenderRequest request) {
+        WarmGenerator warmGenerator = getGenerator(request);
+        try {
+            synchronized (warmGenerator) {
+                DiagramGenerator generator = warmGenerator.generator();
+                try {
+                    DiagramModel model = generator.generate();
+                    String diagram = warmGenerator.renderer().render(model,
+                            new UmlOptions(generator.getOptions(), new PlantumlOptions()));
+                    logger.info("{}", generator.getStatistics());
+                    return new RenderResponse(diagram, generator.getStatistics().toString());
+                } finally {
+                    // it may have been dropped and closed while this request waited for it
+                    if (!isWarm(warmGenerator)) {
+                        generator.close();
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Couldn't render the diagram of {}", request.files(), e);
+            return new RenderResponse(null, String.valueOf(e));
+        }
+    }
+
+    /**
+     * Returns the warm generator which serves the given request, a new one if
+     * there is none yet
+     *
+     * @param request the request
+     * @return the generator
+     */
+    private WarmGenerator getGenerator(RenderRequest request) {
+        WarmGenerator generator;
+        List<WarmGenerator> evicted;
+        synchronized (generators) {
+            generator = generators.computeIfAbsent(request.getGeneratorKey(), key -> createGenerator(request));
+            evicted = new ArrayList<>(evictedGenerators);
+            evictedGenerators.clear();
+        }
+        evicted.forEach(this::closeGenerator);
+        return generator;
+    }
+
+    /**
+     * Creates the generator and renderer which serve the given request
+     *
+     * @param request the request
+     * @return the generator
+     */
+    private WarmGenerator createGenerator(RenderRequest request) {
+        logger.info("creating a generator for {}", request.files());
+        DiagramGenerator generator = new DiagramGenerator(request.options())
+                .setDeclarationsOnly(request.declarationsOnly()).setSkipHiddenMembers(true)
+                .setHeapBudget(request.heapBudget()).setFileTimeout(request.fileTimeout())
+                .setClasspath(request.classpath()).addFiles(request.files().toArray(Path[]::new));
+        PlantumlRenderer renderer = new PlantumlRenderer();
+        if (request.renderCacheFile() != null) {
+            renderer.setFragmentCache(new RenderFragmentCache(request.renderCacheFile()));
+        }
+        return new WarmGenerator(generator, renderer);
+    }
+
+    /**
+     * @param generator the generator
+     * @return if the generator is still kept warm
+     */
+    private boolean isWarm(WarmGenerator generator) {
+        synchronized (generators) {
+            return generators.containsValue(generator);
+        }
+    }
+
+    /**
+     * Closes a generator, after the request it currently serves
+     *
+     * @param generator the generator
+     */
+    private void closeGenerator(WarmGenerator generator) {
+        synchronized (generator) {
+            generator.generator().close();
+            generator.renderer().close();
+        }
+    }
+
+    /**
+     * Starts a daemon. The usage is {@code DiagramDaemon [<socket>]}, the
+     * daemon listens on {@link #DEFAULT_SOCKET} if no socket is given.
+     *
+     * @param args the arguments
+     * @throws IOException if the daemon couldn't be started
+     */
+    public static void main(String[] args) throws IOException {
+        DiagramDaemon daemon = new DiagramDaemon(args.length > 0 ? Paths.get(args[0]) : DEFAULT_SOCKET);
+        daemon.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                daemon.close();
+            } catch (IOException e) {
+                // the process ends anyway
+            }
+        }));
+        try {
+            daemon.serve();
+        } finally {
+            daemon.close();
+        }
+    }
+
+    /**
+     * A generator kept warm between requests, with the renderer of its diagrams
+     *
+     * @param generator the generator
+     * @param renderer  the renderer, which keeps its fragment cache in memory
+     */
+    private record WarmGenerator(DiagramGenerator generator, PlantumlRenderer renderer) {
+    }
+}
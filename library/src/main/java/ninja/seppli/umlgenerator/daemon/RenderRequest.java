@@ -0,0 +1,167 @@
+package ninja.seppli.umlgenerator.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import ninja.seppli.umlgenerator.options.GeneralUmlOptions;
+import ninja.seppli.umlgenerator.options.VisibilityLevel;
+import ninja.seppli.umlgenerator.renderer.RenderFragmentCache;
+import ninja.seppli.umlgenerator.scanner.DiagramGenerator;
+
+/**
+ * A request to the {@link DiagramDaemon} to render the diagram of some source
+ * files and folders
+ *
+ * @param files            the source files and folders
+ * @param options          the options the diagram is generated and rendered
+ *                         with
+ * @param declarationsOnly if only the declarations of the sources are parsed
+ * @param classpath        the compile classpath the referenced types are
+ *                         resolved from
+ * @param heapBudget       how many bytes of heap the parsed sources may need at
+ *                         the same time, 0 if there is no budget
+ * @param fileTimeout      how long the parser may take for one file, null if
+ *                         there is no limit
+ * @param renderCacheFile  the file the rendered fragments are cached in, null
+ *                         if they aren't cached
+ * @see DiagramGenerator#setHeapBudget(long)
+ * @see DiagramGenerator#setFileTimeout(Duration)
+ * @see RenderFragmentCache
+ */
+public record RenderRequest(List<Path> files, GeneralUmlOptions options, boolean declarationsOnly,
+        List<Path> classpath, long heapBudget, Duration fileTimeout, Path renderCacheFile) {
+
+    /**
+     * Constructor of a request without a heap budget and render cache, which
+     * uses the {@link DiagramGenerator#DEFAULT_FILE_TIMEOUT default file timeout}
+     *
+     * @param files            the source files and folders
+     * @param options          the options the diagram is generated and rendered
+     *                         with
+     * @param declarationsOnly if only the declarations of the sources are parsed
+     * @param classpath        the compile classpath the referenced types are
+     *                         resolved from
+     */
+    public RenderRequest(List<Path> files, GeneralUmlOptions options, boolean declarationsOnly,
+            List<Path> classpath) {
+        this(files, options, declarationsOnly, classpath, 0, DiagramGenerator.DEFAULT_FILE_TIMEOUT, null);
+    }
+
+    /**
+     * @return the key of the generator which can serve this request, requests
+     *         with the same key are served by the same warm generator
+     */
+    String getGeneratorKey() {
+        return "files=" + files + ";" + options.getFingerprint() + ";declarationsOnly=" + declarationsOnly
+                + ";classpath=" + classpath + ";heapBudget=" + heapBudget + ";fileTimeout=" + fileTimeout
+                + ";renderCacheFile=" + renderCacheFile;
+    }
+
+    /**
+     * Writes the request
+     *
+     * @param out the stream to write to
+     * @throws IOException if it couldn't be written
+     */
+    void write(DataOutputStream out) throws IOException {
+        writePaths(out, files);
+        out.writeInt(options.getLanguageLevel());
+        out.writeUTF(options.getMethodLevel().name());
+        out.writeUTF(options.getFieldLevel().name());
+        writeStrings(out, options.getIncludes());
+        writeStrings(out, options.getExcludes());
+        out.writeBoolean(declarationsOnly);
+        writePaths(out, classpath);
+        out.writeLong(heapBudget);
+        out.writeLong(fileTimeout == null ? 0 : fileTimeout.toMillis());
+        out.writeBoolean(renderCacheFile != null);
+        if (renderCacheFile != null) {
+            out.writeUTF(renderCacheFile.toString());
+        }
+    }
+
+    /**
+     * Reads a request written by {@link #write(DataOutputStream)}
+     *
+     * @param in the stream to read from
+     * @return the request
+     * @throws IOException if it couldn't be read
+     */
+    static RenderRequest read(DataInputStream in) throws IOException {
+        List<Path> files = readPaths(in);
+        GeneralUmlOptions options = new GeneralUmlOptions(in.readInt(), readVisibility(in), readVisibility(in));
+        options.setIncludes(readStrings(in));
+        options.setExcludes(readStrings(in));
+        boolean declarationsOnly = in.readBoolean();
+        List<Path> classpath = readPaths(in);
+        long heapBudget = in.readLong();
+        long fileTimeoutMillis = in.readLong();
+        Path renderCacheFile = in.readBoolean() ? Paths.get(in.readUTF()) : null;
+        return new RenderRequest(files, options, declarationsOnly, classpath, heapBudget,
+                fileTimeoutMillis == 0 ? null : Duration.ofMillis(fileTimeoutMillis), renderCacheFile);
+    }
+
+    /**
+     * @param in the stream to read from
+     * @return the read visibility level
+     * @throws IOException if it couldn't be read or is unknown
+     */
+    private static VisibilityLevel readVisibility(DataInputStream in) throws IOException {
+        try {
+            return VisibilityLevel.valueOf(in.readUTF());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unknown visibility level", e);
+        }
+    }
+
+    /**
+     * @param out   the stream to write to
+     * @param paths the paths to write
+     * @throws IOException if they couldn't be written
+     */
+    private static void writePaths(DataOutputStream out, List<Path> paths) throws IOException {
+        writeStrings(out, paths.stream().map(Path::toString).toList());
+    }
+
+    /**
+     * @param in the stream to read from
+     * @return the paths written by {@link #writePaths(DataOutputStream, List)}
+     * @throws IOException if they couldn't be read
+     */
+    private static List<Path> readPaths(DataInputStream in) throws IOException {
+        return readStrings(in).stream().map(Paths::get).toList();
+    }
+
+    /**
+     * @param out     the stream to write to
+     * @param strings the strings to write
+     * @throws IOException if they couldn't be written
+     */
+    private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            out.writeUTF(string);
+        }
+    }
+
+    /**
+     * @param in the stream to read from
+     * @return the strings written by
+     *         {@link #writeStrings(DataOutputStream, List)}
+     * @throws IOException if they couldn't be read
+     */
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<String> strings = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            strings.add(in.readUTF());
+        }
+        return strings;
+    }
+}
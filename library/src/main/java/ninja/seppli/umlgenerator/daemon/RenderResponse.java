@@ -0,0 +1,56 @@
+package ninja.seppli.umlgenerator.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The answer of the {@link DiagramDaemon} to a {@link RenderRequest}
+ *
+ * @param diagram    the rendered diagram, null if it couldn't be rendered
+ * @param statistics the statistics of the generation or the error why the
+ *                   diagram couldn't be rendered
+ */
+public record RenderResponse(String diagram, String statistics) {
+    /**
+     * @return if the diagram was rendered
+     */
+    public boolean isSuccess() {
+        return diagram != null;
+    }
+
+    /**
+     * Writes the response
+     *
+     * @param out the stream to write to
+     * @throws IOException if it couldn't be written
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeBoolean(diagram != null);
+        if (diagram != null) {
+            // a diagram may be longer than writeUTF allows
+            byte[] bytes = diagram.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        out.writeUTF(statistics);
+    }
+
+    /**
+     * Reads a response written by {@link #write(DataOutputStream)}
+     *
+     * @param in the stream to read from
+     * @return the response
+     * @throws IOException if it couldn't be read
+     */
+    static RenderResponse read(DataInputStream in) throws IOException {
+        String diagram = null;
+        if (in.readBoolean()) {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            diagram = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new RenderResponse(diagram, in.readUTF());
+    }
+}
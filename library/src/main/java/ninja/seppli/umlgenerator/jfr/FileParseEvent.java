@@ -0,0 +1,34 @@
+package ninja.seppli.umlgenerator.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A stage of parsing a single file, like compiling it with JDT, building its
+ * spoon model or extracting its types into the diagram model
+ */
+@Name("ninja.seppli.umlgenerator.FileParse")
+@Label("UML File Parse")
+@Description("A stage of parsing a single source file")
+@Category({ "UML Generator", "Scan" })
+public class FileParseEvent extends Event {
+    @Label("Path")
+    public String path;
+
+    @Label("Stage")
+    @Description("The stage of parsing, like COMPILE, MODEL or EXTRACTION")
+    public String stage;
+
+    @Label("Bytes")
+    @Description("The size of the file")
+    @DataAmount
+    public long byteCount;
+
+    @Label("Types")
+    @Description("How many top level types the file declares, -1 if it isn't known in this stage")
+    public int typeCount = -1;
+}
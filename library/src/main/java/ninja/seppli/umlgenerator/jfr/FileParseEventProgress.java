@@ -0,0 +1,73 @@
+package ninja.seppli.umlgenerator.jfr;
+
+import java.util.function.ToLongFunction;
+
+import spoon.support.compiler.SpoonProgress;
+
+/**
+ * Emits a {@link FileParseEvent} for every file spoon processes. Spoon reports
+ * a step after every file in every process, so an event spans from the
+ * previous step, or the start of the process, to the step of its file.
+ *
+ * If the event isn't enabled in the running recording, no event is created.
+ */
+public class FileParseEventProgress implements SpoonProgress {
+    /**
+     * returns the size of a file by its path
+     */
+    private ToLongFunction<String> fileSizes;
+
+    /**
+     * the event of the next file, null if events are disabled
+     */
+    private FileParseEvent event;
+
+    /**
+     * Constructor
+     *
+     * @param fileSizes returns the size of a file by its path
+     */
+    public FileParseEventProgress(ToLongFunction<String> fileSizes) {
+        this.fileSizes = fileSizes;
+    }
+
+    @Override
+    public void start(Process process) {
+        beginEvent();
+    }
+
+    @Override
+    public void step(Process process, String task, int taskId, int nbTask) {
+        step(process, task);
+    }
+
+    @Override
+    public void step(Process process, String task) {
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.path = task;
+                event.stage = process.name();
+                event.byteCount = fileSizes.applyAsLong(task);
+                event.commit();
+            }
+        }
+        beginEvent();
+    }
+
+    @Override
+    public void end(Process process) {
+        event = null;
+    }
+
+    /**
+     * Begins the event of the next file
+     */
+    private void beginEvent() {
+        FileParseEvent nextEvent = new FileParseEvent();
+        event = nextEvent.isEnabled() ? nextEvent : null;
+        if (event != null) {
+            event.begin();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package ninja.seppli.umlgenerator.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Rendering a single package of a diagram
+ */
+@Name("ninja.seppli.umlgenerator.RenderPackage")
+@Label("UML Render Package")
+@Description("Rendering the types of a single package")
+@Category({ "UML Generator", "Render" })
+public class RenderPackageEvent extends Event {
+    @Label("Package")
+    public String packageName;
+
+    @Label("Renderer")
+    public String renderer;
+
+    @Label("Types")
+    @Description("How many top level types the package has")
+    public int typeCount;
+
+    @Label("Characters")
+    @Description("How many characters were rendered")
+    public long characterCount;
+}
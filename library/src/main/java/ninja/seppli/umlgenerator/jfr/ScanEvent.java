@@ -0,0 +1,38 @@
+package ninja.seppli.umlgenerator.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A whole scan of a {@link ninja.seppli.umlgenerator.scanner.DiagramScanner}
+ */
+@Name("ninja.seppli.umlgenerator.Scan")
+@Label("UML Scan")
+@Description("Scanning the added files into a diagram model")
+@Category({ "UML Generator", "Scan" })
+public class ScanEvent extends Event {
+    @Label("Files")
+    @Description("How many files were found")
+    public int fileCount;
+
+    @Label("Parsed Files")
+    @Description("How many of the found files were parsed, the others were cached")
+    public int parsedFileCount;
+
+    @Label("Bytes")
+    @Description("How many bytes were read")
+    @DataAmount
+    public long byteCount;
+
+    @Label("Types")
+    @Description("How many types, including nested ones, the result has")
+    public int typeCount;
+
+    @Label("Members")
+    @Description("How many fields, constructors and methods the result has")
+    public int memberCount;
+}
@@ -0,0 +1,31 @@
+package ninja.seppli.umlgenerator.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A phase of a scan, like the discovery of the files or the parsing
+ *
+ * @see ninja.seppli.umlgenerator.scanner.ScanStatistics.Phase
+ */
+@Name("ninja.seppli.umlgenerator.ScanPhase")
+@Label("UML Scan Phase")
+@Description("A phase of scanning the added files into a diagram model")
+@Category({ "UML Generator", "Scan" })
+public class ScanPhaseEvent extends Event {
+    @Label("Phase")
+    public String phase;
+
+    @Label("Files")
+    @Description("How many files were found until the phase ended")
+    public int fileCount;
+
+    @Label("Bytes")
+    @Description("How many bytes were read until the phase ended")
+    @DataAmount
+    public long byteCount;
+}
@@ -0,0 +1,27 @@
+package ninja.seppli.umlgenerator.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Rendering a diagram and writing it to a file
+ */
+@Name("ninja.seppli.umlgenerator.Write")
+@Label("UML Write")
+@Description("Rendering a diagram and writing it to a file")
+@Category({ "UML Generator", "Render" })
+public class WriteEvent extends Event {
+    @Label("Path")
+    public String path;
+
+    @Label("Types")
+    @Description("How many types, including nested ones, the diagram has")
+    public int typeCount;
+
+    @Label("Characters")
+    @Description("How many characters were written")
+    public long characterCount;
+}
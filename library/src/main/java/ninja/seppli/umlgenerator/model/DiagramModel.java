@@ -0,0 +1,69 @@
+package ninja.seppli.umlgenerator.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * The immutable model of a class diagram. It only contains what is rendered:
+ * the packages, their types with members, generics and the relationships
+ * between the types. In contrast to spoon's AST, it doesn't reference any
+ * source code, so it is a lot smaller and the AST can be garbage collected
+ * once this model was extracted.
+ */
+public final class DiagramModel {
+    /**
+     * the packages which contain at least one type
+     */
+    private final List<PackageModel> packages;
+
+    /**
+     * all types, including nested ones, by their qualified name
+     */
+    private final Map<String, TypeModel> typeIndex = new HashMap<>();
+
+    /**
+     * Constructor
+     *
+     * @param packages the packages in the order they are rendered
+     */
+    public DiagramModel(List<PackageModel> packages) {
+        this.packages = List.copyOf(packages);
+        getAllTypes().forEach(type -> typeIndex.putIfAbsent(type.qualifiedName(), type));
+    }
+
+    /**
+     * @return the packages in the order they are rendered
+     */
+    public List<PackageModel> getPackages() {
+        return packages;
+    }
+
+    /**
+     * @return all types of all packages, including the nested ones
+     */
+    public Stream<TypeModel> getAllTypes() {
+        return packages.stream().flatMap(packageModel -> packageModel.types().stream())
+                .flatMap(TypeModel::withNestedTypes);
+    }
+
+    /**
+     * Searches a type by its qualified name
+     *
+     * @param qualifiedName the qualified name of the type
+     * @return the type, if it is part of this model
+     */
+    public Optional<TypeModel> findType(String qualifiedName) {
+        return Optional.ofNullable(typeIndex.get(qualifiedName));
+    }
+
+    /**
+     * @return all types by their qualified name
+     */
+    public Map<String, TypeModel> getTypeIndex() {
+        return Collections.unmodifiableMap(typeIndex);
+    }
+}
@@ -0,0 +1,260 @@
+package ninja.seppli.umlgenerator.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Merges the fragments of a diagram, which were built independently of each
+ * other, into one {@link DiagramModel}. A fragment is a {@link PackageModel}
+ * holding some of the types of a package, usually the types of one source
+ * file.
+ *
+ * Packages and types are ordered like spoon orders them in a model, so a
+ * merged model is rendered exactly like the model of a single scan of all
+ * files. References to types, which couldn't be resolved while a fragment was
+ * built because the referenced type is part of another fragment, are marked as
+ * {@link TypeRef#isUnresolved() unresolved} by the extractor. Only these are
+ * resolved through the qualified-name index of the merged model, with the
+ * imports of the referencing file.
+ */
+public class DiagramModelMerger {
+    /**
+     * the name spoon gives the default package
+     */
+    public static final String UNNAMED_PACKAGE = "unnamed package";
+
+    /**
+     * orders packages like a depth first traversal of the package tree, where
+     * sub packages are sorted by their name
+     */
+    private static final Comparator<String> PACKAGE_ORDER = (first, second) -> {
+        if (first.equals(UNNAMED_PACKAGE) || second.equals(UNNAMED_PACKAGE))
+            return Boolean.compare(!first.equals(UNNAMED_PACKAGE), !second.equals(UNNAMED_PACKAGE));
+        String[] firstSegments = first.split("\\.");
+        String[] secondSegments = second.split("\\.");
+        for (int i = 0; i < Math.min(firstSegments.length, secondSegments.length); i++) {
+            int comparison = firstSegments[i].compareTo(secondSegments[i]);
+            if (comparison != 0)
+                return comparison;
+        }
+        return Integer.compare(firstSegments.length, secondSegments.length);
+    };
+
+    /**
+     * all types, including nested ones, by their qualified name
+     */
+    private Map<String, TypeModel> typeIndex = new HashMap<>();
+
+    /**
+     * the resolved references, so every resolved reference is only created once
+     */
+    private Map<TypeRef, TypeRef> resolvedRefs = new HashMap<>();
+
+    /**
+     * Merges the given fragments into one model
+     *
+     * @param fragments the fragments in the order of their source files
+     * @return the merged model
+     */
+    public static DiagramModel merge(Collection<PackageModel> fragments) {
+        return new DiagramModelMerger().mergeFragments(fragments);
+    }
+
+    /**
+     * Merges the given fragments into one model
+     *
+     * @param fragments the fragments in the order of their source files
+     * @return the merged model
+     */
+    public DiagramModel mergeFragments(Collection<PackageModel> fragments) {
+        Map<String, Map<String, TypeModel>> packages = new TreeMap<>(PACKAGE_ORDER);
+        for (PackageModel fragment : fragments) {
+            Map<String, TypeModel> types = packages.computeIfAbsent(fragment.qualifiedName(), name -> new TreeMap<>());
+            // like spoon, the first declaration of a type wins
+            fragment.types().forEach(type -> types.putIfAbsent(type.qualifiedName(), type));
+        }
+        packages.values().stream().flatMap(types -> types.values().stream()).flatMap(TypeModel::withNestedTypes)
+                .forEach(type -> typeIndex.putIfAbsent(type.qualifiedName(), type));
+
+        List<PackageModel> mergedPackages = new ArrayList<>();
+        for (Map.Entry<String, Map<String, TypeModel>> packageEntry : packages.entrySet()) {
+            if (packageEntry.getValue().isEmpty())
+                continue;
+            List<TypeModel> types = packageEntry.getValue().values().stream()
+                    .map(type -> resolveType(List.of(), type)).collect(Collectors.toList());
+            mergedPackages.add(new PackageModel(packageEntry.getKey(), types));
+        }
+        return new DiagramModel(mergedPackages);
+    }
+
+    /**
+     * Resolves all references of the given type and its nested types
+     *
+     * @param enclosingTypes the types the type is nested in, the innermost first
+     * @param type           the type
+     * @return the type with resolved references
+     */
+    private TypeModel resolveType(List<TypeModel> enclosingTypes, TypeModel type) {
+        List<TypeModel> scope = new ArrayList<>();
+        scope.add(type);
+        scope.addAll(enclosingTypes);
+        List<TypeRef> superInterfaces = type.superInterfaces().stream().map(ref -> resolve(scope, ref))
+                .collect(Collectors.toList());
+        List<FieldModel> fields = type.fields().stream()
+                .map(field -> new FieldModel(field.name(), field.visibility(), field.isStatic(),
+                        resolve(scope, field.type())))
+                .collect(Collectors.toList());
+        List<TypeModel> nestedTypes = type.nestedTypes().stream()
+                .map(nestedType -> resolveType(scope, nestedType)).collect(Collectors.toList());
+        return new TypeModel(type.kind(), type.qualifiedName(), type.simpleName(), type.visibility(),
+                type.isAbstract(), type.typeParameters(), resolve(scope, type.superclass()), superInterfaces,
+                fields, resolveExecutables(scope, type.constructors()), resolveExecutables(scope, type.methods()),
+                nestedTypes);
+    }
+
+    /**
+     * Resolves the return and parameter types of the given executables
+     *
+     * @param scope       the type declaring the executables and the types it is
+     *                    nested in, the innermost first
+     * @param executables the executables
+     * @return the executables with resolved references
+     */
+    private List<ExecutableModel> resolveExecutables(List<TypeModel> scope, List<ExecutableModel> executables) {
+        return executables.stream().map(executable -> new ExecutableModel(executable.name(),
+                executable.visibility(), executable.isAbstract(), executable.isStatic(),
+                resolve(scope, executable.type()),
+                executable.parameters().stream()
+                        .map(parameter -> new ParameterModel(parameter.name(), resolve(scope, parameter.type())))
+                        .collect(Collectors.toList())))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Resolves the given reference and its type arguments. Only a reference
+     * which is {@link TypeRef#isUnresolved() marked as unresolved} is changed. It
+     * is looked up like java looks up a simple type name: as member type of the
+     * referencing type, of the types it is nested in and of their supertypes
+     * first, then through its {@link TypeRef#candidates() candidates}. A
+     * reference which can't be found keeps its qualified name.
+     *
+     * @param scope the referencing type and the types it is nested in, the
+     *              innermost first
+     * @param ref   the reference, may be null
+     * @return the resolved reference without candidates
+     */
+    private TypeRef resolve(List<TypeModel> scope, TypeRef ref) {
+        if (ref == null)
+            return null;
+        List<TypeRef> typeArguments = ref.typeArguments().stream().map(argument -> resolve(scope, argument))
+                .collect(Collectors.toList());
+        String qualifiedName = ref.qualifiedName();
+        if (ref.isUnresolved()) {
+            qualifiedName = findMemberType(scope, ref);
+            if (qualifiedName == null) {
+                qualifiedName = findCandidate(ref);
+            }
+        }
+        TypeRef resolved = new TypeRef(qualifiedName, ref.simpleName(), typeArguments);
+        if (resolved.equals(ref))
+            return ref;
+        TypeRef known = resolvedRefs.putIfAbsent(resolved, resolved);
+        return known == null ? resolved : known;
+    }
+
+    /**
+     * Searches the referenced type among the member types of the given types and
+     * their supertypes
+     *
+     * @param scope the types to search, the innermost first
+     * @param ref   the unresolved reference
+     * @return the qualified name of the member type, null if there is none
+     */
+    private String findMemberType(List<TypeModel> scope, TypeRef ref) {
+        String dimensions = getDimensions(ref.simpleName());
+        String simpleName = ref.simpleName().substring(0, ref.simpleName().length() - dimensions.length());
+        for (TypeModel type : scope) {
+            String memberType = findMemberType(type, simpleName, new HashSet<>());
+            if (memberType != null)
+                return memberType + dimensions;
+        }
+        return null;
+    }
+
+    /**
+     * Searches a member type of the given type or of its supertypes
+     *
+     * @param type         the type
+     * @param simpleName   the simple name of the member type
+     * @param visitedTypes the already searched types
+     * @return the qualified name of the member type, null if there is none
+     */
+    private String findMemberType(TypeModel type, String simpleName, Set<String> visitedTypes) {
+        if (!visitedTypes.add(type.qualifiedName()))
+            return null;
+        for (TypeModel nestedType : type.nestedTypes()) {
+            if (nestedType.simpleName().equals(simpleName))
+                return nestedType.qualifiedName();
+        }
+        List<TypeRef> supertypes = new ArrayList<>(type.superInterfaces());
+        supertypes.add(0, type.superclass());
+        for (TypeRef supertypeRef : supertypes) {
+            TypeModel supertype = supertypeRef == null ? null : typeIndex.get(findCandidate(supertypeRef));
+            String memberType = supertype == null ? null : findMemberType(supertype, simpleName, visitedTypes);
+            if (memberType != null)
+                return memberType;
+        }
+        return null;
+    }
+
+    /**
+     * Searches the referenced type through the candidates of the reference. The
+     * first candidate is in the package of the referencing file, which shadows
+     * the types imported on demand. The other candidates are imported on demand,
+     * they are only used if exactly one of them is known, as java wouldn't
+     * compile an ambiguous reference.
+     *
+     * @param ref the reference
+     * @return the qualified name of the found type, the qualified name of the
+     *         reference if there is none
+     */
+    private String findCandidate(TypeRef ref) {
+        if (!ref.isUnresolved())
+            return ref.qualifiedName();
+        List<String> candidates = ref.candidates();
+        if (isKnown(candidates.get(0)))
+            return candidates.get(0);
+        List<String> importedTypes = candidates.subList(1, candidates.size()).stream().filter(this::isKnown)
+                .collect(Collectors.toList());
+        return importedTypes.size() == 1 ? importedTypes.get(0) : ref.qualifiedName();
+    }
+
+    /**
+     * @param qualifiedName the qualified name of a type or an array of a type
+     * @return if the type is part of the merged model
+     */
+    private boolean isKnown(String qualifiedName) {
+        return typeIndex.containsKey(qualifiedName.substring(0,
+                qualifiedName.length() - getDimensions(qualifiedName).length()));
+    }
+
+    /**
+     * @param name the name of a type
+     * @return the array dimensions at the end of the name, e.g. {@code [][]}
+     */
+    private static String getDimensions(String name) {
+        int end = name.length();
+        while (end >= 2 && name.startsWith("[]", end - 2)) {
+            end -= 2;
+        }
+        return name.substring(end);
+    }
+}
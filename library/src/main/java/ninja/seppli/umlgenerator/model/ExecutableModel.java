@@ -0,0 +1,33 @@
+package ninja.seppli.umlgenerator.model;
+
+import java.util.List;
+
+import ninja.seppli.umlgenerator.options.VisibilityLevel;
+
+/**
+ * A method or a constructor of a type
+ *
+ * @param name       the name of the method or constructor
+ * @param visibility the visibility
+ * @param isAbstract if it is abstract
+ * @param isStatic   if it is static
+ * @param type       the return type of a method or the declaring type of a
+ *                   constructor
+ * @param parameters the parameters
+ */
+public record ExecutableModel(String name, VisibilityLevel visibility, boolean isAbstract, boolean isStatic,
+        TypeRef type, List<ParameterModel> parameters) {
+    /**
+     * Constructor
+     *
+     * @param name       the name of the method or constructor
+     * @param visibility the visibility
+     * @param isAbstract if it is abstract
+     * @param isStatic   if it is static
+     * @param type       the return type or declaring type
+     * @param parameters the parameters
+     */
+    public ExecutableModel {
+        parameters = List.copyOf(parameters);
+    }
+}
@@ -0,0 +1,14 @@
+package ninja.seppli.umlgenerator.model;
+
+import ninja.seppli.umlgenerator.options.VisibilityLevel;
+
+/**
+ * A field of a type. The values of an enum are fields as well.
+ *
+ * @param name       the name of the field
+ * @param visibility the visibility of the field
+ * @param isStatic   if the field is static
+ * @param type       the type of the field
+ */
+public record FieldModel(String name, VisibilityLevel visibility, boolean isStatic, TypeRef type) {
+}
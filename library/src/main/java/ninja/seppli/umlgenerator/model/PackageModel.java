@@ -0,0 +1,21 @@
+package ninja.seppli.umlgenerator.model;
+
+import java.util.List;
+
+/**
+ * A package and the top level types declared in it
+ *
+ * @param qualifiedName the qualified name of the package
+ * @param types         the top level types of the package
+ */
+public record PackageModel(String qualifiedName, List<TypeModel> types) {
+    /**
+     * Constructor
+     *
+     * @param qualifiedName the qualified name of the package
+     * @param types         the top level types of the package
+     */
+    public PackageModel {
+        types = List.copyOf(types);
+    }
+}
@@ -0,0 +1,10 @@
+package ninja.seppli.umlgenerator.model;
+
+/**
+ * A parameter of a method or a constructor
+ *
+ * @param name the name of the parameter
+ * @param type the type of the parameter
+ */
+public record ParameterModel(String name, TypeRef type) {
+}
@@ -0,0 +1,16 @@
+package ninja.seppli.umlgenerator.model;
+
+/**
+ * The kind of a {@link TypeModel}
+ */
+public enum TypeKind {
+    CLASS,
+    INTERFACE,
+    ENUM,
+    ANNOTATION,
+    RECORD,
+    /**
+     * any other kind of type, which isn't rendered
+     */
+    OTHER;
+}
@@ -0,0 +1,59 @@
+package ninja.seppli.umlgenerator.model;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import ninja.seppli.umlgenerator.options.VisibilityLevel;
+
+/**
+ * A type with its members and relationships
+ *
+ * @param kind            the kind of the type
+ * @param qualifiedName   the qualified name of the type
+ * @param simpleName      the simple name of the type
+ * @param visibility      the visibility of the type
+ * @param isAbstract      if the type is abstract
+ * @param typeParameters  the names of the declared type parameters
+ * @param superclass      the superclass or null if the type has none
+ * @param superInterfaces the implemented or extended interfaces
+ * @param fields          the fields, including the values of an enum
+ * @param constructors    the constructors
+ * @param methods         the methods
+ * @param nestedTypes     the types declared in this type
+ */
+public record TypeModel(TypeKind kind, String qualifiedName, String simpleName, VisibilityLevel visibility,
+        boolean isAbstract, List<String> typeParameters, TypeRef superclass, List<TypeRef> superInterfaces,
+        List<FieldModel> fields, List<ExecutableModel> constructors, List<ExecutableModel> methods,
+        List<TypeModel> nestedTypes) {
+    /**
+     * Constructor
+     *
+     * @param kind            the kind of the type
+     * @param qualifiedName   the qualified name of the type
+     * @param simpleName      the simple name of the type
+     * @param visibility      the visibility of the type
+     * @param isAbstract      if the type is abstract
+     * @param typeParameters  the names of the declared type parameters
+     * @param superclass      the superclass or null
+     * @param superInterfaces the implemented or extended interfaces
+     * @param fields          the fields
+     * @param constructors    the constructors
+     * @param methods         the methods
+     * @param nestedTypes     the nested types
+     */
+    public TypeModel {
+        typeParameters = List.copyOf(typeParameters);
+        superInterfaces = List.copyOf(superInterfaces);
+        fields = List.copyOf(fields);
+        constructors = List.copyOf(constructors);
+        methods = List.copyOf(methods);
+        nestedTypes = List.copyOf(nestedTypes);
+    }
+
+    /**
+     * @return this type followed by all of its nested types, recursively
+     */
+    public Stream<TypeModel> withNestedTypes() {
+        return Stream.concat(Stream.of(this), nestedTypes.stream().flatMap(TypeModel::withNestedTypes));
+    }
+}
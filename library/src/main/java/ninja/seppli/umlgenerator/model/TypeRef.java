@@ -0,0 +1,60 @@
+package ninja.seppli.umlgenerator.model;
+
+import java.util.List;
+
+/**
+ * A reference to a type, for example the type of a field or the superclass of
+ * a type
+ *
+ * @param qualifiedName the qualified name of the referenced type
+ * @param simpleName    the simple name of the referenced type
+ * @param typeArguments the actual type arguments, e.g. {@code String} for
+ *                      {@code List<String>}
+ * @param candidates    the qualified names the referenced type may have if it
+ *                      wasn't part of the parsed sources when the reference was
+ *                      extracted, in the order java looks them up. Empty if the
+ *                      reference is resolved.
+ * @see DiagramModelMerger
+ */
+public record TypeRef(String qualifiedName, String simpleName, List<TypeRef> typeArguments,
+        List<String> candidates) {
+    /**
+     * Constructor
+     *
+     * @param qualifiedName the qualified name of the referenced type
+     * @param simpleName    the simple name of the referenced type
+     * @param typeArguments the actual type arguments
+     * @param candidates    the qualified names the referenced type may have,
+     *                      empty if the reference is resolved
+     */
+    public TypeRef {
+        typeArguments = List.copyOf(typeArguments);
+        candidates = List.copyOf(candidates);
+    }
+
+    /**
+     * Constructor of a resolved reference
+     *
+     * @param qualifiedName the qualified name of the referenced type
+     * @param simpleName    the simple name of the referenced type
+     * @param typeArguments the actual type arguments
+     */
+    public TypeRef(String qualifiedName, String simpleName, List<TypeRef> typeArguments) {
+        this(qualifiedName, simpleName, typeArguments, List.of());
+    }
+
+    /**
+     * @return if the referenced type wasn't known when the reference was
+     *         extracted, so it has to be looked up in the merged model
+     */
+    public boolean isUnresolved() {
+        return !candidates.isEmpty();
+    }
+
+    /**
+     * @return if the reference points to {@code java.lang.Object}
+     */
+    public boolean isObject() {
+        return "java.lang.Object".equals(qualifiedName);
+    }
+}
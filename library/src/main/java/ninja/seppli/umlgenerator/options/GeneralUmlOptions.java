@@ -1,5 +1,6 @@
 package ninja.seppli.umlgenerator.options;
 
+import java.util.List;
 import java.util.Objects;
 
 public class GeneralUmlOptions {
@@ -8,6 +9,8 @@ public class GeneralUmlOptions {
     public int languageLevel = 17;
     private VisibilityLevel methodLevel = VisibilityLevel.PRIVATE;
     private VisibilityLevel fieldLevel = VisibilityLevel.PRIVATE;
+    private List<String> includes = List.of();
+    private List<String> excludes = List.of();
 
     public GeneralUmlOptions() {
     }
@@ -65,6 +68,77 @@ public class GeneralUmlOptions {
         this.fieldLevel = fieldLevel;
     }
 
+    /**
+     * @param visibility the visibility of a method or constructor
+     * @return if a method or constructor with the given visibility is shown in
+     *         the diagram, which are the ones more visible than the method level
+     */
+    public boolean isMethodVisible(VisibilityLevel visibility) {
+        return visibility.ordinal() > methodLevel.ordinal();
+    }
+
+    /**
+     * @param visibility the visibility of a field
+     * @return if a field with the given visibility is shown in the diagram, which
+     *         are the ones more visible than the field level
+     */
+    public boolean isFieldVisible(VisibilityLevel visibility) {
+        return visibility.ordinal() > fieldLevel.ordinal();
+    }
+
+    /**
+     * @return the glob patterns of the source files which are scanned, all files
+     *         are scanned if there is none. The list can't be modified, the
+     *         options are used as key of cached data.
+     */
+    public List<String> getIncludes() {
+        return includes;
+    }
+
+    /**
+     * The glob patterns are matched against the path of a source file relative to
+     * the scanned directory, e.g. {@code ch/zhaw/Main.java}. They use the syntax
+     * of {@link java.nio.file.FileSystem#getPathMatcher(String)}, so
+     * {@code **package-info.java} matches the package-info.java files in all
+     * directories.
+     * 
+     * @param includes the glob patterns of the source files which are scanned,
+     *                 all files are scanned if there is none
+     */
+    public void setIncludes(List<String> includes) {
+        this.includes = List.copyOf(includes);
+    }
+
+    /**
+     * @return the glob patterns of the source files which are never scanned, the
+     *         list can't be modified
+     */
+    public List<String> getExcludes() {
+        return excludes;
+    }
+
+    /**
+     * @param excludes the glob patterns of the source files which are never
+     *                 scanned, even if they match an include pattern
+     * @see #setIncludes(List)
+     */
+    public void setExcludes(List<String> excludes) {
+        this.excludes = List.copyOf(excludes);
+    }
+
+    /**
+     * Returns a fingerprint of all options, two options are equal if their
+     * fingerprints are equal. Unlike {@link #hashCode()}, which depends on the
+     * identity hash codes of the enums, the fingerprint is the same in every JVM,
+     * so it can be persisted.
+     * 
+     * @return the fingerprint
+     */
+    public String getFingerprint() {
+        return "languageLevel=" + languageLevel + ";methodLevel=" + methodLevel + ";fieldLevel=" + fieldLevel
+                + ";includes=" + includes + ";excludes=" + excludes;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -73,7 +147,7 @@ public class GeneralUmlOptions {
 
     @Override
     public int hashCode() {
-        return Objects.hash(fieldLevel, languageLevel, methodLevel);
+        return Objects.hash(fieldLevel, languageLevel, methodLevel, includes, excludes);
     }
 
     /*
@@ -92,7 +166,8 @@ public class GeneralUmlOptions {
         }
         GeneralUmlOptions other = (GeneralUmlOptions) obj;
         return fieldLevel == other.fieldLevel && languageLevel == other.languageLevel
-                && methodLevel == other.methodLevel;
+                && methodLevel == other.methodLevel && includes.equals(other.includes)
+                && excludes.equals(other.excludes);
     }
 
 }
@@ -1,29 +1,51 @@
 package ninja.seppli.umlgenerator.renderer;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 
+import ninja.seppli.umlgenerator.jfr.RenderPackageEvent;
+import ninja.seppli.umlgenerator.model.DiagramModel;
+import ninja.seppli.umlgenerator.model.PackageModel;
+import ninja.seppli.umlgenerator.model.TypeModel;
 import ninja.seppli.umlgenerator.options.UmlOptions;
 import ninja.seppli.umlgenerator.options.VisibilityLevel;
-import spoon.reflect.CtModel;
-import spoon.reflect.declaration.CtAnnotationType;
-import spoon.reflect.declaration.CtClass;
-import spoon.reflect.declaration.CtEnum;
-import spoon.reflect.declaration.CtInterface;
-import spoon.reflect.declaration.CtModifiable;
-import spoon.reflect.declaration.CtPackage;
-import spoon.reflect.declaration.CtRecord;
-import spoon.reflect.declaration.CtType;
-
-public abstract class AbstractRenderer implements Renderer {
+
+public abstract class AbstractRenderer implements Renderer, Closeable {
     /**
      * the options
      */
     private UmlOptions options;
 
+    /**
+     * how many packages are rendered at the same time
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * the pool the packages are rendered on, created by the first parallel
+     * render and kept until the renderer is closed
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * the cache of the rendered types, null if every type is rendered
+     */
+    private RenderFragmentCache fragmentCache;
+
+    /**
+     * what the fragments of the current render depend on besides their types
+     */
+    private String fragmentContext;
+
     /**
      * @return the options
      */
@@ -31,91 +53,330 @@ public abstract class AbstractRenderer implements Renderer {
         return options;
     }
 
+    /**
+     * @return how many packages are rendered at the same time
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets how many packages are rendered at the same time. By default, one
+     * package per available processor is rendered at the same time. The output
+     * doesn't depend on the parallelism. The packages are rendered on a pool
+     * which is kept for the next render, until the renderer is
+     * {@link #close() closed}.
+     * 
+     * @param parallelism how many packages are rendered at the same time, 1
+     *                    renders them one after the other
+     * @returns this instance for a fluent like api
+     */
+    public AbstractRenderer setParallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("The parallelism has to be at least 1 but was " + parallelism);
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @return the cache of the rendered types, null if every type is rendered
+     */
+    public RenderFragmentCache getFragmentCache() {
+        return fragmentCache;
+    }
+
+    /**
+     * Sets the cache of the rendered types. A type which didn't change since
+     * the last render is then taken from the cache instead of being rendered
+     * again.
+     * 
+     * @param fragmentCache the cache, null if every type is rendered
+     * @returns this instance for a fluent like api
+     */
+    public AbstractRenderer setFragmentCache(RenderFragmentCache fragmentCache) {
+        this.fragmentCache = fragmentCache;
+        return this;
+    }
+
     @Override
-    public String render(CtModel model, UmlOptions options) {
+    public void render(DiagramModel model, UmlOptions options, Appendable out) throws IOException {
+        startDiagram(options, out);
+        List<PackageModel> packages = model.getPackages();
+        if (parallelism == 1 || packages.size() < 2) {
+            for (PackageModel packageObj : packages) {
+                renderPackage(packageObj, getTypesOfPackage(packageObj.types()), out);
+            }
+        } else {
+            renderPackagesInParallel(packages, out);
+        }
+        endDiagram(packages.stream().flatMap(packageObj -> packageObj.types().stream()).toList(), out);
+    }
+
+    /**
+     * Starts a diagram, before its packages are rendered
+     * 
+     * @param options the options
+     * @param out     the output to write to
+     * @throws IOException if the output couldn't be written
+     */
+    void startDiagram(UmlOptions options, Appendable out) throws IOException {
         this.options = options;
-        List<String> importsExtendsList = new ArrayList<>();
-        StringBuilder builder = new StringBuilder();
-        for (CtPackage packageObj : model.getAllPackages()) {
-            List<String> classStrings = getClassStringsOfPackage(packageObj.getTypes());
-            builder.append(getPackages(packageObj, classStrings));
-            importsExtendsList.addAll(getExtendsAndImplementsConnections(packageObj));
+        if (fragmentCache != null) {
+            fragmentContext = getFragmentContext();
+            fragmentCache.startRender();
         }
-        builder.append(importsExtendsList.stream().filter(s -> !s.isBlank()).collect(Collectors.joining("\n")));
-        return builder.toString();
+        writeDiagramStart(out);
     }
 
-    private List<String> getClassStringsOfPackage(Collection<CtType<?>> types) {
-        List<String> typeStringList = new ArrayList<>();
-        for (CtType<?> typeObj : types) {
-            typeStringList.add(getClassString(typeObj));
-            typeStringList.addAll(getClassStringsOfPackage(typeObj.getNestedTypes()));
+    /**
+     * Ends a diagram, after its packages are rendered, with the connections
+     * between the types
+     * 
+     * @param types the top level types of the diagram
+     * @param out   the output to write to
+     * @throws IOException if the output couldn't be written
+     */
+    void endDiagram(List<TypeModel> types, Appendable out) throws IOException {
+        boolean first = true;
+        for (TypeModel typeObj : types) {
+            for (String connection : List.of(getExtendsString(typeObj), getImplementsString(typeObj))) {
+                if (connection.isBlank())
+                    continue;
+                if (!first) {
+                    out.append('\n');
+                }
+                out.append(connection);
+                first = false;
+            }
         }
-        return typeStringList;
-    }
-
-    private String getClassString(CtType<?> typeObj) {
-        if (typeObj instanceof CtEnum<?> enumObj) {
-            return getEnumString(enumObj);
-        } else if (typeObj instanceof CtRecord recordObj) {
-            return getRecordString(recordObj);
-        } else if (typeObj instanceof CtClass<?> classObj) {
-            return getClassString(classObj);
-        } else if (typeObj instanceof CtInterface<?> interfaceObj) {
-            return getInterfaceString(interfaceObj);
-        } else if (typeObj instanceof CtAnnotationType<?> annotationTypeObj) {
-            return getAnnotationString(annotationTypeObj);
-        } else {
-            return getDefaultTypeString(typeObj);
+        writeDiagramEnd(types, out);
+        if (fragmentCache != null) {
+            fragmentCache.endRender();
         }
+    }
 
+    /**
+     * Writes what a diagram starts with, nothing by default
+     * 
+     * @param out the output to write to
+     * @throws IOException if the output couldn't be written
+     */
+    protected void writeDiagramStart(Appendable out) throws IOException {
     }
 
-    private List<String> getExtendsAndImplementsConnections(CtPackage packageObj) {
-        List<String> typeStringList = new ArrayList<>();
-        for (CtType<?> typeObj : packageObj.getTypes()) {
-            typeStringList.add(getExtendsString(typeObj));
-            typeStringList.add(getImplementsString(typeObj));
+    /**
+     * Writes what a diagram ends with, after the connections, nothing by
+     * default
+     * 
+     * @param types the top level types of the diagram
+     * @param out   the output to write to
+     * @throws IOException if the output couldn't be written
+     */
+    protected void writeDiagramEnd(List<TypeModel> types, Appendable out) throws IOException {
+    }
+
+    /**
+     * Returns everything the rendered types depend on besides their structure.
+     * A renderer with more options than the visibility levels has to add them.
+     * 
+     * @return the context of the cached fragments
+     */
+    protected String getFragmentContext() {
+        return getClass().getName() + ";methodLevel=" + options.getGeneralUmlOptions().getMethodLevel()
+                + ";fieldLevel=" + options.getGeneralUmlOptions().getFieldLevel();
+    }
+
+    /**
+     * Renders the packages on a fork join pool and writes them in their order.
+     * Only a few rendered packages are waiting to be written at a time, so the
+     * diagram is never held in memory as a whole.
+     * 
+     * @param packages the packages to render
+     * @param out      the output to write to
+     * @throws IOException if the output couldn't be written
+     */
+    private void renderPackagesInParallel(List<PackageModel> packages, Appendable out) throws IOException {
+        ForkJoinPool renderPool = getPool();
+        Deque<ForkJoinTask<String>> pendingPackages = new ArrayDeque<>();
+        try {
+            for (PackageModel packageObj : packages) {
+                pendingPackages.add(renderPool.submit(() -> {
+                    StringBuilder builder = new StringBuilder();
+                    renderPackage(packageObj, getTypesOfPackage(packageObj.types()), builder);
+                    return builder.toString();
+                }));
+                if (pendingPackages.size() >= 2 * renderPool.getParallelism()) {
+                    out.append(pendingPackages.remove().join());
+                }
+            }
+            while (!pendingPackages.isEmpty()) {
+                out.append(pendingPackages.remove().join());
+            }
+        } finally {
+            // the packages of a failed render aren't rendered in vain
+            pendingPackages.forEach(task -> task.cancel(false));
         }
-        return typeStringList;
     }
 
-    protected abstract String getClassString(CtClass<?> classObj);
+    /**
+     * Returns the pool the packages are rendered on. It is created on the first
+     * call and again if the parallelism changed since.
+     * 
+     * @return the pool
+     */
+    private synchronized ForkJoinPool getPool() {
+        if (pool != null && pool.getParallelism() == parallelism)
+            return pool;
+        if (pool != null) {
+            // a render which still uses the old pool finishes on it
+            pool.shutdown();
+        }
+        pool = new ForkJoinPool(parallelism);
+        return pool;
+    }
 
-    protected abstract String getInterfaceString(CtInterface<?> classObj);
+    /**
+     * Shuts the pool the packages are rendered on down. The renderer can still
+     * be used, the next parallel render creates a new pool.
+     */
+    @Override
+    public synchronized void close() {
+        if (pool == null)
+            return;
+        pool.shutdown();
+        pool = null;
+    }
 
-    protected abstract String getEnumString(CtEnum<?> classObj);
+    /**
+     * Renders a package and records a {@link RenderPackageEvent}
+     * 
+     * @param packageObj the package
+     * @param types      the types of the package, including the nested types
+     * @param out        the output to write to
+     * @throws IOException if the output couldn't be written
+     */
+    void renderPackage(PackageModel packageObj, List<TypeModel> types, Appendable out) throws IOException {
+        RenderPackageEvent event = new RenderPackageEvent();
+        event.begin();
+        CountingAppendable packageOut = new CountingAppendable(out);
+        writePackage(packageObj, types, new IndentingWriter(packageOut));
+        event.end();
+        if (event.shouldCommit()) {
+            event.packageName = packageObj.qualifiedName();
+            event.renderer = getClass().getSimpleName();
+            event.typeCount = packageObj.types().size();
+            event.characterCount = packageOut.getCharacterCount();
+            event.commit();
+        }
+    }
 
-    protected abstract String getAnnotationString(CtAnnotationType<?> classObj);
+    /**
+     * @param types the types of a package
+     * @return the types and their nested types, each nested type right after
+     *         its enclosing type
+     */
+    static List<TypeModel> getTypesOfPackage(Collection<TypeModel> types) {
+        List<TypeModel> typeList = new ArrayList<>();
+        for (TypeModel typeObj : types) {
+            typeList.add(typeObj);
+            typeList.addAll(getTypesOfPackage(typeObj.nestedTypes()));
+        }
+        return typeList;
+    }
 
-    protected abstract String getRecordString(CtRecord classObj);
+    /**
+     * Writes a type, from the {@link #fragmentCache} if it was rendered before
+     * 
+     * @param typeObj the type
+     * @param out     the output to write to
+     * @throws IOException if the output couldn't be written
+     */
+    protected void writeType(TypeModel typeObj, IndentingWriter out) throws IOException {
+        if (fragmentCache == null) {
+            writeTypeByKind(typeObj, out);
+            return;
+        }
+        String key = RenderFragmentCache.getKey(typeObj, fragmentContext);
+        String fragment = fragmentCache.get(key);
+        if (fragment == null) {
+            StringBuilder builder = new StringBuilder();
+            writeTypeByKind(typeObj, new IndentingWriter(builder));
+            fragment = builder.toString();
+            fragmentCache.put(key, fragment);
+        }
+        // the fragment is rendered without indent, the writer indents it
+        out.append(fragment);
+    }
 
-    protected String getDefaultTypeString(CtType<?> classObj) {
-        return "";
+    /**
+     * Writes a type by its kind
+     * 
+     * @param typeObj the type
+     * @param out     the output to write to
+     * @throws IOException if the output couldn't be written
+     */
+    private void writeTypeByKind(TypeModel typeObj, IndentingWriter out) throws IOException {
+        switch (typeObj.kind()) {
+            case ENUM -> writeEnum(typeObj, out);
+            case RECORD -> writeRecord(typeObj, out);
+            case CLASS -> writeClass(typeObj, out);
+            case INTERFACE -> writeInterface(typeObj, out);
+            case ANNOTATION -> writeAnnotation(typeObj, out);
+            default -> writeDefaultType(typeObj, out);
+        }
     }
 
-    protected abstract String getPackages(CtPackage packageObj, List<String> classStrings);
 
-    protected abstract String getExtendsString(CtType<?> type);
+    protected abstract void writeClass(TypeModel classObj, IndentingWriter out) throws IOException;
 
-    protected abstract String getImplementsString(CtType<?> type);
+    protected abstract void writeInterface(TypeModel classObj, IndentingWriter out) throws IOException;
 
-    protected String indent(String... str) {
-        return Arrays.stream(str).flatMap(String::lines).map(line -> "\t" + line).collect(Collectors.joining("\n"));
+    protected abstract void writeEnum(TypeModel classObj, IndentingWriter out) throws IOException;
+
+    protected abstract void writeAnnotation(TypeModel classObj, IndentingWriter out) throws IOException;
+
+    protected abstract void writeRecord(TypeModel classObj, IndentingWriter out) throws IOException;
+
+    protected void writeDefaultType(TypeModel classObj, IndentingWriter out) throws IOException {
     }
 
+    /**
+     * Writes a package with its types. Every type is written straight to the
+     * output, so neither the package nor a type is held in memory as a whole.
+     * 
+     * @param packageObj the package
+     * @param types      the types of the package, including the nested types
+     * @param out        the output to write to
+     * @throws IOException if the output couldn't be written
+     */
+    protected abstract void writePackage(PackageModel packageObj, List<TypeModel> types, IndentingWriter out)
+            throws IOException;
+
+    protected abstract String getExtendsString(TypeModel type);
+
+    protected abstract String getImplementsString(TypeModel type);
+
     protected String concat(String... strs) {
         return Arrays.stream(strs).filter(s -> !s.isBlank()).collect(Collectors.joining(" "));
     }
 
-    protected boolean isMethodVisible(CtModifiable modifiable) {
-        VisibilityLevel modifiableLevel = VisibilityLevel.fromModifierKind(modifiable.getVisibility());
-        return modifiableLevel.ordinal() > options.getGeneralUmlOptions().getMethodLevel().ordinal();
+    protected boolean isMethodVisible(VisibilityLevel modifiableLevel) {
+        return options.getGeneralUmlOptions().isMethodVisible(modifiableLevel);
+    }
+
+    protected boolean isFieldVisible(VisibilityLevel modifiableLevel) {
+        return options.getGeneralUmlOptions().isFieldVisible(modifiableLevel);
     }
 
-    protected boolean isFieldVisible(CtModifiable modifiable) {
-        VisibilityLevel modifiableLevel = VisibilityLevel.fromModifierKind(modifiable.getVisibility());
-        return modifiableLevel.ordinal() > options.getGeneralUmlOptions().getFieldLevel().ordinal();
+    protected String getVisibilityString(VisibilityLevel visibility) {
+        if (visibility == null)
+            return "~";
+        return switch (visibility) {
+            case PRIVATE -> "-";
+            case PROTECTED -> "#";
+            case PUBLIC -> "+";
+            default -> "~"; // if no visibility modifier is present, assume it is package private
+        };
     }
 
 }
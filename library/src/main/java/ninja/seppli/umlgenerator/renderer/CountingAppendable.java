@@ -0,0 +1,57 @@
+package ninja.seppli.umlgenerator.renderer;
+
+import java.io.IOException;
+
+/**
+ * An {@link Appendable} which counts the characters appended to another one
+ */
+public class CountingAppendable implements Appendable {
+    /**
+     * the appendable the characters are appended to
+     */
+    private Appendable out;
+
+    /**
+     * how many characters were appended
+     */
+    private long characterCount;
+
+    /**
+     * Constructor
+     * 
+     * @param out the appendable the characters are appended to
+     */
+    public CountingAppendable(Appendable out) {
+        this.out = out;
+    }
+
+    /**
+     * @return how many characters were appended
+     */
+    public long getCharacterCount() {
+        return characterCount;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) throws IOException {
+        CharSequence sequence = csq == null ? "null" : csq;
+        out.append(sequence);
+        characterCount += sequence.length();
+        return this;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) throws IOException {
+        CharSequence sequence = csq == null ? "null" : csq;
+        out.append(sequence, start, end);
+        characterCount += end - start;
+        return this;
+    }
+
+    @Override
+    public Appendable append(char c) throws IOException {
+        out.append(c);
+        characterCount++;
+        return this;
+    }
+}
@@ -0,0 +1,129 @@
+package ninja.seppli.umlgenerator.renderer;
+
+import java.io.IOException;
+
+/**
+ * An {@link Appendable} which indents every line appended to it by the
+ * current depth. The indent is written once when a line starts, so nested
+ * blocks don't have to be split into lines and indented again per level.
+ * 
+ * An empty line is indented as well, but nothing is written after the last
+ * new line until more text is appended.
+ */
+public class IndentingWriter implements Appendable {
+    /**
+     * the indent written per depth
+     */
+    private static final char INDENT = '\t';
+
+    /**
+     * the appendable the indented lines are appended to
+     */
+    private Appendable out;
+
+    /**
+     * the current depth
+     */
+    private int depth;
+
+    /**
+     * if the next appended character starts a new line
+     */
+    private boolean lineStart = true;
+
+    /**
+     * Constructor
+     * 
+     * @param out the appendable the indented lines are appended to
+     */
+    public IndentingWriter(Appendable out) {
+        this.out = out;
+    }
+
+    /**
+     * @return the current depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Indents the following lines one level deeper
+     * 
+     * @returns this instance for a fluent like api
+     */
+    public IndentingWriter indent() {
+        depth++;
+        return this;
+    }
+
+    /**
+     * Indents the following lines one level less
+     * 
+     * @returns this instance for a fluent like api
+     */
+    public IndentingWriter outdent() {
+        if (depth == 0)
+            throw new IllegalStateException("The depth is already 0");
+        depth--;
+        return this;
+    }
+
+    /**
+     * Appends a line and a new line
+     * 
+     * @param line the line
+     * @returns this instance for a fluent like api
+     * @throws IOException if the line couldn't be appended
+     */
+    public IndentingWriter line(CharSequence line) throws IOException {
+        return append(line).append('\n');
+    }
+
+    @Override
+    public IndentingWriter append(CharSequence csq) throws IOException {
+        CharSequence sequence = csq == null ? "null" : csq;
+        return append(sequence, 0, sequence.length());
+    }
+
+    @Override
+    public IndentingWriter append(CharSequence csq, int start, int end) throws IOException {
+        CharSequence sequence = csq == null ? "null" : csq;
+        int lineBegin = start;
+        for (int i = start; i < end; i++) {
+            if (sequence.charAt(i) != '\n')
+                continue;
+            writeIndent();
+            out.append(sequence, lineBegin, i + 1);
+            lineStart = true;
+            lineBegin = i + 1;
+        }
+        if (lineBegin < end) {
+            writeIndent();
+            out.append(sequence, lineBegin, end);
+        }
+        return this;
+    }
+
+    @Override
+    public IndentingWriter append(char c) throws IOException {
+        writeIndent();
+        out.append(c);
+        lineStart = c == '\n';
+        return this;
+    }
+
+    /**
+     * Writes the indent if a new line starts
+     * 
+     * @throws IOException if the indent couldn't be written
+     */
+    private void writeIndent() throws IOException {
+        if (!lineStart)
+            return;
+        for (int i = 0; i < depth; i++) {
+            out.append(INDENT);
+        }
+        lineStart = false;
+    }
+}
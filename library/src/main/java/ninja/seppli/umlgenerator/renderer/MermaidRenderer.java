@@ -0,0 +1,197 @@
+package ninja.seppli.umlgenerator.renderer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import ninja.seppli.umlgenerator.model.ExecutableModel;
+import ninja.seppli.umlgenerator.model.FieldModel;
+import ninja.seppli.umlgenerator.model.PackageModel;
+import ninja.seppli.umlgenerator.model.ParameterModel;
+import ninja.seppli.umlgenerator.model.TypeKind;
+import ninja.seppli.umlgenerator.model.TypeModel;
+import ninja.seppli.umlgenerator.model.TypeRef;
+
+/**
+ * Renders a Mermaid class diagram. Mermaid has no packages, so the types of all
+ * packages are written one after the other. The kind of a type which isn't a
+ * plain class is written as an annotation like {@code <<interface>>}, a static
+ * member ends with {@code $} and an abstract method with {@code *}.
+ *
+ * A type is identified by its qualified name, with every character which
+ * isn't a letter or digit replaced by {@code _}, and labeled with its simple
+ * name, like {@code class zoo_animals_Lion["Lion"]}. So types with the same
+ * simple name in different packages stay apart.
+ */
+public class MermaidRenderer extends AbstractRenderer {
+    @Override
+    protected void writeDiagramStart(Appendable out) throws IOException {
+        out.append("classDiagram\n");
+    }
+
+    @Override
+    protected void writeDiagramEnd(List<TypeModel> types, Appendable out) throws IOException {
+        // the supertypes which aren't part of the diagram get their simple name as label as well
+        Set<String> diagramTypes = getTypesOfPackage(types).stream().map(TypeModel::qualifiedName)
+                .collect(Collectors.toSet());
+        Map<String, String> labels = new LinkedHashMap<>();
+        for (TypeModel typeObj : types) {
+            List<TypeRef> supertypes = new ArrayList<>(typeObj.superInterfaces());
+            if (typeObj.superclass() != null && !typeObj.superclass().isObject()) {
+                supertypes.add(0, typeObj.superclass());
+            }
+            for (TypeRef supertype : supertypes) {
+                if (!diagramTypes.contains(supertype.qualifiedName())) {
+                    labels.putIfAbsent(getId(supertype.qualifiedName()), supertype.simpleName());
+                }
+            }
+        }
+        for (Map.Entry<String, String> label : labels.entrySet()) {
+            out.append("\nclass ").append(label.getKey()).append("[\"").append(label.getValue()).append("\"]");
+        }
+        out.append('\n');
+    }
+
+    @Override
+    protected void writeClass(TypeModel classObj, IndentingWriter out) throws IOException {
+        writeClassDefinition(classObj, classObj.isAbstract() ? "abstract" : null, out);
+    }
+
+    @Override
+    protected void writeInterface(TypeModel interfaceObj, IndentingWriter out) throws IOException {
+        writeClassDefinition(interfaceObj, "interface", out);
+    }
+
+    @Override
+    protected void writeEnum(TypeModel enumObj, IndentingWriter out) throws IOException {
+        writeClassDefinition(enumObj, "enumeration", out);
+    }
+
+    @Override
+    protected void writeAnnotation(TypeModel annotationObj, IndentingWriter out) throws IOException {
+        writeClassDefinition(annotationObj, "annotation", out);
+    }
+
+    @Override
+    protected void writeRecord(TypeModel recordObj, IndentingWriter out) throws IOException {
+        writeClassDefinition(recordObj, "record", out);
+    }
+
+    @Override
+    protected void writePackage(PackageModel packageObj, List<TypeModel> types, IndentingWriter out)
+            throws IOException {
+        for (TypeModel typeObj : types) {
+            writeType(typeObj, out);
+        }
+    }
+
+    @Override
+    protected String getExtendsString(TypeModel type) {
+        if (type.superclass() == null || type.superclass().isObject())
+            return "";
+        return "%s --|> %s".formatted(getId(type.qualifiedName()), getId(type.superclass().qualifiedName()));
+    }
+
+    @Override
+    protected String getImplementsString(TypeModel type) {
+        return type.superInterfaces().stream()
+                .map(interfaceObj -> "%s ..|> %s".formatted(getId(type.qualifiedName()),
+                        getId(interfaceObj.qualifiedName())))
+                .collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Writes a type with its visible members. A type without members and
+     * annotation is written without a body.
+     *
+     * @param typeObj    the type
+     * @param annotation the annotation of the type, null if it has none
+     * @param out        the output to write to
+     * @throws IOException if the output couldn't be written
+     */
+    private void writeClassDefinition(TypeModel typeObj, String annotation, IndentingWriter out) throws IOException {
+        out.append("class ").append(getId(typeObj.qualifiedName())).append(getAllDeclaredGenericsString(typeObj))
+                .append("[\"").append(typeObj.simpleName()).append("\"]");
+        List<String> members = getAllMemberStrings(typeObj);
+        if (annotation == null && members.isEmpty()) {
+            out.line("");
+            return;
+        }
+        out.line(" {").indent();
+        if (annotation != null) {
+            out.append("<<").append(annotation).line(">>");
+        }
+        for (String member : members) {
+            out.line(member);
+        }
+        out.outdent().line("}");
+    }
+
+    /**
+     * @param qualifiedName the qualified name of a type
+     * @return the id of the type in the diagram
+     */
+    static String getId(String qualifiedName) {
+        return qualifiedName.replaceAll("[^A-Za-z0-9]", "_");
+    }
+
+    private String getAllDeclaredGenericsString(TypeModel genericType) {
+        if (genericType.typeParameters().isEmpty())
+            return "";
+        return "~" + String.join(", ", genericType.typeParameters()) + "~";
+    }
+
+    private List<String> getAllMemberStrings(TypeModel typeObj) {
+        List<String> members = new ArrayList<>();
+        for (FieldModel field : typeObj.fields()) {
+            if (isFieldVisible(field.visibility())) {
+                members.add(getFieldString(field));
+            }
+        }
+        for (ExecutableModel constructor : typeObj.constructors()) {
+            if (isMethodVisible(constructor.visibility())) {
+                members.add(getVisibilityString(constructor.visibility()) + " " + constructor.type().simpleName()
+                        + getAllParametersString(constructor));
+            }
+        }
+        for (ExecutableModel method : typeObj.methods()) {
+            if (isMethodVisible(method.visibility())) {
+                members.add(getMethodString(method, typeObj.kind() == TypeKind.INTERFACE));
+            }
+        }
+        return members;
+    }
+
+    private String getFieldString(FieldModel field) {
+        return getVisibilityString(field.visibility()) + " " + getTypeString(field.type()) + " " + field.name()
+                + (field.isStatic() ? "$" : "");
+    }
+
+    private String getMethodString(ExecutableModel method, boolean isInterfaceMethod) {
+        String classifier = method.isStatic() ? "$" : method.isAbstract() && !isInterfaceMethod ? "*" : "";
+        return getVisibilityString(method.visibility()) + " " + method.name() + getAllParametersString(method)
+                + (method.type() == null ? "" : " " + getTypeString(method.type())) + classifier;
+    }
+
+    private String getAllParametersString(ExecutableModel executable) {
+        return "(" + executable.parameters().stream().map(this::getParameterString).collect(Collectors.joining(", "))
+                + ")";
+    }
+
+    private String getParameterString(ParameterModel parameter) {
+        return concat(getTypeString(parameter.type()), parameter.name());
+    }
+
+    private String getTypeString(TypeRef type) {
+        if (type == null)
+            return "";
+        if (type.typeArguments().isEmpty())
+            return type.simpleName();
+        return type.simpleName() + "~" + type.typeArguments().stream().map(TypeRef::simpleName)
+                .collect(Collectors.joining(", ")) + "~";
+    }
+}
@@ -0,0 +1,62 @@
+package ninja.seppli.umlgenerator.renderer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ninja.seppli.umlgenerator.model.DiagramModel;
+import ninja.seppli.umlgenerator.model.PackageModel;
+import ninja.seppli.umlgenerator.model.TypeModel;
+import ninja.seppli.umlgenerator.options.UmlOptions;
+
+/**
+ * Renders a model in several formats with one walk over it. Every package is
+ * handed to all renderers before the next one is visited, each renderer writes
+ * to its own output. The packages are rendered one after the other on the
+ * calling thread, the {@link AbstractRenderer#setParallelism(int) parallelism}
+ * of the renderers doesn't apply.
+ */
+public class MultiFormatRenderer {
+    /**
+     * the outputs by the renderer which writes to them
+     */
+    private Map<AbstractRenderer, Appendable> outputs = new LinkedHashMap<>();
+
+    /**
+     * Adds a format
+     * 
+     * @param renderer the renderer of the format
+     * @param out      the output the renderer writes to
+     * @returns this instance for a fluent like api
+     */
+    public MultiFormatRenderer addOutput(AbstractRenderer renderer, Appendable out) {
+        outputs.put(renderer, out);
+        return this;
+    }
+
+    /**
+     * Renders the model to all outputs
+     * 
+     * @param model   the model to render
+     * @param options the options
+     * @throws IOException if an output couldn't be written
+     */
+    public void render(DiagramModel model, UmlOptions options) throws IOException {
+        for (Map.Entry<AbstractRenderer, Appendable> output : outputs.entrySet()) {
+            output.getKey().startDiagram(options, output.getValue());
+        }
+        List<TypeModel> topLevelTypes = new ArrayList<>();
+        for (PackageModel packageObj : model.getPackages()) {
+            List<TypeModel> types = AbstractRenderer.getTypesOfPackage(packageObj.types());
+            for (Map.Entry<AbstractRenderer, Appendable> output : outputs.entrySet()) {
+                output.getKey().renderPackage(packageObj, types, output.getValue());
+            }
+            topLevelTypes.addAll(packageObj.types());
+        }
+        for (Map.Entry<AbstractRenderer, Appendable> output : outputs.entrySet()) {
+            output.getKey().endDiagram(topLevelTypes, output.getValue());
+        }
+    }
+}
@@ -1,210 +1,208 @@
 package ninja.seppli.umlgenerator.renderer;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import ninja.seppli.umlgenerator.options.UmlOptions;
-import spoon.reflect.CtModel;
-import spoon.reflect.declaration.CtAnnotationType;
-import spoon.reflect.declaration.CtClass;
-import spoon.reflect.declaration.CtConstructor;
-import spoon.reflect.declaration.CtEnum;
-import spoon.reflect.declaration.CtEnumValue;
-import spoon.reflect.declaration.CtExecutable;
-import spoon.reflect.declaration.CtField;
-import spoon.reflect.declaration.CtFormalTypeDeclarer;
-import spoon.reflect.declaration.CtInterface;
-import spoon.reflect.declaration.CtMethod;
-import spoon.reflect.declaration.CtModifiable;
-import spoon.reflect.declaration.CtPackage;
-import spoon.reflect.declaration.CtParameter;
-import spoon.reflect.declaration.CtRecord;
-import spoon.reflect.declaration.CtType;
-import spoon.reflect.declaration.CtTypeParameter;
-import spoon.reflect.declaration.CtTypedElement;
-import spoon.reflect.reference.CtTypeReference;
+import ninja.seppli.umlgenerator.model.ExecutableModel;
+import ninja.seppli.umlgenerator.model.FieldModel;
+import ninja.seppli.umlgenerator.model.PackageModel;
+import ninja.seppli.umlgenerator.model.ParameterModel;
+import ninja.seppli.umlgenerator.model.TypeKind;
+import ninja.seppli.umlgenerator.model.TypeModel;
+import ninja.seppli.umlgenerator.model.TypeRef;
 
 public class PlantumlRenderer extends AbstractRenderer {
     @Override
-    public String render(CtModel model, UmlOptions options) {
-        return """
-                @startuml
-                %s
-                @enduml
-                """.formatted(super.render(model, options));
+    protected void writeDiagramStart(Appendable out) throws IOException {
+        out.append("@startuml\n");
     }
 
     @Override
-    protected String getClassString(CtClass<?> classObj) {
-        String body = indent(getAllFieldsString(classObj), getAllConstructorsString(classObj),
-                getAllMethodsString(classObj));
+    protected void writeDiagramEnd(List<TypeModel> types, Appendable out) throws IOException {
+        out.append("\n@enduml\n");
+    }
+
+    @Override
+    protected void writeClass(TypeModel classObj, IndentingWriter out) throws IOException {
         String abstractStr = classObj.isAbstract() ? "abstract " : "";
-        return """
-                %sclass %s%s {
-                %s
-                }
-                """.formatted(abstractStr, classObj.getSimpleName(), getAllDeclaredGenericsString(classObj), body);
+        out.append(abstractStr).append("class ").append(classObj.simpleName())
+                .append(getAllDeclaredGenericsString(classObj)).line(" {");
+        writeBody(out, List.of(getAllFieldsStrings(classObj), getAllConstructorsStrings(classObj),
+                getAllMethodsStrings(classObj)));
+        out.line("}");
     }
 
     @Override
-    protected String getInterfaceString(CtInterface<?> interfaceObj) {
-        String body = indent(getAllFieldsString(interfaceObj), getAllMethodsString(interfaceObj));
-        return """
-                interface %s%s {
-                %s
-                }
-                """.formatted(interfaceObj.getSimpleName(), getAllDeclaredGenericsString(interfaceObj), body);
+    protected void writeInterface(TypeModel interfaceObj, IndentingWriter out) throws IOException {
+        out.append("interface ").append(interfaceObj.simpleName())
+                .append(getAllDeclaredGenericsString(interfaceObj)).line(" {");
+        writeBody(out, List.of(getAllFieldsStrings(interfaceObj), getAllMethodsStrings(interfaceObj)));
+        out.line("}");
     }
 
     @Override
-    protected String getEnumString(CtEnum<?> enumObj) {
-        String body = indent(getAllFieldsString(enumObj), getAllConstructorsString(enumObj),
-                getAllMethodsString(enumObj));
-        return """
-                enum %s%s {
-                %s
-                }
-                """.formatted(enumObj.getSimpleName(), getAllDeclaredGenericsString(enumObj), body);
+    protected void writeEnum(TypeModel enumObj, IndentingWriter out) throws IOException {
+        out.append("enum ").append(enumObj.simpleName()).append(getAllDeclaredGenericsString(enumObj)).line(" {");
+        writeBody(out, List.of(getAllFieldsStrings(enumObj), getAllConstructorsStrings(enumObj),
+                getAllMethodsStrings(enumObj)));
+        out.line("}");
     }
 
     @Override
-    protected String getAnnotationString(CtAnnotationType<?> annotationObj) {
-        return """
-                annotation %s%s {
-                %s
-                %s
-                }
-                """.formatted(annotationObj.getSimpleName(), getAllDeclaredGenericsString(annotationObj),
-                getAllFieldsString(annotationObj),
-                getAllMethodsString(annotationObj));
+    protected void writeAnnotation(TypeModel annotationObj, IndentingWriter out) throws IOException {
+        out.append("annotation ").append(annotationObj.simpleName())
+                .append(getAllDeclaredGenericsString(annotationObj)).line(" {");
+        // the members of an annotation aren't indented
+        writeLines(out, getAllFieldsStrings(annotationObj));
+        writeLines(out, getAllMethodsStrings(annotationObj));
+        out.line("}");
     }
 
     @Override
-    protected String getRecordString(CtRecord recordObj) {
-        String body = indent(getAllFieldsString(recordObj), getAllConstructorsString(recordObj),
-                getAllMethodsString(recordObj));
-        return """
-                class %s%s <<record>> {
-                %s
-                }
-                """.formatted(recordObj.getSimpleName(), getAllDeclaredGenericsString(recordObj), body);
+    protected void writeRecord(TypeModel recordObj, IndentingWriter out) throws IOException {
+        out.append("class ").append(recordObj.simpleName()).append(getAllDeclaredGenericsString(recordObj))
+                .line(" <<record>> {");
+        writeBody(out, List.of(getAllFieldsStrings(recordObj), getAllConstructorsStrings(recordObj),
+                getAllMethodsStrings(recordObj)));
+        out.line("}");
     }
 
     @Override
-    protected String getPackages(CtPackage packageObj, List<String> classStrings) {
-        if (classStrings.isEmpty())
-            return "";
-        String joinedClassString = indent(classStrings.stream().collect(Collectors.joining("\n")));
-        return """
-                package %s {
-                %s
-                }
-                """.formatted(packageObj.getQualifiedName(), joinedClassString);
+    protected void writePackage(PackageModel packageObj, List<TypeModel> types, IndentingWriter out)
+            throws IOException {
+        if (types.isEmpty())
+            return;
+        out.append("package ").append(packageObj.qualifiedName()).line(" {").indent();
+        for (int i = 0; i < types.size(); i++) {
+            if (i > 0) {
+                out.line("");
+            }
+            writeType(types.get(i), out);
+        }
+        out.outdent().line("}");
+    }
+
+    /**
+     * Writes the members of a type one level deeper, an empty line if it has no
+     * visible members
+     * 
+     * @param out      the output to write to
+     * @param sections the members, grouped by fields, constructors and methods
+     * @throws IOException if the output couldn't be written
+     */
+    private void writeBody(IndentingWriter out, List<List<String>> sections) throws IOException {
+        if (sections.stream().allMatch(List::isEmpty)) {
+            out.line("");
+            return;
+        }
+        out.indent();
+        for (List<String> section : sections) {
+            for (String line : section) {
+                out.line(line);
+            }
+        }
+        out.outdent();
+    }
+
+    /**
+     * Writes the given lines, an empty line if there are none
+     * 
+     * @param out   the output to write to
+     * @param lines the lines
+     * @throws IOException if the output couldn't be written
+     */
+    private void writeLines(IndentingWriter out, List<String> lines) throws IOException {
+        out.line(String.join("\n", lines));
     }
 
     @Override
-    protected String getExtendsString(CtType<?> type) {
-        if (type.getSuperclass() == null || type.getSuperclass().getQualifiedName().equals("java.lang.Object"))
+    protected String getExtendsString(TypeModel type) {
+        if (type.superclass() == null || type.superclass().isObject())
             return "";
-        return "%s --|> %s".formatted(type.getSimpleName(), type.getSuperclass().getSimpleName());
+        return "%s --|> %s".formatted(type.simpleName(), type.superclass().simpleName());
     }
 
     @Override
-    protected String getImplementsString(CtType<?> type) {
-        return type.getSuperInterfaces().stream().map(interfaceObj -> getImplementString(type, interfaceObj))
+    protected String getImplementsString(TypeModel type) {
+        return type.superInterfaces().stream().map(interfaceObj -> getImplementString(type, interfaceObj))
                 .collect(Collectors.joining("\n"));
     }
 
-    private String getImplementString(CtType<?> type, CtTypeReference<?> interfaceObj) {
-        return "%s ..|> %s".formatted(type.getSimpleName(), interfaceObj.getSimpleName());
+    private String getImplementString(TypeModel type, TypeRef interfaceObj) {
+        return "%s ..|> %s".formatted(type.simpleName(), interfaceObj.simpleName());
     }
 
-    private String getAllDeclaredGenericsString(CtFormalTypeDeclarer genericType) {
+    private String getAllDeclaredGenericsString(TypeModel genericType) {
         if (genericType == null)
             return "";
-        List<CtTypeParameter> parameters = genericType.getFormalCtTypeParameters();
+        List<String> parameters = genericType.typeParameters();
         if (parameters.isEmpty())
             return "";
-        return "<" + parameters.stream().map(this::getDeclaredGenericString).collect(Collectors.joining(", ")) + ">";
+        return "<" + parameters.stream().collect(Collectors.joining(", ")) + ">";
     }
 
-    private String getDeclaredGenericString(CtTypeParameter parameter) {
-        return parameter.getSimpleName();
+    private List<String> getAllConstructorsStrings(TypeModel classObj) {
+        return classObj.constructors().stream().filter(constructor -> isMethodVisible(constructor.visibility()))
+                .map(this::getConstructorString).toList();
     }
 
-    private String getAllEnumStrings(CtEnum<?> enumObj) {
-        return enumObj.getEnumValues().stream().map(CtEnumValue::getSimpleName).collect(Collectors.joining("\n"));
-    }
-
-    private String getAllConstructorsString(CtClass<?> classObj) {
-        return classObj.getConstructors().stream().filter(this::isMethodVisible).map(this::getConstructorString)
-                .collect(Collectors.joining("\n"));
-    }
-
-    private String getConstructorString(CtConstructor<?> constructor) {
-        return getVisibilityString(constructor) + constructor.getType().getSimpleName()
+    private String getConstructorString(ExecutableModel constructor) {
+        return getVisibilityString(constructor.visibility()) + constructor.type().simpleName()
                 + getAllParametersString(constructor);
     }
 
-    private String getAllMethodsString(CtType<?> typeObj) {
-        return typeObj.getMethods().stream().filter(this::isMethodVisible).map(this::getMethodString)
-                .collect(Collectors.joining("\n"));
+    private List<String> getAllMethodsStrings(TypeModel typeObj) {
+        return typeObj.methods().stream().filter(method -> isMethodVisible(method.visibility()))
+                .map(method -> getMethodString(method, typeObj.kind() == TypeKind.INTERFACE)).toList();
     }
 
-    private String getMethodString(CtMethod<?> method) {
-        return getVisibilityString(method)
-                + concat(getStaticAbstractString(method, method.getDeclaringType().isInterface()),
-                        getTypeString(method), method.getSimpleName())
+    private String getMethodString(ExecutableModel method, boolean isInterfaceMethod) {
+        return getVisibilityString(method.visibility())
+                + concat(getStaticAbstractString(method, isInterfaceMethod), getTypeString(method.type()),
+                        method.name())
                 + getAllParametersString(method);
     }
 
-    private String getAllParametersString(CtExecutable<?> executable) {
+    private String getAllParametersString(ExecutableModel executable) {
         return "("
-                + executable.getParameters().stream().map(this::getParamreterString).collect(Collectors.joining(", "))
+                + executable.parameters().stream().map(this::getParamreterString).collect(Collectors.joining(", "))
                 + ")";
     }
 
-    private String getParamreterString(CtParameter<?> parameter) {
-        return concat(getTypeString(parameter), parameter.getSimpleName());
+    private String getParamreterString(ParameterModel parameter) {
+        return concat(getTypeString(parameter.type()), parameter.name());
     }
 
-    private String getAllFieldsString(CtType<?> classObj) {
-        return classObj.getFields().stream().filter(this::isFieldVisible).map(this::getFieldString)
-                .collect(Collectors.joining("\n"));
+    private List<String> getAllFieldsStrings(TypeModel classObj) {
+        return classObj.fields().stream().filter(field -> isFieldVisible(field.visibility()))
+                .map(this::getFieldString).toList();
     }
 
-    private String getFieldString(CtField<?> field) {
-        return getVisibilityString(field) + getTypeString(field) + " " + field.getSimpleName();
+    private String getFieldString(FieldModel field) {
+        return getVisibilityString(field.visibility()) + getTypeString(field.type()) + " " + field.name();
     }
 
-    private String getTypeString(CtTypedElement<?> typedElement) {
-        return typedElement.getType().getSimpleName() + getGenericsString(typedElement.getType());
+    private String getTypeString(TypeRef type) {
+        if (type == null)
+            return "";
+        return type.simpleName() + getGenericsString(type);
     }
 
-    private String getGenericsString(CtTypeReference<?> reference) {
-        if (reference.getActualTypeArguments().isEmpty())
+    private String getGenericsString(TypeRef reference) {
+        if (reference.typeArguments().isEmpty())
             return "";
-        return "<" + reference.getActualTypeArguments().stream().map(CtTypeReference::getSimpleName)
+        return "<" + reference.typeArguments().stream().map(TypeRef::simpleName)
                 .collect(Collectors.joining(", ")) + ">";
     }
 
-    private String getVisibilityString(CtModifiable modifiable) {
-        if (modifiable == null || modifiable.getVisibility() == null)
-            return "~";
-        return switch (modifiable.getVisibility()) {
-            case PRIVATE -> "-";
-            case PROTECTED -> "#";
-            case PUBLIC -> "+";
-            default -> "~"; // if no visibility modifier is present, assume it is package private
-        };
-    }
 
-    private String getStaticAbstractString(CtModifiable modifiable, boolean isInterfaceField) {
+    private String getStaticAbstractString(ExecutableModel executable, boolean isInterfaceMethod) {
         StringBuilder builder = new StringBuilder();
-        if (modifiable.isAbstract() && !isInterfaceField) {
+        if (executable.isAbstract() && !isInterfaceMethod) {
             builder.append("{abstract}");
         }
-        if (modifiable.isStatic()) {
+        if (executable.isStatic()) {
             builder.append("{static}");
         }
         return builder.toString();
@@ -0,0 +1,371 @@
+package ninja.seppli.umlgenerator.renderer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ninja.seppli.umlgenerator.model.ExecutableModel;
+import ninja.seppli.umlgenerator.model.FieldModel;
+import ninja.seppli.umlgenerator.model.ParameterModel;
+import ninja.seppli.umlgenerator.model.TypeModel;
+import ninja.seppli.umlgenerator.model.TypeRef;
+import ninja.seppli.umlgenerator.options.VisibilityLevel;
+
+/**
+ * Caches the rendered fragments of types, so a type which didn't change since
+ * the last render isn't formatted again. A fragment is keyed by a hash of the
+ * structure of its type, without the nested types, and of everything else the
+ * fragment depends on, like the renderer and the visibility levels.
+ *
+ * The fragments are persisted to a file, so the next build can use them as
+ * well. Only the fragments used by the last render are kept. The file starts
+ * with a format version, a file of another version is ignored. The cache can
+ * be used by multiple threads.
+ */
+public class RenderFragmentCache {
+    /**
+     * the first int of a cache file
+     */
+    private static final int MAGIC = 0x554d4c52;
+
+    /**
+     * the version of the format, a file of another version is ignored
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * logger
+     */
+    private Logger logger = LoggerFactory.getLogger(getClass());
+
+    /**
+     * the file the fragments are persisted to
+     */
+    private Path file;
+
+    /**
+     * the fragments by their key
+     */
+    private Map<String, String> fragments = new ConcurrentHashMap<>();
+
+    /**
+     * the keys of the fragments used by the current render
+     */
+    private Set<String> usedKeys = ConcurrentHashMap.newKeySet();
+
+    /**
+     * if the file was read already
+     */
+    private boolean loaded = false;
+
+    /**
+     * if fragments were added since the file was read or written
+     */
+    private volatile boolean changed = false;
+
+    /**
+     * how many fragments the current render took from the cache
+     */
+    private AtomicInteger hitCount = new AtomicInteger();
+
+    /**
+     * how many fragments the current render had to render
+     */
+    private AtomicInteger missCount = new AtomicInteger();
+
+    /**
+     * Constructor
+     *
+     * @param file the file the fragments are persisted to
+     */
+    public RenderFragmentCache(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @return the file the fragments are persisted to
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return how many fragments the last render took from the cache
+     */
+    public int getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return how many fragments the last render had to render
+     */
+    public int getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Prepares the cache for a render, the file is read before the first one
+     */
+    void startRender() {
+        if (!loaded) {
+            load();
+            loaded = true;
+        }
+        usedKeys.clear();
+        hitCount.set(0);
+        missCount.set(0);
+    }
+
+    /**
+     * Returns the cached fragment of the given key and keeps it for the next
+     * render
+     *
+     * @param key the key
+     * @return the fragment, null if it isn't cached
+     */
+    String get(String key) {
+        usedKeys.add(key);
+        String fragment = fragments.get(key);
+        (fragment != null ? hitCount : missCount).incrementAndGet();
+        return fragment;
+    }
+
+    /**
+     * @param key      the key
+     * @param fragment the rendered fragment
+     */
+    void put(String key, String fragment) {
+        fragments.put(key, fragment);
+        changed = true;
+    }
+
+    /**
+     * Drops the fragments the render didn't use and writes the file if the
+     * fragments changed. A file which couldn't be written is only logged, the
+     * next render renders the missing fragments again.
+     */
+    void endRender() {
+        if (fragments.keySet().retainAll(usedKeys)) {
+            changed = true;
+        }
+        if (!changed)
+            return;
+        try {
+            write();
+            changed = false;
+        } catch (IOException e) {
+            logger.warn("Couldn't write the render cache \"{}\"", file, e);
+        }
+    }
+
+    /**
+     * Computes the key of a type's fragment, the qualified name of the type and
+     * a 64 bit hash of its structure and the context. A cryptographic hash
+     * would take about as long as rendering the type.
+     *
+     * @param type    the type
+     * @param context everything else the fragment depends on
+     * @return the key
+     */
+    static String getKey(TypeModel type, String context) {
+        StructureHash hash = new StructureHash();
+        hash.add(context);
+        addType(hash, type);
+        return type.qualifiedName() + "@" + Long.toHexString(hash.getValue());
+    }
+
+    /**
+     * Reads the file, a missing, broken or outdated file leaves the cache empty
+     */
+    private void load() {
+        if (!Files.isRegularFile(file))
+            return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION)
+                return;
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                String key = in.readUTF();
+                byte[] fragment = new byte[in.readInt()];
+                in.readFully(fragment);
+                fragments.put(key, new String(fragment, StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            logger.warn("Couldn't read the render cache \"{}\", all types are rendered", file, e);
+            fragments.clear();
+        }
+    }
+
+    /**
+     * Writes the file next to the cache file and moves it over it, so a reader
+     * never sees a partially written file
+     *
+     * @throws IOException if the file couldn't be written
+     */
+    private void write() throws IOException {
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            Map<String, String> snapshot = Map.copyOf(fragments);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<String, String> entry : snapshot.entrySet()) {
+                out.writeUTF(entry.getKey());
+                // a fragment may be longer than writeUTF allows
+                byte[] fragment = entry.getValue().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(fragment.length);
+                out.write(fragment);
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Adds the structure of a type without its nested types to a hash
+     *
+     * @param hash the hash
+     * @param type the type
+     */
+    private static void addType(StructureHash hash, TypeModel type) {
+        hash.add(type.kind().name());
+        hash.add(type.qualifiedName());
+        hash.add(type.simpleName());
+        addVisibility(hash, type.visibility());
+        hash.add(type.isAbstract());
+        hash.add(type.typeParameters().size());
+        for (String typeParameter : type.typeParameters()) {
+            hash.add(typeParameter);
+        }
+        addTypeRef(hash, type.superclass());
+        addTypeRefs(hash, type.superInterfaces());
+        hash.add(type.fields().size());
+        for (FieldModel field : type.fields()) {
+            hash.add(field.name());
+            addVisibility(hash, field.visibility());
+            hash.add(field.isStatic());
+            addTypeRef(hash, field.type());
+        }
+        addExecutables(hash, type.constructors());
+        addExecutables(hash, type.methods());
+    }
+
+    /**
+     * @param hash        the hash
+     * @param executables the constructors or methods to add
+     */
+    private static void addExecutables(StructureHash hash, List<ExecutableModel> executables) {
+        hash.add(executables.size());
+        for (ExecutableModel executable : executables) {
+            hash.add(executable.name());
+            addVisibility(hash, executable.visibility());
+            hash.add(executable.isStatic());
+            hash.add(executable.isAbstract());
+            addTypeRef(hash, executable.type());
+            hash.add(executable.parameters().size());
+            for (ParameterModel parameter : executable.parameters()) {
+                hash.add(parameter.name());
+                addTypeRef(hash, parameter.type());
+            }
+        }
+    }
+
+    /**
+     * @param hash the hash
+     * @param refs the type references to add
+     */
+    private static void addTypeRefs(StructureHash hash, List<TypeRef> refs) {
+        hash.add(refs.size());
+        for (TypeRef ref : refs) {
+            addTypeRef(hash, ref);
+        }
+    }
+
+    /**
+     * @param hash the hash
+     * @param ref  the type reference to add, may be null
+     */
+    private static void addTypeRef(StructureHash hash, TypeRef ref) {
+        hash.add(ref != null);
+        if (ref == null)
+            return;
+        hash.add(ref.qualifiedName());
+        hash.add(ref.simpleName());
+        addTypeRefs(hash, ref.typeArguments());
+    }
+
+    /**
+     * @param hash       the hash
+     * @param visibility the visibility to add, may be null
+     */
+    private static void addVisibility(StructureHash hash, VisibilityLevel visibility) {
+        hash.add(visibility == null ? -1 : visibility.ordinal());
+    }
+
+    /**
+     * A 64 bit FNV-1a hash. Every string is added with its length, so the
+     * boundaries between the values are part of the hash.
+     */
+    private static class StructureHash {
+        /**
+         * the FNV prime of 64 bit hashes
+         */
+        private static final long PRIME = 0x100000001b3L;
+
+        /**
+         * the current value
+         */
+        private long value = 0xcbf29ce484222325L;
+
+        /**
+         * @return the current value
+         */
+        long getValue() {
+            return value;
+        }
+
+        /**
+         * @param string the string to add, may be null
+         */
+        void add(String string) {
+            if (string == null) {
+                add(-1);
+                return;
+            }
+            add(string.length());
+            for (int i = 0; i < string.length(); i++) {
+                value = (value ^ string.charAt(i)) * PRIME;
+            }
+        }
+
+        /**
+         * @param number the number to add
+         */
+        void add(int number) {
+            value = (value ^ number) * PRIME;
+        }
+
+        /**
+         * @param flag the flag to add
+         */
+        void add(boolean flag) {
+            add(flag ? 1 : 0);
+        }
+    }
+}
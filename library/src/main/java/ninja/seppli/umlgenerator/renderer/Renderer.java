@@ -1,12 +1,29 @@
 package ninja.seppli.umlgenerator.renderer;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import ninja.seppli.umlgenerator.model.DiagramModel;
 import ninja.seppli.umlgenerator.options.UmlOptions;
+import ninja.seppli.umlgenerator.scanner.DiagramModelExtractor;
 import spoon.reflect.CtModel;
 
 /**
- * Renders a given {@link DiagramModel} to a string
+ * Renders a given {@link DiagramModel} to a string or streams it to an
+ * {@link Appendable}
  */
 public interface Renderer {
+    /**
+     * Renders the given model to the given output. The diagram is written type
+     * by type, so it is never held in memory as a whole.
+     * 
+     * @param model   the model to render
+     * @param options the options
+     * @param out     the output the diagram is written to
+     * @throws IOException if the output couldn't be written
+     */
+    void render(DiagramModel model, UmlOptions options, Appendable out) throws IOException;
+
     /**
      * Renders the given model to a string
      * 
@@ -14,5 +31,27 @@ public interface Renderer {
      * @param options the options
      * @return the string representation
      */
-    String render(CtModel model, UmlOptions options);
+    default String render(DiagramModel model, UmlOptions options) {
+        StringBuilder builder = new StringBuilder();
+        try {
+            render(model, options, builder);
+        } catch (IOException e) {
+            // appending to a string builder never fails
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Extracts the {@link DiagramModel} of the given spoon model and renders it
+     * to a string
+     * 
+     * @param model   the spoon model to render
+     * @param options the options
+     * @return the string representation
+     * @see DiagramModelExtractor
+     */
+    default String render(CtModel model, UmlOptions options) {
+        return render(DiagramModelExtractor.extract(model), options);
+    }
 }
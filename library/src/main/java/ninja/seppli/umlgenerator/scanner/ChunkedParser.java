@@ -0,0 +1,217 @@
+package ninja.seppli.umlgenerator.scanner;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ToLongFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ninja.seppli.umlgenerator.model.PackageModel;
+import spoon.SpoonException;
+
+/**
+ * Parses source files in batches of packages so that the heap needed for the
+ * spoon models stays within a budget. Only one batch is parsed at a time, its
+ * types are extracted and its model is dropped before the next batch is
+ * parsed. The files of a package are kept in the same batch, unless the
+ * package alone is bigger than a batch.
+ *
+ * How many source bytes fit into a batch is estimated from how much heap a
+ * source byte needs. The estimate starts at
+ * {@link #INITIAL_HEAP_PER_SOURCE_BYTE} and is corrected after every batch with
+ * the measured peak heap, so the batches adapt to the sources and to the
+ * launcher. Like every measurement of the heap, this includes garbage which
+ * wasn't collected yet, so the estimate errs on the side of smaller batches.
+ */
+public class ChunkedParser {
+    /**
+     * how many bytes of heap a source byte needs before anything was measured,
+     * the models of big source trees need about 30 bytes
+     */
+    static final double INITIAL_HEAP_PER_SOURCE_BYTE = 32;
+
+    /**
+     * the lower bound of the estimate, so that a batch which happened to not
+     * grow the heap doesn't make the next batch unbounded
+     */
+    static final double MIN_HEAP_PER_SOURCE_BYTE = 4;
+
+    /**
+     * logger
+     */
+    private Logger logger = LoggerFactory.getLogger(getClass());
+
+    /**
+     * parses the files of a batch
+     */
+    private ShardedParser parser;
+
+    /**
+     * how many bytes of heap a batch may need
+     */
+    private long heapBudget;
+
+    /**
+     * returns the size of a file in bytes
+     */
+    private ToLongFunction<Path> fileSizes;
+
+    /**
+     * the statistics the peak heap of every batch is measured with
+     */
+    private ScanStatistics statistics;
+
+    /**
+     * the current estimate of how many bytes of heap a source byte needs
+     */
+    private double heapPerSourceByte = INITIAL_HEAP_PER_SOURCE_BYTE;
+
+    /**
+     * Constructor
+     *
+     * @param parser     parses the files of a batch
+     * @param heapBudget how many bytes of heap a batch may need
+     * @param fileSizes  returns the size of a file in bytes
+     * @param statistics the statistics of the scan, the peak heap of every batch
+     *                   is measured with them
+     * @throws IllegalArgumentException if the budget is less than 1
+     */
+    public ChunkedParser(ShardedParser parser, long heapBudget, ToLongFunction<Path> fileSizes,
+            ScanStatistics statistics) {
+        if (heapBudget < 1)
+            throw new IllegalArgumentException("The heap budget has to be at least 1 but was " + heapBudget);
+        this.parser = parser;
+        this.heapBudget = heapBudget;
+        this.fileSizes = fileSizes;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Parses the given files batch by batch
+     *
+     * @param files the files to parse
+     * @return a fragment with the declared types of every file by the path of the
+     *         file
+     * @throws SpoonException if a batch couldn't be parsed
+     */
+    public Map<Path, PackageModel> parse(Collection<Path> files) {
+        Deque<List<Path>> packages = groupByPackage(files);
+        Map<Path, PackageModel> fragments = new HashMap<>();
+        int batchCount = 0;
+        while (!packages.isEmpty()) {
+            long batchBytes = getBatchBytes();
+            List<Path> batch = nextBatch(packages, batchBytes);
+            long sourceBytes = batch.stream().mapToLong(fileSizes).sum();
+
+            statistics.resetPeakHeap();
+            long usedHeap = ScanStatistics.getUsedHeap();
+            fragments.putAll(parser.parse(batch));
+            long batchHeap = statistics.resetPeakHeap() - usedHeap;
+            batchCount++;
+            logger.debug("parsed batch {} with {} files ({} bytes) using {} bytes of heap", batchCount,
+                    batch.size(), sourceBytes, batchHeap);
+            updateEstimate(sourceBytes, batchHeap);
+        }
+        logger.info("parsed {} files in {} batches", files.size(), batchCount);
+        return fragments;
+    }
+
+    /**
+     * @return how many source bytes fit into the next batch according to the
+     *         current estimate
+     */
+    long getBatchBytes() {
+        return Math.max(1, (long) (heapBudget / heapPerSourceByte));
+    }
+
+    /**
+     * Corrects the estimate with the measurement of a batch. The measurement is
+     * averaged with the previous estimate, so a single outlier doesn't change the
+     * batch size too much.
+     *
+     * @param sourceBytes how many source bytes the batch had
+     * @param batchHeap   how many bytes of heap parsing the batch needed
+     */
+    void updateEstimate(long sourceBytes, long batchHeap) {
+        if (sourceBytes <= 0 || batchHeap <= 0)
+            return;
+        double measured = (double) batchHeap / sourceBytes;
+        heapPerSourceByte = Math.max(MIN_HEAP_PER_SOURCE_BYTE, (heapPerSourceByte + measured) / 2);
+    }
+
+    /**
+     * Sorts the files in the order {@link #parse(Collection)} parses them, so
+     * that they can be read ahead in this order
+     *
+     * @param files the files
+     * @return the files package by package, sorted by the directory and the path
+     */
+    public List<Path> sortForParsing(Collection<Path> files) {
+        List<Path> sorted = new ArrayList<>();
+        groupByPackage(files).forEach(sorted::addAll);
+        return sorted;
+    }
+
+    /**
+     * Groups the files by their directory, which is their package
+     *
+     * @param files the files
+     * @return the files of every package, sorted by the directory and the path
+     */
+    Deque<List<Path>> groupByPackage(Collection<Path> files) {
+        Map<Path, List<Path>> packages = new TreeMap<>();
+        for (Path file : files) {
+            Path directory = file.getParent() == null ? file : file.getParent();
+            packages.computeIfAbsent(directory, key -> new ArrayList<>()).add(file);
+        }
+        packages.values().forEach(packageFiles -> packageFiles.sort(null));
+        return new ArrayDeque<>(packages.values());
+    }
+
+    /**
+     * Takes the packages of the next batch. Whole packages are taken as long as
+     * they fit. If the first package is bigger than a batch, it is split and the
+     * rest of it stays for the next batch. A batch has at least one file.
+     *
+     * @param packages   the packages which weren't parsed yet
+     * @param batchBytes how many source bytes fit into the batch
+     * @return the files of the batch
+     */
+    List<Path> nextBatch(Deque<List<Path>> packages, long batchBytes) {
+        List<Path> batch = new ArrayList<>();
+        long bytes = 0;
+        while (!packages.isEmpty()) {
+            List<Path> packageFiles = packages.peekFirst();
+            long packageBytes = packageFiles.stream().mapToLong(fileSizes).sum();
+            if (bytes + packageBytes <= batchBytes) {
+                batch.addAll(packages.pollFirst());
+                bytes += packageBytes;
+                continue;
+            }
+            if (!batch.isEmpty())
+                break;
+            // the package is too big on its own
+            int taken = 0;
+            while (taken < packageFiles.size()
+                    && (taken == 0 || bytes + fileSizes.applyAsLong(packageFiles.get(taken)) <= batchBytes)) {
+                bytes += fileSizes.applyAsLong(packageFiles.get(taken));
+                taken++;
+            }
+            batch.addAll(packageFiles.subList(0, taken));
+            packages.pollFirst();
+            if (taken < packageFiles.size()) {
+                packages.addFirst(new ArrayList<>(packageFiles.subList(taken, packageFiles.size())));
+            }
+            break;
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,400 @@
+package ninja.seppli.umlgenerator.scanner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A symbol table of the classes on a compile classpath. Every class is mapped
+ * from its internal name, like {@code java/util/Map$Entry}, to the jar or
+ * class directory which contains it, so looking up a class is a single hash
+ * lookup instead of a search through every jar.
+ *
+ * Indexing a jar means reading all of its entries, so the index of the jars
+ * can be persisted to an index file. A jar whose size and modification time
+ * didn't change since it was indexed is read from the index file instead of
+ * being opened again. Class directories change while developing and are
+ * always indexed anew.
+ *
+ * If a class is on the classpath more than once, the first one wins, like for
+ * the compiler. The jars are kept open until the index is closed.
+ */
+public class ClasspathIndex implements Closeable {
+    /**
+     * the first int of an index file
+     */
+    private static final int MAGIC = 0x554d4c43;
+
+    /**
+     * the version of the index file format, a file of another version is
+     * ignored
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * logger
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ClasspathIndex.class);
+
+    /**
+     * the jars and class directories, in the order of the classpath
+     */
+    private List<Path> entries;
+
+    /**
+     * the position of the classpath entry containing a class by the internal
+     * name of the class
+     */
+    private Map<String, Integer> types = new HashMap<>();
+
+    /**
+     * the internal names of all packages, including the parents of packages
+     * which only contain packages
+     */
+    private Set<String> packages = new HashSet<>();
+
+    /**
+     * the opened jars by their position on the classpath
+     */
+    private Map<Integer, ZipFile> openJars = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor
+     *
+     * @param entries the jars and class directories
+     */
+    private ClasspathIndex(List<Path> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Indexes the given classpath. Entries which don't exist or can't be read
+     * are skipped.
+     *
+     * @param classpath the jars and class directories of the classpath
+     * @param indexFile the file the index of the jars is persisted to and read
+     *                  from, null if it shouldn't be persisted
+     * @return the index
+     */
+    public static ClasspathIndex create(List<Path> classpath, Path indexFile) {
+        List<Path> entries = classpath.stream().map(Path::toAbsolutePath).map(Path::normalize).distinct()
+                .collect(Collectors.toList());
+        ClasspathIndex index = new ClasspathIndex(entries);
+        Map<Path, JarIndex> persistedJars = indexFile == null ? Map.of() : readIndexFile(indexFile);
+        List<JarIndex> jars = new ArrayList<>();
+        boolean changed = false;
+        for (int i = 0; i < entries.size(); i++) {
+            Path entry = entries.get(i);
+            try {
+                if (Files.isDirectory(entry)) {
+                    index.addTypes(i, indexDirectory(entry));
+                    continue;
+                }
+                JarIndex jar = persistedJars.get(entry);
+                if (jar == null || !jar.isUpToDate()) {
+                    jar = JarIndex.of(entry);
+                    changed = true;
+                }
+                jars.add(jar);
+                index.addTypes(i, jar.types());
+            } catch (NoSuchFileException e) {
+                logger.debug("Classpath entry \"{}\" doesn't exist", entry);
+            } catch (IOException e) {
+                logger.warn("Couldn't index classpath entry \"{}\"", entry, e);
+            }
+        }
+        if (indexFile != null && (changed || jars.size() != persistedJars.size())) {
+            writeIndexFile(indexFile, jars);
+        }
+        logger.debug("indexed {} classes of {} classpath entries", index.types.size(), entries.size());
+        return index;
+    }
+
+    /**
+     * @return the jars and class directories, in the order of the classpath
+     */
+    public List<Path> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return how many classes are indexed
+     */
+    public int size() {
+        return types.size();
+    }
+
+    /**
+     * @param internalName the internal name of a class, like
+     *                     {@code java/util/Map$Entry}
+     * @return if the class is on the classpath
+     */
+    public boolean containsType(String internalName) {
+        return types.containsKey(internalName);
+    }
+
+    /**
+     * @param internalName the internal name of a package, like
+     *                     {@code java/util}
+     * @return if the package is on the classpath
+     */
+    public boolean isPackage(String internalName) {
+        return packages.contains(internalName);
+    }
+
+    /**
+     * Reads the class file of a class
+     *
+     * @param internalName the internal name of the class
+     * @return the content of the class file or null if the class isn't on the
+     *         classpath or couldn't be read
+     */
+    public byte[] readClass(String internalName) {
+        Integer position = types.get(internalName);
+        if (position == null)
+            return null;
+        String entryName = internalName + ".class";
+        Path entry = entries.get(position);
+        try {
+            if (Files.isDirectory(entry))
+                return Files.readAllBytes(entry.resolve(entryName));
+            ZipFile jar = openJar(position);
+            ZipEntry zipEntry = jar.getEntry(entryName);
+            if (zipEntry == null)
+                return null;
+            try (InputStream in = jar.getInputStream(zipEntry)) {
+                return in.readAllBytes();
+            }
+        } catch (IOException e) {
+            logger.debug("Couldn't read class \"{}\" from \"{}\"", internalName, entry, e);
+            return null;
+        }
+    }
+
+    /**
+     * Closes the opened jars
+     */
+    @Override
+    public void close() throws IOException {
+        for (ZipFile jar : openJars.values()) {
+            jar.close();
+        }
+        openJars.clear();
+    }
+
+    /**
+     * Opens a jar, every jar is only opened once
+     *
+     * @param position the position of the jar on the classpath
+     * @return the opened jar
+     * @throws IOException if the jar couldn't be opened
+     */
+    private ZipFile openJar(int position) throws IOException {
+        ZipFile jar = openJars.get(position);
+        if (jar != null)
+            return jar;
+        ZipFile newJar = new ZipFile(entries.get(position).toFile());
+        jar = openJars.putIfAbsent(position, newJar);
+        if (jar == null)
+            return newJar;
+        // another thread was faster
+        newJar.close();
+        return jar;
+    }
+
+    /**
+     * Adds the classes of a classpath entry, classes which are already known
+     * are kept
+     *
+     * @param position      the position of the entry on the classpath
+     * @param internalNames the internal names of the classes in the entry
+     */
+    private void addTypes(int position, List<String> internalNames) {
+        for (String internalName : internalNames) {
+            types.putIfAbsent(internalName, position);
+            int separator = internalName.lastIndexOf('/');
+            while (separator > 0 && packages.add(internalName.substring(0, separator))) {
+                separator = internalName.lastIndexOf('/', separator - 1);
+            }
+        }
+    }
+
+    /**
+     * Converts the path of a class file to the internal name of the class
+     *
+     * @param entryName the path of the class file relative to the root of the
+     *                  jar or class directory, separated by {@code /}
+     * @return the internal name or null if the file isn't the class file of a
+     *         type, like a {@code module-info.class} or a versioned class of a
+     *         multi-release jar
+     */
+    static String toInternalName(String entryName) {
+        if (!entryName.endsWith(".class") || entryName.startsWith("META-INF/"))
+            return null;
+        String internalName = entryName.substring(0, entryName.length() - ".class".length());
+        if (internalName.endsWith("module-info") || internalName.endsWith("package-info"))
+            return null;
+        return internalName;
+    }
+
+    /**
+     * Indexes a class directory
+     *
+     * @param directory the directory
+     * @return the internal names of the classes in it
+     * @throws IOException if the directory couldn't be read
+     */
+    private static List<String> indexDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile)
+                    .map(file -> toInternalName(directory.relativize(file).toString().replace('\\', '/')))
+                    .filter(name -> name != null).sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Reads the persisted index of the jars
+     *
+     * @param indexFile the index file
+     * @return the index of every jar by its path, empty if the file doesn't exist
+     *         or couldn't be read
+     */
+    private static Map<Path, JarIndex> readIndexFile(Path indexFile) {
+        if (!Files.isRegularFile(indexFile))
+            return Map.of();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION)
+                return Map.of();
+            Map<Path, JarIndex> jars = new HashMap<>();
+            int jarCount = in.readInt();
+            for (int i = 0; i < jarCount; i++) {
+                JarIndex jar = JarIndex.read(in);
+                jars.put(jar.path(), jar);
+            }
+            return jars;
+        } catch (IOException e) {
+            logger.warn("Couldn't read classpath index \"{}\", the classpath is indexed again", indexFile, e);
+            return Map.of();
+        }
+    }
+
+    /**
+     * Persists the index of the jars
+     *
+     * @param indexFile the index file
+     * @param jars      the index of every jar
+     */
+    private static void writeIndexFile(Path indexFile, List<JarIndex> jars) {
+        try {
+            if (indexFile.getParent() != null) {
+                Files.createDirectories(indexFile.getParent());
+            }
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(indexFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(jars.size());
+                for (JarIndex jar : jars) {
+                    jar.write(out);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Couldn't write classpath index \"{}\"", indexFile, e);
+        }
+    }
+
+    /**
+     * The classes of a jar
+     *
+     * @param path         the absolute path of the jar
+     * @param size         the size of the jar when it was indexed
+     * @param lastModified the modification time of the jar in milliseconds when
+     *                     it was indexed
+     * @param types        the internal names of the classes in the jar
+     */
+    private record JarIndex(Path path, long size, long lastModified, List<String> types) {
+        /**
+         * Indexes a jar
+         *
+         * @param jar the jar
+         * @return the index of the jar
+         * @throws IOException if the jar couldn't be read
+         */
+        static JarIndex of(Path jar) throws IOException {
+            long size = Files.size(jar);
+            long lastModified = Files.getLastModifiedTime(jar).toMillis();
+            try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+                List<String> types = zipFile.stream().map(ZipEntry::getName).map(ClasspathIndex::toInternalName)
+                        .filter(name -> name != null).sorted().collect(Collectors.toList());
+                return new JarIndex(jar, size, lastModified, types);
+            }
+        }
+
+        /**
+         * @return if the jar wasn't changed since it was indexed
+         */
+        boolean isUpToDate() {
+            try {
+                return Files.size(path) == size && Files.getLastModifiedTime(path).toMillis() == lastModified;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Reads a persisted index
+         *
+         * @param in the stream to read from
+         * @return the index
+         * @throws IOException if it couldn't be read
+         */
+        static JarIndex read(DataInputStream in) throws IOException {
+            Path path = Path.of(in.readUTF());
+            long size = in.readLong();
+            long lastModified = in.readLong();
+            int typeCount = in.readInt();
+            List<String> types = new ArrayList<>(typeCount);
+            for (int i = 0; i < typeCount; i++) {
+                types.add(in.readUTF());
+            }
+            return new JarIndex(path, size, lastModified, types);
+        }
+
+        /**
+         * Persists the index
+         *
+         * @param out the stream to write to
+         * @throws IOException if it couldn't be written
+         */
+        void write(DataOutputStream out) throws IOException {
+            out.writeUTF(path.toString());
+            out.writeLong(size);
+            out.writeLong(lastModified);
+            out.writeInt(types.size());
+            for (String type : types) {
+                out.writeUTF(type);
+            }
+        }
+    }
+}
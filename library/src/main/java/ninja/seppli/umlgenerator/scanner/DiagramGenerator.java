@@ -3,30 +3,79 @@
  */
 package ninja.seppli.umlgenerator.scanner;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import ninja.seppli.umlgenerator.jfr.FileParseEventProgress;
+import ninja.seppli.umlgenerator.model.DiagramModel;
+import ninja.seppli.umlgenerator.model.DiagramModelMerger;
+import ninja.seppli.umlgenerator.model.PackageModel;
 import ninja.seppli.umlgenerator.options.GeneralUmlOptions;
 import ninja.seppli.umlgenerator.options.UmlOptions;
 import ninja.seppli.umlgenerator.renderer.PlantumlRenderer;
+import ninja.seppli.umlgenerator.scanner.ScanStatistics.Phase;
+import ninja.seppli.umlgenerator.scanner.ScanStatistics.PhaseTimer;
+import ninja.seppli.umlgenerator.scanner.SourcePrefetcher.FileStamp;
+import ninja.seppli.umlgenerator.scanner.jdt.ClasspathIndexLauncher;
+import ninja.seppli.umlgenerator.scanner.jdt.DeclarationsOnlyLauncher;
 import spoon.Launcher;
-import spoon.processing.ProcessingManager;
+import spoon.OutputType;
+import spoon.compiler.SpoonResource;
+import spoon.processing.Processor;
 import spoon.reflect.CtModel;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtCompilationUnit;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.CompilationUnitFactory;
 import spoon.reflect.factory.Factory;
 import spoon.support.Level;
-import spoon.support.QueueProcessingManager;
+import spoon.support.compiler.FileSystemFile;
+import spoon.support.compiler.VirtualFile;
 
 /**
  * Generates a {@link DiagramModel} from java source files
  */
-public class DiagramGenerator {
+public class DiagramGenerator implements DiagramScanner {
+    /**
+     * how long spoon may take for one file by default
+     */
+    public static final Duration DEFAULT_FILE_TIMEOUT = Duration.ofSeconds(60);
+
+    /**
+     * how many source files are read at the same time by default. Reading
+     * mostly waits for the disk, so more files than processors are read.
+     */
+    public static final int DEFAULT_READ_PARALLELISM = 16;
+
+    /**
+     * the source files read ahead of the parser may take this fraction of the
+     * heap budget. A source byte needs at least
+     * {@link ChunkedParser#MIN_HEAP_PER_SOURCE_BYTE four bytes} of heap, so this
+     * holds at least the next batch.
+     */
+    static final int READ_AHEAD_SHARE = 4;
+
     /**
      * logger
      */
@@ -39,15 +88,145 @@ public class DiagramGenerator {
     // PackageList.createFromPackagePaths("java.lang");
 
     /**
-     * the paths which should be scanned
+     * the absolute and normalized paths which should be scanned
      */
-    private Set<Path> pathList = new HashSet<>();
+    private Set<Path> pathList = new TreeSet<>();
 
     /**
      * the options
      */
     private GeneralUmlOptions options;
 
+    /**
+     * if the scanned sources should be pretty-printed to
+     * {@link #sourceOutputDirectory} while scanning
+     */
+    private boolean prettyPrintSources = false;
+
+    /**
+     * the directory spoon pretty-prints the scanned sources to
+     */
+    private Path sourceOutputDirectory = Paths.get("spooned");
+
+    /**
+     * if only the declarations are parsed and method bodies are skipped
+     */
+    private boolean declarationsOnly = false;
+
+    /**
+     * if the members hidden by the visibility levels of the options are skipped
+     * while extracting
+     */
+    private boolean skipHiddenMembers = false;
+
+    /**
+     * the {@link #getCacheFingerprint() fingerprint} the cached fragments were
+     * extracted with
+     */
+    private String cacheFingerprint;
+
+    /**
+     * the processors which are run on the built model
+     */
+    private List<Processor<?>> processors = new ArrayList<>();
+
+    /**
+     * how many shards are parsed at the same time by {@link #generate()}
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * how many files a shard parsed by {@link #generate()} has at least
+     */
+    private int minShardSize = 50;
+
+    /**
+     * how many bytes of heap the spoon models parsed by {@link #generate()} may
+     * need at the same time, 0 if all changed files are parsed at once
+     */
+    private long heapBudget = 0;
+
+    /**
+     * how many source files are read at the same time
+     */
+    private int readParallelism = DEFAULT_READ_PARALLELISM;
+
+    /**
+     * the jars and class directories the types referenced by the sources are
+     * resolved from
+     */
+    private List<Path> classpath = new ArrayList<>();
+
+    /**
+     * the file the index of the classpath is persisted to, null if it isn't
+     * persisted
+     */
+    private Path classpathIndexFile;
+
+    /**
+     * the index of {@link #classpath}, null if there is no classpath or it
+     * wasn't indexed yet
+     */
+    private ClasspathIndex classpathIndex;
+
+    /**
+     * the content hashes and declared types of the files scanned by
+     * {@link #scan()}
+     */
+    private SourceCache<CtType<?>> sourceCache = new SourceCache<>();
+
+    /**
+     * the content hashes and extracted fragments of the files parsed by
+     * {@link #generate()}
+     */
+    private SourceCache<PackageModel> fragmentCache = new SourceCache<>();
+
+    /**
+     * the file the fragments extracted by {@link #generate()} are persisted to,
+     * null if they aren't persisted
+     */
+    private Path cacheFile;
+
+    /**
+     * the size, modification time and content hash of every scanned file which
+     * isn't in an archive
+     */
+    private Map<Path, FileStamp> fileStamps = new HashMap<>();
+
+    /**
+     * the content hash of every quarantined file by its path, a file is
+     * quarantined until its content changes
+     */
+    private Map<Path, String> quarantine = new HashMap<>();
+
+    /**
+     * how long spoon may take for one file in {@link #generate()}, null if there
+     * is no limit
+     */
+    private Duration fileTimeout = DEFAULT_FILE_TIMEOUT;
+
+    /**
+     * the contents of the sources in the added archives by their virtual path,
+     * only kept from the file discovery until the changed sources are parsed
+     */
+    private Map<Path, String> archiveSources = new HashMap<>();
+
+    /**
+     * reads the changed source files ahead of the parser, so spoon doesn't read
+     * them again, only kept while the added files are scanned
+     */
+    private SourcePrefetcher prefetcher;
+
+    /**
+     * the statistics of the last scan, null before the first scan
+     */
+    private ScanStatistics statistics;
+
+    /**
+     * the launcher holding the model of the last scan, null before the first scan
+     */
+    private Launcher launcher;
+
     /**
      * Constructor
      */
@@ -70,6 +249,327 @@ public class DiagramGenerator {
         return options;
     }
 
+    /**
+     * @return if the scanned sources are pretty-printed while scanning
+     */
+    public boolean isPrettyPrintSources() {
+        return prettyPrintSources;
+    }
+
+    /**
+     * Sets if spoon should pretty-print every scanned source file to the
+     * {@link #getSourceOutputDirectory() source output directory}. By default,
+     * only the model is built and nothing is written to disk.
+     * 
+     * @param prettyPrintSources if the sources should be pretty-printed
+     * @returns this instance for a fluent like api
+     */
+    public DiagramGenerator setPrettyPrintSources(boolean prettyPrintSources) {
+        this.prettyPrintSources = prettyPrintSources;
+        return this;
+    }
+
+    /**
+     * @return the directory the sources are pretty-printed to
+     */
+    public Path getSourceOutputDirectory() {
+        return sourceOutputDirectory;
+    }
+
+    /**
+     * @param sourceOutputDirectory the directory the sources are pretty-printed
+     *                              to
+     * @returns this instance for a fluent like api
+     * @see #setPrettyPrintSources(boolean)
+     */
+    public DiagramGenerator setSourceOutputDirectory(Path sourceOutputDirectory) {
+        this.sourceOutputDirectory = sourceOutputDirectory;
+        return this;
+    }
+
+    /**
+     * @return if only the declarations are parsed
+     */
+    public boolean isDeclarationsOnly() {
+        return declarationsOnly;
+    }
+
+    /**
+     * Sets if only the declarations of the sources should be parsed. In this
+     * mode, JDT skips the bodies of all methods, constructors and initializers,
+     * which are never rendered anyway. The built types, fields and signatures
+     * stay the same, but every body in the model is empty.
+     * 
+     * @param declarationsOnly if only the declarations should be parsed
+     * @returns this instance for a fluent like api
+     * @see DeclarationsOnlyLauncher
+     */
+    public DiagramGenerator setDeclarationsOnly(boolean declarationsOnly) {
+        if (this.declarationsOnly != declarationsOnly) {
+            clearCache();
+        }
+        this.declarationsOnly = declarationsOnly;
+        return this;
+    }
+
+    /**
+     * @return if the members hidden by the visibility levels of the options are
+     *         skipped while extracting
+     */
+    public boolean isSkipHiddenMembers() {
+        return skipHiddenMembers;
+    }
+
+    /**
+     * Sets if {@link #generate()} skips the fields, constructors and methods
+     * which are hidden by the {@link GeneralUmlOptions#getMethodLevel() method}
+     * and {@link GeneralUmlOptions#getFieldLevel() field level} of the options.
+     * The type references of a skipped member are never resolved, which saves
+     * most of the extraction for a diagram of the public API. The generated
+     * model then only fits renderers using the same options.
+     * 
+     * @param skipHiddenMembers if the hidden members should be skipped
+     * @returns this instance for a fluent like api
+     * @see DiagramModelExtractor#DiagramModelExtractor(GeneralUmlOptions)
+     */
+    public DiagramGenerator setSkipHiddenMembers(boolean skipHiddenMembers) {
+        this.skipHiddenMembers = skipHiddenMembers;
+        return this;
+    }
+
+    /**
+     * @return how long spoon may take for one file, null if there is no limit
+     */
+    public Duration getFileTimeout() {
+        return fileTimeout;
+    }
+
+    /**
+     * Sets how long spoon may take for one file in {@link #generate()}. A file
+     * which takes longer, like a huge generated lookup table, or which fails on
+     * its own is quarantined. It is left out of the diagram, also by later
+     * calls, until its content changes. The quarantined files are logged and
+     * available through {@link #getQuarantinedFiles()}.
+     * 
+     * @param fileTimeout how long spoon may take for one file, null or zero if
+     *                    there is no limit and a failing file fails the whole
+     *                    generation
+     * @returns this instance for a fluent like api
+     * @see ShardedParser#setFileTimeout(Duration)
+     */
+    public DiagramGenerator setFileTimeout(Duration fileTimeout) {
+        if (fileTimeout != null && fileTimeout.isNegative())
+            throw new IllegalArgumentException("The file timeout can't be negative but was " + fileTimeout);
+        this.fileTimeout = fileTimeout == null || fileTimeout.isZero() ? null : fileTimeout;
+        return this;
+    }
+
+    /**
+     * @return the files which are quarantined, because they took longer than
+     *         the {@link #setFileTimeout(Duration) file timeout} or failed on
+     *         their own
+     */
+    public Set<Path> getQuarantinedFiles() {
+        return Collections.unmodifiableSet(quarantine.keySet());
+    }
+
+    /**
+     * @return how many shards are parsed at the same time
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets how many shards {@link #generate()} parses at the same time. By
+     * default, one shard per available processor is parsed at the same time.
+     * 
+     * @param parallelism how many shards are parsed at the same time, 1 parses
+     *                    all files in one shard
+     * @returns this instance for a fluent like api
+     */
+    public DiagramGenerator setParallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("The parallelism has to be at least 1 but was " + parallelism);
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @return how many files a shard has at least
+     */
+    public int getMinShardSize() {
+        return minShardSize;
+    }
+
+    /**
+     * Sets how many files a shard has at least. Small inputs are parsed in fewer
+     * shards, because every shard has to set up its own compiler.
+     * 
+     * @param minShardSize how many files a shard has at least
+     * @returns this instance for a fluent like api
+     */
+    public DiagramGenerator setMinShardSize(int minShardSize) {
+        if (minShardSize < 1)
+            throw new IllegalArgumentException("The min shard size has to be at least 1 but was " + minShardSize);
+        this.minShardSize = minShardSize;
+        return this;
+    }
+
+    /**
+     * @return how many bytes of heap the parsed spoon models may need, 0 if there
+     *         is no budget
+     */
+    public long getHeapBudget() {
+        return heapBudget;
+    }
+
+    /**
+     * Sets how many bytes of heap the spoon models parsed by {@link #generate()}
+     * may need at the same time. With a budget, the changed files are parsed in
+     * batches of packages, the types of a batch are extracted and its model is
+     * dropped before the next batch is parsed. The batches are sized to the
+     * budget, so big source trees can be scanned with a small heap. The result is
+     * the same as without a budget. The source files which were read ahead of the
+     * parser count against the budget, they may take a
+     * {@link #READ_AHEAD_SHARE fraction} of it.
+     * 
+     * The budget doesn't apply to {@link #scan()}, which keeps the whole model.
+     * 
+     * @param heapBudget the budget in bytes, 0 to parse all changed files at once
+     * @returns this instance for a fluent like api
+     * @see ChunkedParser
+     */
+    public DiagramGenerator setHeapBudget(long heapBudget) {
+        if (heapBudget < 0)
+            throw new IllegalArgumentException("The heap budget has to be at least 0 but was " + heapBudget);
+        this.heapBudget = heapBudget;
+        return this;
+    }
+
+    /**
+     * @return how many source files are read at the same time
+     */
+    public int getReadParallelism() {
+        return readParallelism;
+    }
+
+    /**
+     * Sets how many source files are read at the same time. The files whose size
+     * or modification time changed are read ahead of the parser, in the order
+     * they are parsed, and are parsed from memory. A shard starts as soon as its
+     * files are read while the next files are still being read, so the latency
+     * of a slow disk or network file system is hidden behind the parsing. A file
+     * whose content didn't change is read and hashed, but not parsed again.
+     * 
+     * @param readParallelism how many source files are read at the same time, 1
+     *                        reads them one after the other
+     * @returns this instance for a fluent like api
+     */
+    public DiagramGenerator setReadParallelism(int readParallelism) {
+        if (readParallelism < 1)
+            throw new IllegalArgumentException(
+                    "The read parallelism has to be at least 1 but was " + readParallelism);
+        this.readParallelism = readParallelism;
+        return this;
+    }
+
+    /**
+     * @return the file the extracted fragments are persisted to, null if they
+     *         aren't persisted
+     */
+    public Path getCacheFile() {
+        return cacheFile;
+    }
+
+    /**
+     * Sets the file the fragments extracted by {@link #generate()} are persisted
+     * to. A new generator loads the fragments from this file, so a build which
+     * uses a new generator only parses the files which changed since the
+     * previous build. A file whose size and modification time didn't change
+     * isn't even read.
+     * 
+     * The cache file is only used if it was written with the same options, the
+     * same classpath and the same {@link #setDeclarationsOnly(boolean)
+     * declarations only} setting.
+     * 
+     * @param cacheFile the cache file, null if the fragments shouldn't be
+     *                  persisted
+     * @returns this instance for a fluent like api
+     * @see FragmentCacheFile
+     */
+    public DiagramGenerator setCacheFile(Path cacheFile) {
+        this.cacheFile = cacheFile;
+        return this;
+    }
+
+    /**
+     * @return the jars and class directories the types referenced by the sources
+     *         are resolved from
+     */
+    public List<Path> getClasspath() {
+        return Collections.unmodifiableList(classpath);
+    }
+
+    /**
+     * Sets the compile classpath of the sources. Without a classpath, the
+     * supertypes and field types from dependencies can't be resolved and their
+     * names are guessed from the imports. The classpath is indexed by the next
+     * scan, see {@link ClasspathIndex}, and JDT looks up all referenced types in
+     * this index.
+     * 
+     * @param classpath the jars and class directories
+     * @returns this instance for a fluent like api
+     * @see #setClasspathIndexFile(Path)
+     */
+    public DiagramGenerator setClasspath(List<Path> classpath) {
+        clearCache();
+        this.classpath = new ArrayList<>(classpath);
+        return this;
+    }
+
+    /**
+     * @return the file the index of the classpath is persisted to, null if it
+     *         isn't persisted
+     */
+    public Path getClasspathIndexFile() {
+        return classpathIndexFile;
+    }
+
+    /**
+     * Sets the file the index of the classpath is persisted to. The jars which
+     * didn't change since they were indexed by a previous build are read from
+     * this file instead of being indexed again.
+     * 
+     * @param classpathIndexFile the index file, null if the index shouldn't be
+     *                           persisted
+     * @returns this instance for a fluent like api
+     */
+    public DiagramGenerator setClasspathIndexFile(Path classpathIndexFile) {
+        this.classpathIndexFile = classpathIndexFile;
+        return this;
+    }
+
+    /**
+     * Adds a processor which is run on the model after it was built. All added
+     * processors are run in a single traversal of the model, so adding another
+     * one doesn't add another pass over the model.
+     * 
+     * @param processor the processor to add
+     * @returns this instance for a fluent like api
+     */
+    public DiagramGenerator addProcessor(Processor<?> processor) {
+        processors.add(processor);
+        return this;
+    }
+
+    /**
+     * @return the processors which are run on the built model
+     */
+    public List<Processor<?>> getProcessors() {
+        return Collections.unmodifiableList(processors);
+    }
+
     /**
      * The given files will be scanned when {@link #scan()} is called.
      * If a folder is given, all files in the folder and in its subfolders are
@@ -90,63 +590,702 @@ public class DiagramGenerator {
     /**
      * The given files will be scanned when {@link #scan()} is called.
      * If a folder is given, all files in the folder and in its subfolders are
-     * scanned.
+     * scanned. Jar and zip archives, like the {@code -sources.jar} of a library,
+     * are scanned without extracting them.
      * 
      * @param paths the paths to scan
      * @returns this instance for a fluent like api
      * @see #addFiles(String...)
+     * @see SourceArchive
      */
+    @Override
     public DiagramGenerator addFiles(Path... paths) {
-        pathList.addAll(Arrays.asList(paths));
+        Arrays.stream(paths).map(Path::toAbsolutePath).map(Path::normalize).forEach(pathList::add);
         return this;
     }
 
+    /**
+     * @return the added files and folders, absolute and normalized
+     */
+    public Set<Path> getFiles() {
+        return Collections.unmodifiableSet(pathList);
+    }
+
+    /**
+     * Forgets the size and modification time the given files had when they were
+     * last hashed, so the next {@link #generate()} reads and hashes them again.
+     * This catches changes which kept the size and were made within the
+     * resolution of the modification time, e.g. when a watcher reports them.
+     * Files which didn't change are still not parsed again.
+     * 
+     * @param files the files
+     * @see DiagramWatcher
+     */
+    public void invalidateFiles(Collection<Path> files) {
+        files.stream().map(Path::toAbsolutePath).map(Path::normalize).forEach(fileStamps::remove);
+    }
+
     /**
      * Scanns the folder and files added by {@link #addFiles(Path...)},
      * {@link #addFiles(String...)} and {@link #addFolder(String)}.
      * 
+     * The first scan parses every file. Afterwards, the generator remembers the
+     * content hash of every file and the types declared in it, so that a rescan
+     * only parses the files which were added or changed and merges them into the
+     * previously built model. Types of deleted files are removed from the model.
+     * 
+     * What the scan cost is available through {@link #getStatistics()}
+     * afterwards.
+     * 
      * @returns the built {@link DiagramModel}
      * @see #addFiles(Path...)
      * @see #addFiles(String...)
      * @see #addFolder(String)
      */
     public CtModel scan() {
+        statistics = ScanStatistics.start();
+        try {
+            CtModel model = scanModel();
+            countTypes(model);
+            logger.info("{}", statistics.finish());
+            return model;
+        } finally {
+            // a failed scan doesn't keep sampling the garbage collections
+            statistics.abort();
+        }
+    }
+
+    /**
+     * Scans the added files into the spoon model and records the phases in
+     * {@link #statistics}
+     * 
+     * @return the built model
+     * @see #scan()
+     */
+    private CtModel scanModel() {
         if (options == null)
             options = GeneralUmlOptions.DEFAULT_OPTIONS;
-        Launcher launcher = new Launcher();
-        launcher.getEnvironment().setLevel(Level.DEBUG.name());
-        launcher.getEnvironment().setComplianceLevel(options.getLanguageLevel());
-        pathList.stream().map(Path::toAbsolutePath).filter(this::fileExistsFilter).map(Path::toString)
-                .forEach(launcher::addInputResource);
-        launcher.run();
-        launcher.process();
+        List<Path> sourceFiles = findSourceFiles();
+        // the whole model is kept anyway, so all changed files are read before they are parsed
+        prefetcher = new SourcePrefetcher(readParallelism, 0, sourceCache::isUpToDate, archiveSources);
+        try {
+            prefetcher.read(checkSourceFiles(sourceFiles));
+            return scanModel(collectHashes());
+        } finally {
+            releaseSources();
+        }
+    }
+
+    /**
+     * Builds the changed files into the spoon model
+     * 
+     * @param hashes the content hash of every readable file
+     * @return the built model
+     * @see #scanModel()
+     */
+    private CtModel scanModel(Map<Path, String> hashes) {
+        indexClasspath();
+
+        // the quarantined files are only found by generate(), but are left out here as well
+        quarantine.entrySet().removeIf(entry -> !entry.getValue().equals(hashes.get(entry.getKey())));
+        hashes.keySet().removeAll(quarantine.keySet());
+        Set<Path> removedFiles = findRemovedFiles(sourceCache, hashes);
+        Set<Path> changedFiles = findChangedFiles(sourceCache, hashes);
+        statistics.setParsedFiles(changedFiles.size());
+        if (launcher != null && changedFiles.isEmpty() && removedFiles.isEmpty()) {
+            logger.info("no source file changed since the last scan");
+            return launcher.getModel();
+        }
+        logger.info("{} source files changed, {} removed", changedFiles.size(), removedFiles.size());
+
+        boolean initialScan = launcher == null;
+        if (initialScan) {
+            launcher = createLauncher();
+        }
         Factory factory = launcher.getFactory();
-        ProcessingManager processingManager = new QueueProcessingManager(factory);
-        processingManager.process(factory.Module().getAllModules());
+        removedFiles.forEach(path -> evictSourceFile(factory, path));
+        changedFiles.forEach(path -> evictSourceFile(factory, path));
+
+        PhaseTimer parsingPhase = statistics.startPhase(Phase.PARSING);
+        List<SpoonResource> resources = changedFiles.stream().map(this::createResource).collect(Collectors.toList());
+        // the changed files are built into the existing model
+        factory.getModel().setBuildModelIsFinished(false);
+        launcher.createCompiler(factory, resources).build();
+        parsingPhase.end();
+
+        PhaseTimer modelBuildPhase = statistics.startPhase(Phase.MODEL_BUILD);
+        factory.getModel().setBuildModelIsFinished(true);
+        List<CtType<?>> builtTypes = cacheBuiltTypes(factory, changedFiles, hashes);
+        modelBuildPhase.end();
+
+        // all processors share one traversal, no traversal at all if there are none
+        PhaseTimer processingPhase = statistics.startPhase(Phase.PROCESSING);
+        ProcessorChain processorChain = new ProcessorChain(factory);
+        processors.forEach(processorChain::addProcessor);
+        if (initialScan) {
+            processorChain.process(factory.getModel().getAllModules());
+        } else {
+            processorChain.process(builtTypes);
+        }
+        processingPhase.end();
+
+        if (prettyPrintSources) {
+            PhaseTimer prettyPrintingPhase = statistics.startPhase(Phase.PRETTY_PRINTING);
+            launcher.prettyprint();
+            prettyPrintingPhase.end();
+        }
         return launcher.getModel();
     }
 
     /**
-     * Checks if the given path acually exists. This is used as a predicate.
+     * Generates the {@link DiagramModel} of the added files. The files are split
+     * into shards which are parsed in parallel, each by its own launcher. The
+     * types of every file are extracted as soon as its shard is built, so no
+     * spoon model is kept. The extracted fragments are merged into one model and
+     * references between the shards are resolved while merging, the result is
+     * the same as if all files were parsed at once.
+     * 
+     * Like {@link #scan()}, a rescan only parses the files which changed since
+     * the last call. With a {@link #setCacheFile(Path) cache file}, this holds
+     * for the first call of a new generator as well. If a
+     * {@link #setHeapBudget(long) heap budget} is set, the changed files are
+     * parsed in batches which fit into it. A file which takes longer than the
+     * {@link #setFileTimeout(Duration) file timeout} or fails on its own is
+     * quarantined, it is left out until its content changes.
+     * 
+     * If processors were added or the sources should be pretty-printed, the
+     * whole spoon model is needed. In this case, the files are scanned with
+     * {@link #scan()} and the diagram model is extracted from the built model.
+     * 
+     * What the generation cost is available through {@link #getStatistics()}
+     * afterwards.
+     * 
+     * @return the diagram model
+     * @see #setParallelism(int)
+     * @see #setHeapBudget(long)
+     * @see DiagramModelMerger
+     */
+    @Override
+    public DiagramModel generate() {
+        statistics = ScanStatistics.start();
+        try {
+            DiagramModel diagramModel;
+            if (!processors.isEmpty() || prettyPrintSources) {
+                CtModel model = scanModel();
+                PhaseTimer modelBuildPhase = statistics.startPhase(Phase.MODEL_BUILD);
+                diagramModel = new DiagramModelExtractor(getVisibilityFilter()).extractModel(model);
+                modelBuildPhase.end();
+            } else {
+                diagramModel = generateModel();
+            }
+            logger.info("{}", statistics.finish(diagramModel));
+            return diagramModel;
+        } finally {
+            // a failed scan doesn't keep sampling the garbage collections
+            statistics.abort();
+        }
+    }
+
+    /**
+     * Parses the added files in shards and merges the fragments, the phases are
+     * recorded in {@link #statistics}
+     * 
+     * @return the diagram model
+     * @see #generate()
+     */
+    private DiagramModel generateModel() {
+        if (options == null)
+            options = GeneralUmlOptions.DEFAULT_OPTIONS;
+        if (!getCacheFingerprint().equals(cacheFingerprint)) {
+            // the cached fragments were extracted with other options
+            fragmentCache.clear();
+            fileStamps.clear();
+            quarantine.clear();
+            cacheFingerprint = getCacheFingerprint();
+        }
+        if (cacheFile != null && fragmentCache.getPaths().isEmpty()) {
+            loadCacheFile();
+        }
+        List<Path> sourceFiles = findSourceFiles();
+        indexClasspath();
+
+        // the source files read ahead of the parser count against the heap budget
+        long readAheadBudget = heapBudget > 0 ? Math.max(1, heapBudget / READ_AHEAD_SHARE) : 0;
+        prefetcher = new SourcePrefetcher(readParallelism, readAheadBudget,
+                (file, hash) -> fragmentCache.isUpToDate(file, hash) || hash.equals(quarantine.get(file)),
+                archiveSources);
+        Map<Path, String> hashes;
+        Map<Path, PackageModel> fragments;
+        ShardedParser parser = new ShardedParser(this::createLauncher, this::createResource, parallelism,
+                minShardSize).setVisibilityFilter(getVisibilityFilter()).setFileTimeout(fileTimeout);
+        try {
+            List<Path> candidates = checkSourceFiles(sourceFiles);
+            PhaseTimer parsingPhase = statistics.startPhase(Phase.PARSING);
+            ChunkedParser chunkedParser = heapBudget > 0
+                    ? new ChunkedParser(parser, Math.max(1, heapBudget - readAheadBudget), prefetcher::getSize,
+                            statistics)
+                    : null;
+            // the files are read in the order they are parsed, so a shard only waits for its own files
+            List<Path> parseOrder = chunkedParser == null ? candidates : chunkedParser.sortForParsing(candidates);
+            prefetcher.read(parseOrder);
+            fragments = chunkedParser == null ? parser.parse(parseOrder) : chunkedParser.parse(parseOrder);
+            parsingPhase.end();
+            hashes = collectHashes();
+        } finally {
+            releaseSources();
+        }
+
+        Set<Path> removedFiles = findRemovedFiles(fragmentCache, hashes);
+        int quarantinedFiles = quarantine.size();
+        // a quarantined file which changed gets another chance
+        quarantine.entrySet().removeIf(entry -> !entry.getValue().equals(hashes.get(entry.getKey())));
+        boolean quarantineChanged = quarantine.size() != quarantinedFiles;
+        int parsedFiles = fragments.size() + parser.getQuarantinedFiles().size();
+        logger.info("{} source files changed, {} removed", parsedFiles, removedFiles.size());
+        statistics.setParsedFiles(parsedFiles);
+        removedFiles.forEach(fragmentCache::remove);
+        fragments.forEach((path, fragment) -> fragmentCache.put(path, hashes.get(path), List.of(fragment)));
+        for (Path file : parser.getQuarantinedFiles()) {
+            quarantine.put(file, hashes.get(file));
+            fragmentCache.remove(file);
+            quarantineChanged = true;
+        }
+        if (!quarantine.isEmpty()) {
+            logger.warn("{} quarantined files are left out until they change: {}", quarantine.size(),
+                    new TreeSet<>(quarantine.keySet()));
+        }
+        statistics.setQuarantinedFiles(quarantine.size());
+        if (cacheFile != null && (parsedFiles > 0 || !removedFiles.isEmpty() || quarantineChanged
+                || !Files.exists(cacheFile))) {
+            writeCacheFile(hashes);
+        }
+
+        PhaseTimer modelBuildPhase = statistics.startPhase(Phase.MODEL_BUILD);
+        DiagramModel diagramModel = DiagramModelMerger.merge(new TreeSet<>(hashes.keySet()).stream()
+                .flatMap(path -> fragmentCache.get(path).stream()).collect(Collectors.toList()));
+        modelBuildPhase.end();
+        return diagramModel;
+    }
+
+    /**
+     * Loads the fragments and file stamps from {@link #cacheFile}. Nothing is
+     * loaded if the file was written with another {@link #getCacheFingerprint()
+     * fingerprint}.
+     */
+    private void loadCacheFile() {
+        PhaseTimer cachePhase = statistics.startPhase(Phase.CACHE);
+        try {
+            List<FragmentCacheFile.Entry> entries = FragmentCacheFile.read(cacheFile, getCacheFingerprint());
+            for (FragmentCacheFile.Entry entry : entries) {
+                if (entry.fragment() == null) {
+                    quarantine.put(entry.path(), entry.hash());
+                } else {
+                    fragmentCache.put(entry.path(), entry.hash(), List.of(entry.fragment()));
+                }
+                if (entry.size() >= 0) {
+                    fileStamps.put(entry.path(), new FileStamp(entry.size(), entry.lastModified(), entry.hash()));
+                }
+            }
+            logger.info("loaded {} cached files from \"{}\"", entries.size(), cacheFile);
+        } catch (IOException e) {
+            logger.warn("Couldn't read the cache file \"{}\", all files are parsed", cacheFile, e);
+        }
+        cachePhase.end();
+    }
+
+    /**
+     * Persists the fragments of the given files to {@link #cacheFile}
+     * 
+     * @param hashes the content hash of every file
+     */
+    private void writeCacheFile(Map<Path, String> hashes) {
+        PhaseTimer cachePhase = statistics.startPhase(Phase.CACHE);
+        List<FragmentCacheFile.Entry> entries = new ArrayList<>();
+        for (Path file : new TreeSet<>(hashes.keySet())) {
+            List<PackageModel> fragments = fragmentCache.get(file);
+            if (fragments.isEmpty() && !quarantine.containsKey(file))
+                continue;
+            // the sources in archives have no stamp, they are read with the archive anyway
+            FileStamp stamp = fileStamps.get(file);
+            // a quarantined file is stored without a fragment
+            entries.add(new FragmentCacheFile.Entry(file, hashes.get(file), stamp == null ? -1 : stamp.size(),
+                    stamp == null ? -1 : stamp.lastModified(), fragments.isEmpty() ? null : fragments.get(0)));
+        }
+        try {
+            FragmentCacheFile.write(cacheFile, getCacheFingerprint(), entries);
+        } catch (IOException e) {
+            logger.warn("Couldn't write the cache file \"{}\"", cacheFile, e);
+        }
+        cachePhase.end();
+    }
+
+    /**
+     * @return the fingerprint of everything the extracted fragments depend on
+     */
+    private String getCacheFingerprint() {
+        return options.getFingerprint() + ";declarationsOnly=" + declarationsOnly + ";skipHiddenMembers="
+                + skipHiddenMembers + ";classpath=" + classpath;
+    }
+
+    /**
+     * @return the options the members are filtered with while extracting, null
+     *         if all members are extracted
+     * @see #setSkipHiddenMembers(boolean)
+     */
+    private GeneralUmlOptions getVisibilityFilter() {
+        return skipHiddenMembers ? options : null;
+    }
+
+    /**
+     * @return the statistics of the last {@link #scan()} or {@link #generate()},
+     *         null before the first one
+     */
+    @Override
+    public ScanStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Forgets all previously scanned files, the next {@link #scan()} will parse
+     * every file again.
+     */
+    public void clearCache() {
+        launcher = null;
+        closeClasspathIndex();
+        sourceCache.clear();
+        fragmentCache.clear();
+        fileStamps.clear();
+        quarantine.clear();
+    }
+
+    /**
+     * Releases the index of the classpath and the parsed model. The generator
+     * can still be used, the next {@link #scan()} parses every file again.
+     */
+    @Override
+    public void close() {
+        clearCache();
+    }
+
+    /**
+     * Indexes the classpath, if it has one and it wasn't indexed yet. The index
+     * is kept until the classpath or the cache is cleared.
+     */
+    private void indexClasspath() {
+        if (classpath.isEmpty() || classpathIndex != null)
+            return;
+        PhaseTimer discoveryPhase = statistics.startPhase(Phase.DISCOVERY);
+        classpathIndex = ClasspathIndex.create(classpath, classpathIndexFile);
+        logger.info("indexed {} classes on the classpath", classpathIndex.size());
+        discoveryPhase.end();
+    }
+
+    /**
+     * Closes the index of the classpath, the next scan indexes it again
+     */
+    private void closeClasspathIndex() {
+        if (classpathIndex == null)
+            return;
+        try {
+            classpathIndex.close();
+        } catch (IOException e) {
+            logger.warn("Couldn't close the classpath index", e);
+        }
+        classpathIndex = null;
+    }
+
+    /**
+     * Creates the launcher which builds and holds the model
      * 
-     * @param path the path to check
-     * @return if the path exists or not
+     * @return the launcher
      */
-    private boolean fileExistsFilter(Path path) {
-        if (path == null || !path.toFile().exists()) {
-            logger.warn("File \"{}\" doesn't exist", path);
-            return false;
+    private Launcher createLauncher() {
+        ClasspathIndexLauncher newLauncher = declarationsOnly ? new DeclarationsOnlyLauncher()
+                : new ClasspathIndexLauncher();
+        newLauncher.setClasspathIndex(classpathIndex);
+        // spoon only logs its debug output if it is wanted
+        newLauncher.getEnvironment().setLevel((logger.isDebugEnabled() ? Level.DEBUG : Level.WARN).name());
+        newLauncher.getEnvironment().setSpoonProgress(new FileParseEventProgress(this::getFileSize));
+        newLauncher.getEnvironment().setComplianceLevel(options.getLanguageLevel());
+        if (prettyPrintSources) {
+            newLauncher.setSourceOutputDirectory(sourceOutputDirectory.toFile());
+        } else {
+            newLauncher.getEnvironment().setOutputType(OutputType.NO_OUTPUT);
         }
-        return true;
+        return newLauncher;
     }
 
-    public static void main(String[] args) {
-        // new DiagramGenerator().addFiles("library/").scan();
-        CtModel model = new DiagramGenerator().addFiles(
-                "/home/sebi/Documents/code/java/MermaidGeneratorGradlePlugin/racetrack/src/main/java/ch/zhaw/pm2/racetrack/algorithm/pathfinder")
-                .scan();
-        String str = new PlantumlRenderer().render(model, new UmlOptions());
-        System.out.println(str);
+    /**
+     * Creates the resource spoon parses for a source file
+     * 
+     * @param file the source file or the virtual path of a source in an archive
+     * @return the resource, null if the file doesn't have to be parsed, because
+     *         its content didn't change
+     */
+    private SpoonResource createResource(Path file) {
+        String archiveSource = archiveSources.get(file);
+        if (archiveSource != null)
+            return SourceArchive.createResource(file, archiveSource);
+        if (prefetcher != null) {
+            String content = prefetcher.take(file);
+            if (content != null)
+                return new VirtualFile(content, file.toString());
+            // a file which was touched without changing its content isn't parsed again
+            if (!prefetcher.hasChanged(file))
+                return null;
+        }
+        return new FileSystemFile(file.toFile());
+    }
+
+    /**
+     * Returns the size of a source file
+     * 
+     * @param file the path of the source file or the virtual path of a source in
+     *             an archive
+     * @return the size in bytes or 0 if it isn't known
+     */
+    private long getFileSize(String file) {
+        try {
+            Path path = Paths.get(file);
+            // called on the parser threads, a parser which was given up may still run after the scan
+            SourcePrefetcher currentPrefetcher = prefetcher;
+            long size = currentPrefetcher == null ? 0 : currentPrefetcher.getSize(path);
+            return size > 0 ? size : Files.size(path);
+        } catch (IOException | InvalidPathException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Expands the added paths to all java files in them. Every file is only
+     * returned once, even if it is part of multiple added paths. Files which
+     * aren't included by the include and exclude patterns of the options are
+     * skipped. The sources in archives are read into {@link #archiveSources}
+     * and returned by their virtual path.
+     * 
+     * @return the sorted java files to scan
+     * @see SourceFileFinder
+     */
+    private List<Path> findSourceFiles() {
+        PhaseTimer discoveryPhase = statistics.startPhase(Phase.DISCOVERY);
+        List<String> extensions = new ArrayList<>(List.of(".java"));
+        extensions.addAll(SourceArchive.EXTENSIONS);
+        SourceFileFinder finder = new SourceFileFinder(parallelism, options.getIncludes(), options.getExcludes(),
+                extensions);
+        Set<Path> sourceFiles = new TreeSet<>();
+        archiveSources.clear();
+        for (Path file : finder.find(pathList).files()) {
+            if (!SourceArchive.isArchive(file)) {
+                sourceFiles.add(file);
+                continue;
+            }
+            try {
+                archiveSources.putAll(SourceArchive.readSources(file, finder::isIncluded));
+            } catch (IOException e) {
+                logger.warn("Couldn't read archive \"{}\"", file, e);
+            }
+        }
+        sourceFiles.addAll(archiveSources.keySet());
+        discoveryPhase.end();
+        return new ArrayList<>(sourceFiles);
+    }
+
+    /**
+     * Finds the cached files which don't exist anymore
+     * 
+     * @param cache  the cache
+     * @param hashes the content hashes of the existing files
+     * @return the removed files
+     */
+    private Set<Path> findRemovedFiles(SourceCache<?> cache, Map<Path, String> hashes) {
+        Set<Path> removedFiles = new HashSet<>(cache.getPaths());
+        removedFiles.removeAll(hashes.keySet());
+        return removedFiles;
+    }
+
+    /**
+     * Finds the files which were added or changed since they were cached
+     * 
+     * @param cache  the cache
+     * @param hashes the content hashes of the existing files
+     * @return the changed files, sorted by their path
+     */
+    private Set<Path> findChangedFiles(SourceCache<?> cache, Map<Path, String> hashes) {
+        return hashes.entrySet().stream().filter(entry -> !cache.isUpToDate(entry.getKey(), entry.getValue()))
+                .map(Map.Entry::getKey).collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    /**
+     * Checks which of the given files have to be read, because their size or
+     * modification time changed since they were last hashed or they aren't up
+     * to date
+     * 
+     * @param sourceFiles the files to check
+     * @return the files to read
+     */
+    private List<Path> checkSourceFiles(List<Path> sourceFiles) {
+        PhaseTimer discoveryPhase = statistics.startPhase(Phase.DISCOVERY);
+        List<Path> candidates = prefetcher.check(sourceFiles, fileStamps);
+        discoveryPhase.end();
+        return candidates;
+    }
+
+    /**
+     * Waits until {@link #prefetcher} read all files and remembers their stamps
+     * 
+     * @return the content hash of every readable file
+     */
+    private Map<Path, String> collectHashes() {
+        PhaseTimer discoveryPhase = statistics.startPhase(Phase.DISCOVERY);
+        Map<Path, String> hashes = new HashMap<>();
+        for (Map.Entry<Path, FileStamp> entry : prefetcher.getStamps().entrySet()) {
+            hashes.put(entry.getKey(), entry.getValue().hash());
+            // the sources in archives have no stamp, they are read with the archive anyway
+            if (!archiveSources.containsKey(entry.getKey())) {
+                fileStamps.put(entry.getKey(), entry.getValue());
+            }
+        }
+        fileStamps.keySet().retainAll(hashes.keySet());
+        statistics.addBytes(prefetcher.getReadBytes());
+        statistics.setFiles(hashes.size());
+        discoveryPhase.end();
+        return hashes;
+    }
+
+    /**
+     * Drops the sources which were read for the last scan
+     */
+    private void releaseSources() {
+        prefetcher.close();
+        prefetcher = null;
+        archiveSources.clear();
+    }
+
+    /**
+     * Removes the types of the given file from the model and the cache
+     * 
+     * @param factory the factory of the model
+     * @param path    the file to remove
+     */
+    private void evictSourceFile(Factory factory, Path path) {
+        sourceCache.remove(path).forEach(CtType::delete);
+        CompilationUnitFactory unitFactory = factory.CompilationUnit();
+        List<String> unitKeys = new ArrayList<>();
+        for (Map.Entry<String, ? extends CtCompilationUnit> entry : unitFactory.getMap().entrySet()) {
+            if (isSameFile(entry.getValue().getFile(), path)) {
+                unitKeys.add(entry.getKey());
+            }
+        }
+        unitKeys.forEach(unitFactory::removeFromCache);
+    }
+
+    /**
+     * Caches the types which were built from the given files
+     * 
+     * @param factory    the factory of the model
+     * @param builtFiles the files which were just built
+     * @param hashes     the content hashes of the files
+     * @return all types which were built
+     */
+    private List<CtType<?>> cacheBuiltTypes(Factory factory, Set<Path> builtFiles, Map<Path, String> hashes) {
+        List<CtType<?>> builtTypes = new ArrayList<>();
+        for (CtCompilationUnit unit : factory.CompilationUnit().getMap().values()) {
+            Path file = unit.getFile() == null ? null : unit.getFile().toPath().toAbsolutePath().normalize();
+            if (file != null && builtFiles.contains(file)) {
+                sourceCache.put(file, hashes.get(file), unit.getDeclaredTypes());
+                builtTypes.addAll(unit.getDeclaredTypes());
+            }
+        }
+        return builtTypes;
+    }
+
+    /**
+     * Checks if the given file points to the given path
+     * 
+     * @param file the file
+     * @param path the path
+     * @return if both point to the same file
+     */
+    private boolean isSameFile(File file, Path path) {
+        return file != null && file.toPath().toAbsolutePath().normalize().equals(path);
+    }
+
+    /**
+     * Counts the types, including nested ones, and their members in the given
+     * model
+     * 
+     * @param model the model
+     */
+    private void countTypes(CtModel model) {
+        List<CtType<?>> types = model.getAllTypes().stream().flatMap(this::withNestedTypes)
+                .collect(Collectors.toList());
+        statistics.setTypes(types.size());
+        statistics.setMembers(types.stream().mapToInt(type -> type.getFields().size() + type.getMethods().size()
+                + (type instanceof CtClass<?> classObj ? classObj.getConstructors().size() : 0)).sum());
+    }
+
+    /**
+     * @param type the type
+     * @return the type and all of its nested types
+     */
+    private Stream<CtType<?>> withNestedTypes(CtType<?> type) {
+        return Stream.concat(Stream.of(type), type.getNestedTypes().stream().flatMap(this::withNestedTypes));
+    }
+
+    /**
+     * Generates the PlantUML diagram of the given source files and folders. The
+     * usage is {@code DiagramGenerator [--watch] [--output <file>] <path>...}.
+     * Without an output file, the diagram is printed. With {@code --watch}, the
+     * diagram is generated again whenever a source file changes, until the
+     * process is stopped.
+     * 
+     * @param args the arguments
+     * @throws IOException          if the diagram couldn't be written
+     * @throws InterruptedException if watching was interrupted
+     * @see DiagramWatcher
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        boolean watch = false;
+        Path output = null;
+        DiagramGenerator generator = new DiagramGenerator();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--watch")) {
+                watch = true;
+            } else if (args[i].equals("--output") && i + 1 < args.length) {
+                output = Paths.get(args[++i]);
+            } else {
+                generator.addFiles(args[i]);
+            }
+        }
+        if (generator.getFiles().isEmpty()) {
+            System.err.println("usage: DiagramGenerator [--watch] [--output <file>] <path>...");
+            System.exit(2);
+        }
+
+        Path outputFile = output;
+        UmlOptions umlOptions = new UmlOptions();
+        // the renderer keeps its pool for the next change
+        PlantumlRenderer renderer = new PlantumlRenderer();
+        Consumer<DiagramModel> writer = model -> {
+            try {
+                if (outputFile == null) {
+                    renderer.render(model, umlOptions, System.out);
+                    System.out.println();
+                } else {
+                    new DiagramWriter(model, renderer).writeFile(outputFile);
+                }
+            } catch (IOException e) {
+                // keeps watching, the next change may be written again
+                System.err.println("Couldn't write the diagram to \"" + outputFile + "\": " + e.getMessage());
+            }
+        };
+        if (!watch) {
+            writer.accept(generator.generate());
+            return;
+        }
+        try (DiagramWatcher watcher = new DiagramWatcher(generator, writer)) {
+            watcher.watch();
+        }
     }
 
 }
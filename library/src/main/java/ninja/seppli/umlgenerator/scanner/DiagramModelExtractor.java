@@ -0,0 +1,360 @@
+package ninja.seppli.umlgenerator.scanner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import ninja.seppli.umlgenerator.model.DiagramModel;
+import ninja.seppli.umlgenerator.model.DiagramModelMerger;
+import ninja.seppli.umlgenerator.model.ExecutableModel;
+import ninja.seppli.umlgenerator.model.FieldModel;
+import ninja.seppli.umlgenerator.model.PackageModel;
+import ninja.seppli.umlgenerator.model.ParameterModel;
+import ninja.seppli.umlgenerator.model.TypeKind;
+import ninja.seppli.umlgenerator.model.TypeModel;
+import ninja.seppli.umlgenerator.model.TypeRef;
+import ninja.seppli.umlgenerator.options.GeneralUmlOptions;
+import ninja.seppli.umlgenerator.options.VisibilityLevel;
+import spoon.experimental.CtUnresolvedImport;
+import spoon.reflect.CtModel;
+import spoon.reflect.declaration.CtAnnotationType;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtCompilationUnit;
+import spoon.reflect.declaration.CtConstructor;
+import spoon.reflect.declaration.CtEnum;
+import spoon.reflect.declaration.CtExecutable;
+import spoon.reflect.declaration.CtField;
+import spoon.reflect.declaration.CtImport;
+import spoon.reflect.declaration.CtImportKind;
+import spoon.reflect.declaration.CtInterface;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtRecord;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.declaration.CtTypeParameter;
+import spoon.reflect.reference.CtArrayTypeReference;
+import spoon.reflect.reference.CtReference;
+import spoon.reflect.reference.CtTypeParameterReference;
+import spoon.reflect.reference.CtTypeReference;
+
+/**
+ * Extracts a {@link DiagramModel} from a spoon {@link CtModel}. All names and
+ * type references are interned while extracting, so every name and every
+ * reference is only stored once, no matter how often it is used in the model.
+ *
+ * An extractor with a visibility filter skips the fields, constructors and
+ * methods the diagram wouldn't show anyway. The visibility of a member is
+ * checked first, so the type references of a skipped member are never
+ * resolved.
+ *
+ * If the extracted types are only a part of the sources, like the types of a
+ * shard, a reference to a type of another part can't be resolved by the
+ * parser. The extractor then marks every reference which may point to such a
+ * type with the names it may have, according to the package and the on demand
+ * imports of the referencing file, so {@link DiagramModelMerger} can resolve it.
+ * References to type parameters and primitives are never marked.
+ */
+public class DiagramModelExtractor {
+    /**
+     * the interned names
+     */
+    private Map<String, String> names = new HashMap<>();
+
+    /**
+     * the interned type references
+     */
+    private Map<TypeRef, TypeRef> typeRefs = new HashMap<>();
+
+    /**
+     * the options which decide which members are extracted, null if all members
+     * are extracted
+     */
+    private GeneralUmlOptions visibilityFilter;
+
+    /**
+     * if references to types which may be part of other sources are marked as
+     * unresolved
+     */
+    private boolean markUnresolvedRefs = false;
+
+    /**
+     * the prefix the types of the package of the current file have, e.g.
+     * {@code zoo.animals.}
+     */
+    private String packagePrefix = "";
+
+    /**
+     * the prefixes of the types the current file imports on demand, e.g.
+     * {@code java.util.} for {@code import java.util.*;}
+     */
+    private List<String> onDemandImportPrefixes = List.of();
+
+    /**
+     * Constructor, the extractor extracts all members
+     */
+    public DiagramModelExtractor() {
+    }
+
+    /**
+     * Constructor
+     *
+     * @param visibilityFilter the options which decide which members are
+     *                         extracted, only the members
+     *                         {@link GeneralUmlOptions#isMethodVisible(VisibilityLevel)
+     *                         visible} in the diagram are. Null extracts all
+     *                         members.
+     */
+    public DiagramModelExtractor(GeneralUmlOptions visibilityFilter) {
+        this.visibilityFilter = visibilityFilter;
+    }
+
+    /**
+     * @return if references to types which may be part of other sources are
+     *         marked as unresolved
+     */
+    public boolean isMarkUnresolvedRefs() {
+        return markUnresolvedRefs;
+    }
+
+    /**
+     * @param markUnresolvedRefs if references to types which may be part of
+     *                           other sources should be marked as unresolved,
+     *                           which is needed if the extracted types are
+     *                           merged with the types of other sources
+     * @returns this instance for a fluent like api
+     * @see TypeRef#isUnresolved()
+     */
+    public DiagramModelExtractor setMarkUnresolvedRefs(boolean markUnresolvedRefs) {
+        this.markUnresolvedRefs = markUnresolvedRefs;
+        return this;
+    }
+
+    /**
+     * Extracts the diagram model from the given spoon model
+     *
+     * @param model the spoon model
+     * @return the extracted diagram model
+     */
+    public static DiagramModel extract(CtModel model) {
+        return new DiagramModelExtractor().extractModel(model);
+    }
+
+    /**
+     * Extracts the diagram model from the given spoon model
+     *
+     * @param model the spoon model
+     * @return the extracted diagram model
+     */
+    public DiagramModel extractModel(CtModel model) {
+        List<PackageModel> packages = new ArrayList<>();
+        for (CtPackage packageObj : model.getAllPackages()) {
+            if (packageObj.getTypes().isEmpty())
+                continue;
+            packages.add(extractPackage(packageObj));
+        }
+        return new DiagramModel(packages);
+    }
+
+    /**
+     * Extracts a package with its top level types
+     *
+     * @param packageObj the package
+     * @return the extracted package
+     */
+    public PackageModel extractPackage(CtPackage packageObj) {
+        return new PackageModel(intern(packageObj.getQualifiedName()), extractTypes(packageObj.getTypes()));
+    }
+
+    /**
+     * Extracts the given types
+     *
+     * @param types the types
+     * @return the extracted types in the same order
+     */
+    public List<TypeModel> extractTypes(Collection<? extends CtType<?>> types) {
+        return types.stream().map(this::extractType).collect(Collectors.toList());
+    }
+
+    /**
+     * Extracts a type with its members and nested types
+     *
+     * @param typeObj the type
+     * @return the extracted type
+     */
+    public TypeModel extractType(CtType<?> typeObj) {
+        if (markUnresolvedRefs && typeObj.isTopLevel()) {
+            setFileContext(typeObj);
+        }
+        List<ExecutableModel> constructors = new ArrayList<>();
+        if (typeObj instanceof CtClass<?> classObj) {
+            for (CtConstructor<?> constructor : classObj.getConstructors()) {
+                VisibilityLevel visibility = VisibilityLevel.fromModifierKind(constructor.getVisibility());
+                if (visibilityFilter == null || visibilityFilter.isMethodVisible(visibility)) {
+                    constructors.add(extractExecutable(constructor, visibility, false, false));
+                }
+            }
+        }
+        List<ExecutableModel> methods = new ArrayList<>();
+        for (CtMethod<?> method : typeObj.getMethods()) {
+            VisibilityLevel visibility = VisibilityLevel.fromModifierKind(method.getVisibility());
+            if (visibilityFilter == null || visibilityFilter.isMethodVisible(visibility)) {
+                methods.add(extractExecutable(method, visibility, method.isAbstract(), method.isStatic()));
+            }
+        }
+        List<FieldModel> fields = new ArrayList<>();
+        for (CtField<?> field : typeObj.getFields()) {
+            VisibilityLevel visibility = VisibilityLevel.fromModifierKind(field.getVisibility());
+            if (visibilityFilter == null || visibilityFilter.isFieldVisible(visibility)) {
+                fields.add(new FieldModel(intern(field.getSimpleName()), visibility, field.isStatic(),
+                        extractTypeRef(field.getType())));
+            }
+        }
+        List<String> typeParameters = typeObj.getFormalCtTypeParameters().stream()
+                .map(CtTypeParameter::getSimpleName).map(this::intern).collect(Collectors.toList());
+        List<TypeRef> superInterfaces = typeObj.getSuperInterfaces().stream().map(this::extractTypeRef)
+                .collect(Collectors.toList());
+        return new TypeModel(getKind(typeObj), intern(typeObj.getQualifiedName()), intern(typeObj.getSimpleName()),
+                VisibilityLevel.fromModifierKind(typeObj.getVisibility()), typeObj.isAbstract(), typeParameters,
+                extractTypeRef(typeObj.getSuperclass()), superInterfaces, fields, constructors, methods,
+                extractTypes(typeObj.getNestedTypes()));
+    }
+
+    /**
+     * Extracts a type reference with its type arguments
+     *
+     * @param reference the reference, may be null
+     * @return the interned reference or null if null was given
+     */
+    public TypeRef extractTypeRef(CtTypeReference<?> reference) {
+        if (reference == null)
+            return null;
+        List<TypeRef> typeArguments = reference.getActualTypeArguments().stream().map(this::extractTypeRef)
+                .collect(Collectors.toList());
+        TypeRef typeRef = new TypeRef(intern(reference.getQualifiedName()), intern(reference.getSimpleName()),
+                typeArguments, getCandidates(reference));
+        TypeRef interned = typeRefs.putIfAbsent(typeRef, typeRef);
+        return interned == null ? typeRef : interned;
+    }
+
+    /**
+     * Remembers the package and the on demand imports of the file of the given
+     * type, which decide the candidates of unresolved references
+     *
+     * @param typeObj the top level type
+     */
+    private void setFileContext(CtType<?> typeObj) {
+        CtPackage packageObj = typeObj.getPackage();
+        packagePrefix = packageObj == null || packageObj.isUnnamedPackage() ? ""
+                : packageObj.getQualifiedName() + ".";
+        List<String> prefixes = new ArrayList<>();
+        CtCompilationUnit unit = typeObj.getPosition().getCompilationUnit();
+        for (CtImport importObj : unit == null ? List.<CtImport>of() : unit.getImports()) {
+            if (importObj.getImportKind() == CtImportKind.ALL_TYPES) {
+                CtReference reference = importObj.getReference();
+                prefixes.add(reference instanceof CtTypeReference<?> typeReference
+                        ? typeReference.getQualifiedName() + "$"
+                        : reference.getSimpleName() + ".");
+            } else if (importObj instanceof CtUnresolvedImport unresolvedImport && !unresolvedImport.isStatic()
+                    && unresolvedImport.getUnresolvedReference().endsWith(".*")) {
+                String name = unresolvedImport.getUnresolvedReference();
+                prefixes.add(name.substring(0, name.length() - 1));
+            }
+        }
+        onDemandImportPrefixes = prefixes;
+    }
+
+    /**
+     * Determines the names the referenced type may have, if the reference may
+     * point to a type which isn't part of the extracted sources. This is the case
+     * if the parser guessed the package of the type or found the type through an
+     * on demand import, where a type of the own package would shadow it.
+     *
+     * @param reference the reference
+     * @return the candidates, the type in the own package first, followed by the
+     *         on demand imported types. Empty if the reference is resolved.
+     */
+    private List<String> getCandidates(CtTypeReference<?> reference) {
+        if (!markUnresolvedRefs)
+            return List.of();
+        CtTypeReference<?> componentType = reference;
+        String dimensions = "";
+        while (componentType instanceof CtArrayTypeReference<?> arrayType) {
+            componentType = arrayType.getComponentType();
+            dimensions += "[]";
+        }
+        if (componentType instanceof CtTypeParameterReference || componentType.isPrimitive()
+                || componentType.getDeclaringType() != null)
+            return List.of();
+        String simpleName = componentType.getSimpleName();
+        String qualifiedName = componentType.getQualifiedName();
+        boolean importedOnDemand = onDemandImportPrefixes.stream()
+                .anyMatch(prefix -> qualifiedName.equals(prefix + simpleName));
+        boolean guessed = (qualifiedName.equals(simpleName) || qualifiedName.equals(packagePrefix + simpleName))
+                && componentType.getDeclaration() == null;
+        if (!importedOnDemand && !guessed)
+            return List.of();
+        List<String> candidates = new ArrayList<>();
+        candidates.add(intern(packagePrefix + simpleName + dimensions));
+        for (String prefix : onDemandImportPrefixes) {
+            candidates.add(intern(prefix + simpleName + dimensions));
+        }
+        return candidates;
+    }
+
+    /**
+     * Extracts a method or a constructor
+     *
+     * @param executable the method or constructor
+     * @param visibility the visibility
+     * @param isAbstract if it is abstract
+     * @param isStatic   if it is static
+     * @return the extracted method or constructor
+     */
+    private ExecutableModel extractExecutable(CtExecutable<?> executable, VisibilityLevel visibility,
+            boolean isAbstract, boolean isStatic) {
+        List<ParameterModel> parameters = executable.getParameters().stream()
+                .map(parameter -> new ParameterModel(intern(parameter.getSimpleName()),
+                        extractTypeRef(parameter.getType())))
+                .collect(Collectors.toList());
+        return new ExecutableModel(intern(executable.getSimpleName()), visibility, isAbstract, isStatic,
+                extractTypeRef(executable.getType()), parameters);
+    }
+
+    /**
+     * Determines the kind of the given type
+     *
+     * @param typeObj the type
+     * @return the kind
+     */
+    private TypeKind getKind(CtType<?> typeObj) {
+        if (typeObj instanceof CtEnum<?>) {
+            return TypeKind.ENUM;
+        } else if (typeObj instanceof CtRecord) {
+            return TypeKind.RECORD;
+        } else if (typeObj instanceof CtClass<?>) {
+            return TypeKind.CLASS;
+        } else if (typeObj instanceof CtInterface<?>) {
+            return TypeKind.INTERFACE;
+        } else if (typeObj instanceof CtAnnotationType<?>) {
+            return TypeKind.ANNOTATION;
+        } else {
+            return TypeKind.OTHER;
+        }
+    }
+
+    /**
+     * Interns the given name
+     *
+     * @param name the name
+     * @return the already known instance of the name
+     */
+    private String intern(String name) {
+        if (name == null)
+            return null;
+        String interned = names.putIfAbsent(name, name);
+        return interned == null ? name : interned;
+    }
+}
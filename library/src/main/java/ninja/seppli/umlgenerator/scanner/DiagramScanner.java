@@ -0,0 +1,45 @@
+package ninja.seppli.umlgenerator.scanner;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+
+import ninja.seppli.umlgenerator.model.DiagramModel;
+
+/**
+ * Builds a {@link DiagramModel} from the added files. The
+ * {@link DiagramGenerator} scans java source files, the
+ * {@link ninja.seppli.umlgenerator.scanner.bytecode.BytecodeScanner} compiled
+ * class files. A scanner is closed once it isn't needed anymore, so the files
+ * it keeps open are released.
+ */
+public interface DiagramScanner extends Closeable {
+    /**
+     * The given files will be scanned when {@link #generate()} is called. If a
+     * folder is given, all files in the folder and in its subfolders are
+     * scanned.
+     *
+     * @param paths the paths to scan
+     * @returns this instance for a fluent like api
+     */
+    DiagramScanner addFiles(Path... paths);
+
+    /**
+     * Generates the {@link DiagramModel} of the added files
+     *
+     * @return the diagram model
+     */
+    DiagramModel generate();
+
+    /**
+     * @return the statistics of the last {@link #generate()}, null before the
+     *         first one
+     */
+    ScanStatistics getStatistics();
+
+    /**
+     * Releases what the scanner keeps open between scans, nothing by default
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,248 @@
+package ninja.seppli.umlgenerator.scanner;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ninja.seppli.umlgenerator.model.DiagramModel;
+
+/**
+ * Regenerates the diagram of a {@link DiagramGenerator} whenever one of its
+ * source files changes. The folders added to the generator are watched with a
+ * {@link WatchService}. A burst of changes, like saving all files in an editor
+ * or switching a branch, is collected until no change was reported for the
+ * debounce time and then handled by one regeneration.
+ *
+ * Only the changed files are parsed again, the generator keeps the fragments
+ * of all other files. The files reported by the watch service are
+ * {@link DiagramGenerator#invalidateFiles(java.util.Collection) invalidated},
+ * so even a change which kept the size and the modification time is picked
+ * up.
+ */
+public class DiagramWatcher implements Closeable {
+    /**
+     * how long no change has to be reported until the diagram is regenerated by
+     * default
+     */
+    public static final Duration DEFAULT_DEBOUNCE = Duration.ofMillis(200);
+
+    /**
+     * logger
+     */
+    private Logger logger = LoggerFactory.getLogger(getClass());
+
+    /**
+     * the generator which is regenerated
+     */
+    private DiagramGenerator generator;
+
+    /**
+     * gets every generated diagram model
+     */
+    private Consumer<DiagramModel> listener;
+
+    /**
+     * how long no change has to be reported until the diagram is regenerated
+     */
+    private Duration debounce = DEFAULT_DEBOUNCE;
+
+    /**
+     * the watch service
+     */
+    private WatchService watchService;
+
+    /**
+     * the watched directories by their key
+     */
+    private Map<WatchKey, Path> directories = new HashMap<>();
+
+    /**
+     * Constructor
+     *
+     * @param generator the generator which is regenerated, its added folders are
+     *                  watched
+     * @param listener  gets every generated diagram model, e.g. to write it to a
+     *                  file
+     * @throws IOException if the watch service couldn't be created
+     */
+    public DiagramWatcher(DiagramGenerator generator, Consumer<DiagramModel> listener) throws IOException {
+        this.generator = generator;
+        this.listener = listener;
+        Path anyPath = generator.getFiles().stream().findAny().orElse(Path.of("").toAbsolutePath());
+        this.watchService = anyPath.getFileSystem().newWatchService();
+    }
+
+    /**
+     * @return how long no change has to be reported until the diagram is
+     *         regenerated
+     */
+    public Duration getDebounce() {
+        return debounce;
+    }
+
+    /**
+     * @param debounce how long no change has to be reported until the diagram is
+     *                 regenerated
+     * @returns this instance for a fluent like api
+     */
+    public DiagramWatcher setDebounce(Duration debounce) {
+        if (debounce.isNegative())
+            throw new IllegalArgumentException("The debounce can't be negative but was " + debounce);
+        this.debounce = debounce;
+        return this;
+    }
+
+    /**
+     * Generates the diagram and then regenerates it after every burst of
+     * changes, until the watcher is {@link #close() closed} or the thread is
+     * interrupted. Every model is passed to the listener.
+     *
+     * @throws IOException          if a folder couldn't be watched
+     * @throws InterruptedException if the thread was interrupted while waiting
+     *                              for changes
+     */
+    public void watch() throws IOException, InterruptedException {
+        for (Path path : generator.getFiles()) {
+            if (Files.isDirectory(path)) {
+                registerTree(path);
+            } else if (path.getParent() != null) {
+                // a single file or archive, its siblings are ignored
+                register(path.getParent());
+            }
+        }
+        logger.info("watching {} directories", directories.size());
+        listener.accept(generator.generate());
+        try {
+            while (true) {
+                Set<Path> changedFiles = awaitChanges();
+                logger.info("{} files changed, regenerating", changedFiles.size());
+                generator.invalidateFiles(changedFiles);
+                listener.accept(generator.generate());
+            }
+        } catch (ClosedWatchServiceException e) {
+            logger.debug("stopped watching");
+        }
+    }
+
+    /**
+     * Stops watching, a running {@link #watch()} returns
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * Waits for a burst of changes which may change the diagram
+     *
+     * @return the changed, created and deleted files
+     * @throws IOException          if a created folder couldn't be watched
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    private Set<Path> awaitChanges() throws IOException, InterruptedException {
+        Set<Path> changedFiles = new TreeSet<>();
+        boolean relevant = false;
+        WatchKey key = watchService.take();
+        while (key != null) {
+            relevant |= handleEvents(key, changedFiles);
+            key = watchService.poll(debounce.toMillis(), TimeUnit.MILLISECONDS);
+            if (key == null && !relevant) {
+                // nothing which changes the diagram, wait for the next burst
+                key = watchService.take();
+            }
+        }
+        return changedFiles;
+    }
+
+    /**
+     * Handles the events of a key
+     *
+     * @param key          the signalled key
+     * @param changedFiles the set the changed files are added to
+     * @return if one of the events may change the diagram
+     * @throws IOException if a created folder couldn't be watched
+     */
+    private boolean handleEvents(WatchKey key, Set<Path> changedFiles) throws IOException {
+        Path directory = directories.get(key);
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW || directory == null) {
+                // events were lost, the generator checks all files anyway
+                relevant = true;
+                continue;
+            }
+            Path file = directory.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(file)) {
+                registerTree(file);
+                try (Stream<Path> files = Files.walk(file)) {
+                    changedFiles.addAll(files.filter(Files::isRegularFile).collect(Collectors.toList()));
+                }
+                relevant = true;
+            } else if (isSourceFile(file)) {
+                changedFiles.add(file);
+                relevant = true;
+            }
+        }
+        if (!key.reset()) {
+            // the directory was deleted, with the files in it
+            directories.remove(key);
+            relevant = true;
+        }
+        return relevant;
+    }
+
+    /**
+     * @param file the file
+     * @return if the generator would scan the file, if it isn't excluded
+     */
+    private boolean isSourceFile(Path file) {
+        return file.toString().endsWith(".java") || SourceArchive.isArchive(file);
+    }
+
+    /**
+     * Watches a directory and all of its subdirectories
+     *
+     * @param root the directory
+     * @throws IOException if a directory couldn't be watched
+     */
+    private void registerTree(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path directory : paths.filter(Files::isDirectory).collect(Collectors.toList())) {
+                register(directory);
+            }
+        }
+    }
+
+    /**
+     * Watches a directory
+     *
+     * @param directory the directory
+     * @throws IOException if the directory couldn't be watched
+     */
+    private void register(Path directory) throws IOException {
+        WatchKey key = directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        directories.put(key, directory);
+    }
+}
@@ -1,11 +1,23 @@
 package ninja.seppli.umlgenerator.scanner;
 
+import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+import ninja.seppli.umlgenerator.jfr.WriteEvent;
+import ninja.seppli.umlgenerator.model.DiagramModel;
 import ninja.seppli.umlgenerator.options.UmlOptions;
+import ninja.seppli.umlgenerator.renderer.AbstractRenderer;
+import ninja.seppli.umlgenerator.renderer.CountingAppendable;
+import ninja.seppli.umlgenerator.renderer.MultiFormatRenderer;
 import ninja.seppli.umlgenerator.renderer.Renderer;
 import spoon.reflect.CtModel;
 
@@ -14,31 +26,186 @@ import spoon.reflect.CtModel;
  * it to a string
  */
 public class DiagramWriter {
-    private CtModel model;
+    private DiagramModel model;
     private Renderer renderer;
     private UmlOptions umlOptions = new UmlOptions();
 
+    /**
+     * the renderers of the files written besides the file given to
+     * {@link #writeFile(Path)}, by their file
+     */
+    private Map<Path, Renderer> additionalOutputs = new LinkedHashMap<>();
+
     /**
      * Constructs an MermaidWriter instance
      * 
      * @param model    the model which will be written
      * @param renderer the renderer which renders the model
      */
-    public DiagramWriter(CtModel model, Renderer renderer) {
+    public DiagramWriter(DiagramModel model, Renderer renderer) {
         this.model = model;
         this.renderer = renderer;
     }
 
     /**
-     * Writes the mermaid model to the given file
+     * Constructs an MermaidWriter instance. The {@link DiagramModel} is extracted
+     * right away, so the writer doesn't keep the spoon model alive.
+     * 
+     * @param model    the spoon model which will be written
+     * @param renderer the renderer which renders the model
+     * @see DiagramModelExtractor
+     */
+    public DiagramWriter(CtModel model, Renderer renderer) {
+        this(DiagramModelExtractor.extract(model), renderer);
+    }
+
+    /**
+     * @return the options the model is rendered with
+     */
+    public UmlOptions getUmlOptions() {
+        return umlOptions;
+    }
+
+    /**
+     * @param umlOptions the options the model is rendered with
+     * @returns this instance for a fluent like api
+     */
+    public DiagramWriter setUmlOptions(UmlOptions umlOptions) {
+        this.umlOptions = umlOptions;
+        return this;
+    }
+
+    /**
+     * @return the renderers of the files written besides the file given to
+     *         {@link #writeFile(Path)}, by their file
+     */
+    public Map<Path, Renderer> getAdditionalOutputs() {
+        return Collections.unmodifiableMap(additionalOutputs);
+    }
+
+    /**
+     * Adds a file which is written with {@link #writeFile(Path)} as well, e.g.
+     * to write the diagram in another format
+     * 
+     * @param file     the file
+     * @param renderer the renderer of the file
+     * @returns this instance for a fluent like api
+     */
+    public DiagramWriter addOutput(Path file, Renderer renderer) {
+        additionalOutputs.put(file, renderer);
+        return this;
+    }
+
+    /**
+     * Writes the mermaid model to the given file and the
+     * {@link #getAdditionalOutputs() additional outputs}. The diagram is
+     * streamed into the files while it is rendered. If all renderers are
+     * {@link AbstractRenderer}s, all files are written with one walk over the
+     * model.
      * 
      * @param file the file to write to
      * @throws IOException
      */
     public void writeFile(Path file) throws IOException {
-        try (FileWriter writer = new FileWriter(file.toFile())) {
-            writeFile(writer);
+        Map<Path, Renderer> outputs = new LinkedHashMap<>();
+        outputs.put(file, renderer);
+        outputs.putAll(additionalOutputs);
+        if (outputs.size() > 1 && outputs.values().stream().allMatch(AbstractRenderer.class::isInstance)) {
+            writeFilesInOneWalk(outputs);
+            return;
+        }
+        for (Map.Entry<Path, Renderer> output : outputs.entrySet()) {
+            writeFile(output.getKey(), output.getValue());
+        }
+    }
+
+    /**
+     * Writes the model to a file
+     * 
+     * @param file     the file to write to
+     * @param renderer the renderer of the file
+     * @throws IOException if the file couldn't be written
+     */
+    private void writeFile(Path file, Renderer renderer) throws IOException {
+        WriteEvent event = new WriteEvent();
+        event.begin();
+        CountingAppendable out;
+        try (Writer writer = new BufferedWriter(new FileWriter(file.toFile()))) {
+            out = new CountingAppendable(writer);
+            renderer.render(model, umlOptions, out);
         }
+        event.end();
+        commitWriteEvent(event, file, out);
+    }
+
+    /**
+     * Writes the model to several files with one walk over it
+     * 
+     * @param outputs the renderers by the file they write to
+     * @throws IOException if a file couldn't be written
+     * @see MultiFormatRenderer
+     */
+    private void writeFilesInOneWalk(Map<Path, Renderer> outputs) throws IOException {
+        WriteEvent event = new WriteEvent();
+        event.begin();
+        MultiFormatRenderer multiFormatRenderer = new MultiFormatRenderer();
+        Map<Path, CountingAppendable> outs = new LinkedHashMap<>();
+        List<Writer> writers = new ArrayList<>();
+        try {
+            for (Map.Entry<Path, Renderer> output : outputs.entrySet()) {
+                Writer writer = new BufferedWriter(new FileWriter(output.getKey().toFile()));
+                writers.add(writer);
+                CountingAppendable out = new CountingAppendable(writer);
+                outs.put(output.getKey(), out);
+                multiFormatRenderer.addOutput((AbstractRenderer) output.getValue(), out);
+            }
+            multiFormatRenderer.render(model, umlOptions);
+        } finally {
+            closeAll(writers);
+        }
+        event.end();
+        for (Map.Entry<Path, CountingAppendable> out : outs.entrySet()) {
+            commitWriteEvent(event, out.getKey(), out.getValue());
+        }
+    }
+
+    /**
+     * Closes all writers, even if one of them can't be closed
+     * 
+     * @param writers the writers to close
+     * @throws IOException if a writer couldn't be closed
+     */
+    private void closeAll(List<Writer> writers) throws IOException {
+        IOException exception = null;
+        for (Writer writer : writers) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        if (exception != null)
+            throw exception;
+    }
+
+    /**
+     * Commits a write event of a file if it is enabled
+     * 
+     * @param event the ended event
+     * @param file  the written file
+     * @param out   the output the file was written through
+     */
+    private void commitWriteEvent(WriteEvent event, Path file, CountingAppendable out) {
+        if (!event.shouldCommit())
+            return;
+        event.path = file.toString();
+        event.typeCount = (int) model.getAllTypes().count();
+        event.characterCount = out.getCharacterCount();
+        event.commit();
     }
 
     /**
@@ -58,7 +225,7 @@ public class DiagramWriter {
      * @throws IOException
      */
     public void writeFile(FileWriter fileWriter) throws IOException {
-        fileWriter.write(renderer.render(model, umlOptions));
+        renderer.render(model, umlOptions, fileWriter);
     }
 
 }
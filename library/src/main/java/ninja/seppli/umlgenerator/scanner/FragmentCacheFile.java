@@ -0,0 +1,362 @@
+package ninja.seppli.umlgenerator.scanner;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import ninja.seppli.umlgenerator.model.ExecutableModel;
+import ninja.seppli.umlgenerator.model.FieldModel;
+import ninja.seppli.umlgenerator.model.PackageModel;
+import ninja.seppli.umlgenerator.model.ParameterModel;
+import ninja.seppli.umlgenerator.model.TypeKind;
+import ninja.seppli.umlgenerator.model.TypeModel;
+import ninja.seppli.umlgenerator.model.TypeRef;
+import ninja.seppli.umlgenerator.options.VisibilityLevel;
+
+/**
+ * Persists the fragments extracted from the source files, so that a new
+ * {@link DiagramGenerator}, e.g. in the next build, doesn't have to parse the
+ * files which didn't change. Every fragment is stored with the content hash,
+ * the size and the modification time of its file. A quarantined file is stored
+ * without a fragment, so it stays quarantined until its content changes.
+ *
+ * The file starts with a fingerprint of everything the fragments depend on,
+ * like the options. A file with another fingerprint or of another format
+ * version is ignored. All strings are stored once in a string table and
+ * referenced by their index, which keeps the file compact, as the same type
+ * names appear over and over again. The file is read through a memory map.
+ */
+public class FragmentCacheFile {
+    /**
+     * the first int of a cache file
+     */
+    private static final int MAGIC = 0x554d4c46;
+
+    /**
+     * the version of the format, a file of another version is ignored
+     */
+    private static final int FORMAT_VERSION = 3;
+
+    /**
+     * the index written instead of a string or a reference which is null
+     */
+    private static final int NULL = -1;
+
+    /**
+     * Constructor
+     */
+    private FragmentCacheFile() {
+    }
+
+    /**
+     * Writes the given entries to the cache file. The file is written next to
+     * the cache file and then moved over it, so a reader never sees a partially
+     * written file.
+     *
+     * @param file        the cache file
+     * @param fingerprint the fingerprint of everything the fragments depend on
+     * @param entries     the entries
+     * @throws IOException if the file couldn't be written
+     */
+    public static void write(Path file, String fingerprint, Collection<Entry> entries) throws IOException {
+        EntryWriter writer = new EntryWriter();
+        writer.writeEntries(entries);
+
+        Path absoluteFile = file.toAbsolutePath();
+        Files.createDirectories(absoluteFile.getParent());
+        Path tempFile = Files.createTempFile(absoluteFile.getParent(), absoluteFile.getFileName().toString(),
+                ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                writeString(out, fingerprint);
+                out.writeInt(writer.strings.size());
+                for (String string : writer.strings.keySet()) {
+                    writeString(out, string);
+                }
+                writer.body.writeTo(out);
+            }
+            Files.move(tempFile, absoluteFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Reads the entries of the cache file
+     *
+     * @param file        the cache file
+     * @param fingerprint the fingerprint the entries have to be written with
+     * @return the entries, empty if the file doesn't exist, has another
+     *         fingerprint or another format version
+     * @throws IOException if the file couldn't be read or is corrupt
+     */
+    public static List<Entry> read(Path file, String fingerprint) throws IOException {
+        if (!Files.isRegularFile(file))
+            return List.of();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION)
+                return List.of();
+            if (!readString(buffer).equals(fingerprint))
+                return List.of();
+            String[] strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = readString(buffer);
+            }
+            return new EntryReader(buffer, strings).readEntries();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("The cache file \"" + file + "\" is corrupt", e);
+        }
+    }
+
+    /**
+     * Writes a string, its length followed by its UTF-8 bytes
+     *
+     * @param out    the stream
+     * @param string the string
+     * @throws IOException if it couldn't be written
+     */
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutputStream, String)}
+     *
+     * @param buffer the buffer
+     * @return the string
+     */
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The cached fragment of a file
+     *
+     * @param path         the path of the file
+     * @param hash         the content hash of the file
+     * @param size         the size of the file, -1 if it is in an archive
+     * @param lastModified the modification time of the file in milliseconds, -1
+     *                     if it is in an archive
+     * @param fragment     the fragment extracted from the file, null if the file
+     *                     is quarantined
+     */
+    public record Entry(Path path, String hash, long size, long lastModified, PackageModel fragment) {
+    }
+
+    /**
+     * Writes the entries into a body and collects the strings of the string
+     * table
+     */
+    private static class EntryWriter {
+        /**
+         * the index of every string
+         */
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+
+        /**
+         * the written body
+         */
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        /**
+         * the stream writing to the body
+         */
+        private final DataOutputStream out = new DataOutputStream(body);
+
+        void writeEntries(Collection<Entry> entries) throws IOException {
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                writeString(entry.path().toString());
+                writeString(entry.hash());
+                out.writeLong(entry.size());
+                out.writeLong(entry.lastModified());
+                out.writeBoolean(entry.fragment() != null);
+                if (entry.fragment() != null) {
+                    writeString(entry.fragment().qualifiedName());
+                    writeList(entry.fragment().types(), this::writeType);
+                }
+            }
+            out.flush();
+        }
+
+        void writeType(TypeModel type) throws IOException {
+            writeEnum(type.kind());
+            writeString(type.qualifiedName());
+            writeString(type.simpleName());
+            writeEnum(type.visibility());
+            out.writeBoolean(type.isAbstract());
+            writeList(type.typeParameters(), this::writeString);
+            writeTypeRef(type.superclass());
+            writeList(type.superInterfaces(), this::writeTypeRef);
+            writeList(type.fields(), field -> {
+                writeString(field.name());
+                writeEnum(field.visibility());
+                out.writeBoolean(field.isStatic());
+                writeTypeRef(field.type());
+            });
+            writeList(type.constructors(), this::writeExecutable);
+            writeList(type.methods(), this::writeExecutable);
+            writeList(type.nestedTypes(), this::writeType);
+        }
+
+        void writeExecutable(ExecutableModel executable) throws IOException {
+            writeString(executable.name());
+            writeEnum(executable.visibility());
+            out.writeBoolean(executable.isAbstract());
+            out.writeBoolean(executable.isStatic());
+            writeTypeRef(executable.type());
+            writeList(executable.parameters(), parameter -> {
+                writeString(parameter.name());
+                writeTypeRef(parameter.type());
+            });
+        }
+
+        void writeTypeRef(TypeRef typeRef) throws IOException {
+            if (typeRef == null) {
+                out.writeInt(NULL);
+                return;
+            }
+            writeString(typeRef.qualifiedName());
+            writeString(typeRef.simpleName());
+            writeList(typeRef.typeArguments(), this::writeTypeRef);
+            writeList(typeRef.candidates(), this::writeString);
+        }
+
+        void writeEnum(Enum<?> value) throws IOException {
+            out.writeByte(value == null ? NULL : value.ordinal());
+        }
+
+        void writeString(String string) throws IOException {
+            out.writeInt(string == null ? NULL : strings.computeIfAbsent(string, key -> strings.size()));
+        }
+
+        <T> void writeList(List<T> list, ElementWriter<T> elementWriter) throws IOException {
+            out.writeInt(list.size());
+            for (T element : list) {
+                elementWriter.write(element);
+            }
+        }
+    }
+
+    /**
+     * Writes an element of a list
+     *
+     * @param <T> the type of the element
+     */
+    @FunctionalInterface
+    private interface ElementWriter<T> {
+        void write(T element) throws IOException;
+    }
+
+    /**
+     * Reads the entries from the body of a mapped file
+     */
+    private static class EntryReader {
+        /**
+         * the mapped body
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * the string table
+         */
+        private final String[] strings;
+
+        /**
+         * the read references, so equal references are only kept once
+         */
+        private final Map<TypeRef, TypeRef> typeRefs = new HashMap<>();
+
+        EntryReader(ByteBuffer buffer, String[] strings) {
+            this.buffer = buffer;
+            this.strings = strings;
+        }
+
+        List<Entry> readEntries() {
+            int count = buffer.getInt();
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Path path = Paths.get(readString());
+                String hash = readString();
+                long size = buffer.getLong();
+                long lastModified = buffer.getLong();
+                PackageModel fragment = readBoolean() ? new PackageModel(readString(), readList(this::readType)) : null;
+                entries.add(new Entry(path, hash, size, lastModified, fragment));
+            }
+            return entries;
+        }
+
+        TypeModel readType() {
+            return new TypeModel(readEnum(TypeKind.values()), readString(), readString(),
+                    readEnum(VisibilityLevel.values()), readBoolean(), readList(this::readString), readTypeRef(),
+                    readList(this::readTypeRef), readList(this::readField), readList(this::readExecutable),
+                    readList(this::readExecutable), readList(this::readType));
+        }
+
+        FieldModel readField() {
+            return new FieldModel(readString(), readEnum(VisibilityLevel.values()), readBoolean(), readTypeRef());
+        }
+
+        ExecutableModel readExecutable() {
+            return new ExecutableModel(readString(), readEnum(VisibilityLevel.values()), readBoolean(),
+                    readBoolean(), readTypeRef(), readList(() -> new ParameterModel(readString(), readTypeRef())));
+        }
+
+        TypeRef readTypeRef() {
+            int qualifiedName = buffer.getInt();
+            if (qualifiedName == NULL)
+                return null;
+            TypeRef typeRef = new TypeRef(strings[qualifiedName], readString(), readList(this::readTypeRef),
+                    readList(this::readString));
+            return typeRefs.computeIfAbsent(typeRef, key -> key);
+        }
+
+        <E extends Enum<E>> E readEnum(E[] values) {
+            byte ordinal = buffer.get();
+            return ordinal == NULL ? null : values[ordinal];
+        }
+
+        boolean readBoolean() {
+            return buffer.get() != 0;
+        }
+
+        String readString() {
+            int index = buffer.getInt();
+            return index == NULL ? null : strings[index];
+        }
+
+        <T> List<T> readList(Supplier<T> elementReader) {
+            int size = buffer.getInt();
+            List<T> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(elementReader.get());
+            }
+            return list;
+        }
+    }
+}
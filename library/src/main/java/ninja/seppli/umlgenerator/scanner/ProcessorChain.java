@@ -0,0 +1,157 @@
+package ninja.seppli.umlgenerator.scanner;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import spoon.SpoonException;
+import spoon.processing.ProcessingManager;
+import spoon.processing.Processor;
+import spoon.processing.TraversalStrategy;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.visitor.CtScanner;
+
+/**
+ * A {@link ProcessingManager} which runs all of its processors in a single
+ * traversal of the model. Every element is handed to each processor which is
+ * interested in it, instead of walking the whole model once per processor like
+ * the {@link spoon.support.QueueProcessingManager} does.
+ */
+public class ProcessorChain implements ProcessingManager {
+    /**
+     * the factory of the processed model
+     */
+    private Factory factory;
+
+    /**
+     * the processors in the order they were added
+     */
+    private List<Processor<?>> processors = new ArrayList<>();
+
+    /**
+     * Constructor
+     *
+     * @param factory the factory of the model which will be processed
+     */
+    public ProcessorChain(Factory factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public Factory getFactory() {
+        return factory;
+    }
+
+    @Override
+    public void setFactory(Factory factory) {
+        this.factory = factory;
+        processors.forEach(processor -> processor.setFactory(factory));
+    }
+
+    @Override
+    public void addProcessor(Class<? extends Processor<?>> type) {
+        try {
+            addProcessor(type.getDeclaredConstructor().newInstance());
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException
+                | NoSuchMethodException e) {
+            throw new SpoonException("Unable to instantiate processor \"" + type.getName() + "\"", e);
+        }
+    }
+
+    @Override
+    public boolean addProcessor(Processor<?> processor) {
+        processor.setFactory(factory);
+        return processors.add(processor);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void addProcessor(String qualifiedName) {
+        try {
+            addProcessor((Class<? extends Processor<?>>) Class.forName(qualifiedName));
+        } catch (ClassNotFoundException e) {
+            throw new SpoonException("Unable to load processor \"" + qualifiedName + "\"", e);
+        }
+    }
+
+    @Override
+    public Collection<Processor<?>> getProcessors() {
+        return Collections.unmodifiableList(processors);
+    }
+
+    /**
+     * @return if no processor was added to this chain
+     */
+    public boolean isEmpty() {
+        return processors.isEmpty();
+    }
+
+    @Override
+    public void process(Collection<? extends CtElement> elements) {
+        if (processors.isEmpty())
+            return;
+        processors.forEach(Processor::init);
+        processors.forEach(Processor::process);
+        ChainScanner scanner = new ChainScanner();
+        for (CtElement element : elements) {
+            scanner.scan(element);
+        }
+        processors.forEach(Processor::processingDone);
+    }
+
+    @Override
+    public void process(CtElement element) {
+        process(List.of(element));
+    }
+
+    /**
+     * Checks if the processor handles elements of the given type
+     *
+     * @param processor the processor
+     * @param element   the element
+     * @return if the element can be handed to the processor
+     */
+    private static boolean canBeProcessed(Processor<?> processor, CtElement element) {
+        for (Class<? extends CtElement> type : processor.getProcessedElementTypes()) {
+            if (type.isInstance(element))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Hands the element to the processor, if the processor is interested in it
+     *
+     * @param processor the processor
+     * @param element   the element
+     */
+    @SuppressWarnings("unchecked")
+    private static <E extends CtElement> void processElement(Processor<E> processor, CtElement element) {
+        if (canBeProcessed(processor, element) && processor.isToBeProcessed((E) element)) {
+            processor.process((E) element);
+        }
+    }
+
+    /**
+     * The scanner which dispatches every visited element to all processors
+     */
+    private class ChainScanner extends CtScanner {
+        @Override
+        public void scan(CtElement element) {
+            if (element == null)
+                return;
+            for (Processor<?> processor : processors) {
+                if (processor.getTraversalStrategy() == TraversalStrategy.PRE_ORDER)
+                    processElement(processor, element);
+            }
+            super.scan(element);
+            for (Processor<?> processor : processors) {
+                if (processor.getTraversalStrategy() == TraversalStrategy.POST_ORDER)
+                    processElement(processor, element);
+            }
+        }
+    }
+}
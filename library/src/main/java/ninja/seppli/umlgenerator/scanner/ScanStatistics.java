@@ -0,0 +1,500 @@
+package ninja.seppli.umlgenerator.scanner;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+
+import ninja.seppli.umlgenerator.jfr.ScanEvent;
+import ninja.seppli.umlgenerator.jfr.ScanPhaseEvent;
+import ninja.seppli.umlgenerator.model.DiagramModel;
+
+/**
+ * What a scan cost: the wall time of every phase, how many files and bytes
+ * were read and how big the result is. A {@link DiagramScanner} creates new
+ * statistics for every scan, they are available afterwards through
+ * {@link DiagramScanner#getStatistics()}.
+ *
+ * The peak heap is sampled while the scan runs: the heap usage before every
+ * garbage collection and at the end of the scan. The peak usages of the memory
+ * pools aren't reset, as they are shared by the whole JVM and scans may run at
+ * the same time, e.g. in a build with parallel tasks. The value covers the
+ * scan, but also everything else the JVM did at the same time. Parts of a scan
+ * may measure their own peak with {@link #resetPeakHeap()}, the peak of the
+ * whole scan is kept.
+ *
+ * The scan and its phases are also emitted as flight recorder events, see
+ * {@link ScanEvent} and {@link ScanPhaseEvent}.
+ */
+public class ScanStatistics {
+    /**
+     * the timed phases of a scan
+     */
+    public enum Phase {
+        /**
+         * expanding the added paths to the files to scan and reading them
+         */
+        DISCOVERY("discovery"),
+        /**
+         * reading and writing the persistent cache
+         */
+        CACHE("cache"),
+        /**
+         * parsing the changed files into a spoon model or reading the class files
+         */
+        PARSING("parsing"),
+        /**
+         * building the model from the parsed files, the diagram model or the
+         * spoon model of a scan
+         */
+        MODEL_BUILD("model build"),
+        /**
+         * running the processors on the spoon model
+         */
+        PROCESSING("processing"),
+        /**
+         * pretty-printing the spoon model
+         */
+        PRETTY_PRINTING("pretty-printing");
+
+        /**
+         * the name in the summary
+         */
+        private String displayName;
+
+        /**
+         * Constructor
+         *
+         * @param displayName the name in the summary
+         */
+        private Phase(String displayName) {
+            this.displayName = displayName;
+        }
+
+        /**
+         * @return the name in the summary
+         */
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * the wall time of every phase which was run in nanoseconds
+     */
+    private Map<Phase, Long> phaseNanos = new EnumMap<>(Phase.class);
+
+    /**
+     * when the scan started, see {@link System#nanoTime()}
+     */
+    private long startNanos;
+
+    /**
+     * the wall time of the whole scan in nanoseconds, -1 while it runs
+     */
+    private long totalNanos = -1;
+
+    /**
+     * how many files were found
+     */
+    private int files;
+
+    /**
+     * how many of the found files were parsed, the others were cached
+     */
+    private int parsedFiles;
+
+    /**
+     * how many of the found files are quarantined and left out
+     */
+    private int quarantinedFiles;
+
+    /**
+     * how many bytes were read
+     */
+    private long bytes;
+
+    /**
+     * how many types, including nested ones, the result has
+     */
+    private int types;
+
+    /**
+     * how many fields, constructors and methods the result has
+     */
+    private int members;
+
+    /**
+     * the peak heap usage of the whole scan in bytes
+     */
+    private AtomicLong peakHeapBytes = new AtomicLong();
+
+    /**
+     * the peak heap usage since the last {@link #resetPeakHeap()} in bytes
+     */
+    private AtomicLong windowPeakHeapBytes = new AtomicLong();
+
+    /**
+     * samples the heap usage before every garbage collection while the scan runs
+     */
+    private NotificationListener gcListener = this::sampleGarbageCollection;
+
+    /**
+     * the flight recorder event of the whole scan
+     */
+    private ScanEvent scanEvent = new ScanEvent();
+
+    /**
+     * Starts the statistics of a scan
+     *
+     * @return the new statistics
+     */
+    public static ScanStatistics start() {
+        ScanStatistics statistics = new ScanStatistics();
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter emitter) {
+                emitter.addNotificationListener(statistics.gcListener, null, null);
+            }
+        }
+        statistics.sampleHeap();
+        statistics.startNanos = System.nanoTime();
+        statistics.scanEvent.begin();
+        return statistics;
+    }
+
+    /**
+     * Starts to time a phase. A phase may be timed more than once, the times are
+     * added up.
+     *
+     * @param phase the phase
+     * @return the timer, which has to be ended when the phase is done
+     */
+    public PhaseTimer startPhase(Phase phase) {
+        return new PhaseTimer(phase);
+    }
+
+    /**
+     * Ends the scan and counts the types and members of the result
+     *
+     * @param model the scanned model
+     * @return this instance for a fluent like api
+     */
+    public ScanStatistics finish(DiagramModel model) {
+        model.getAllTypes().forEach(type -> {
+            types++;
+            members += type.fields().size() + type.constructors().size() + type.methods().size();
+        });
+        return finish();
+    }
+
+    /**
+     * Ends the scan
+     *
+     * @return this instance for a fluent like api
+     */
+    public ScanStatistics finish() {
+        totalNanos = System.nanoTime() - startNanos;
+        sampleHeap();
+        removeGcListener();
+        scanEvent.end();
+        if (scanEvent.shouldCommit()) {
+            scanEvent.fileCount = files;
+            scanEvent.parsedFileCount = parsedFiles;
+            scanEvent.byteCount = bytes;
+            scanEvent.typeCount = types;
+            scanEvent.memberCount = members;
+            scanEvent.commit();
+        }
+        return this;
+    }
+
+    /**
+     * Ends a scan which failed, its garbage collections aren't sampled anymore
+     * and nothing is recorded. Does nothing if the scan was finished, so a
+     * scanner calls it in a finally block.
+     */
+    public void abort() {
+        if (totalNanos >= 0)
+            return;
+        totalNanos = System.nanoTime() - startNanos;
+        removeGcListener();
+    }
+
+    /**
+     * Stops sampling the garbage collections
+     */
+    private void removeGcListener() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter emitter) {
+                try {
+                    emitter.removeNotificationListener(gcListener);
+                } catch (ListenerNotFoundException e) {
+                    // the collector was added after the scan started
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the peak heap usage since the scan started or since the last call
+     * and starts a new window, so that the next call only returns the peak of
+     * what happened in between. Only the window of these statistics is reset,
+     * not the peaks of the JVM.
+     *
+     * @return the peak heap usage in bytes
+     */
+    public long resetPeakHeap() {
+        long used = sampleHeap();
+        return windowPeakHeapBytes.getAndSet(used);
+    }
+
+    /**
+     * Samples the current heap usage
+     *
+     * @return the current heap usage in bytes
+     */
+    private long sampleHeap() {
+        long used = getUsedHeap();
+        recordHeap(used);
+        return used;
+    }
+
+    /**
+     * Records the heap usage before a garbage collection, which is the highest
+     * usage since the previous one
+     *
+     * @param notification the notification of the collector
+     * @param handback     unused
+     */
+    private void sampleGarbageCollection(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType()))
+            return;
+        GcInfo gcInfo = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData())
+                .getGcInfo();
+        Set<String> heapPoolNames = heapPools().map(MemoryPoolMXBean::getName).collect(Collectors.toSet());
+        recordHeap(gcInfo.getMemoryUsageBeforeGc().entrySet().stream()
+                .filter(entry -> heapPoolNames.contains(entry.getKey()))
+                .mapToLong(entry -> entry.getValue().getUsed()).sum());
+    }
+
+    /**
+     * @param used a sampled heap usage in bytes
+     */
+    private void recordHeap(long used) {
+        peakHeapBytes.accumulateAndGet(used, Math::max);
+        windowPeakHeapBytes.accumulateAndGet(used, Math::max);
+    }
+
+    /**
+     * @return the current heap usage in bytes
+     */
+    public static long getUsedHeap() {
+        return heapPools().map(MemoryPoolMXBean::getUsage).mapToLong(MemoryUsage::getUsed).sum();
+    }
+
+    /**
+     * @return the memory pools of the heap
+     */
+    private static Stream<MemoryPoolMXBean> heapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream().filter(pool -> pool.getType() == MemoryType.HEAP)
+                .filter(MemoryPoolMXBean::isValid);
+    }
+
+    /**
+     * @param phase the phase
+     * @return the wall time of the phase, zero if it didn't run
+     */
+    public Duration getDuration(Phase phase) {
+        return Duration.ofNanos(phaseNanos.getOrDefault(phase, 0L));
+    }
+
+    /**
+     * @return the wall time of the whole scan
+     */
+    public Duration getTotalDuration() {
+        return Duration.ofNanos(Math.max(0, totalNanos));
+    }
+
+    /**
+     * @return how many files were found
+     */
+    public int getFiles() {
+        return files;
+    }
+
+    /**
+     * @param files how many files were found
+     */
+    public void setFiles(int files) {
+        this.files = files;
+    }
+
+    /**
+     * @return how many of the found files were parsed, the others were cached
+     */
+    public int getParsedFiles() {
+        return parsedFiles;
+    }
+
+    /**
+     * @param parsedFiles how many of the found files were parsed
+     */
+    public void setParsedFiles(int parsedFiles) {
+        this.parsedFiles = parsedFiles;
+    }
+
+    /**
+     * @return how many of the found files are quarantined and left out
+     */
+    public int getQuarantinedFiles() {
+        return quarantinedFiles;
+    }
+
+    /**
+     * @param quarantinedFiles how many of the found files are quarantined
+     */
+    public void setQuarantinedFiles(int quarantinedFiles) {
+        this.quarantinedFiles = quarantinedFiles;
+    }
+
+    /**
+     * @return how many bytes were read
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @param readBytes how many bytes were read additionally
+     */
+    public void addBytes(long readBytes) {
+        this.bytes += readBytes;
+    }
+
+    /**
+     * @return how many types, including nested ones, the result has
+     */
+    public int getTypes() {
+        return types;
+    }
+
+    /**
+     * @param types how many types, including nested ones, the result has
+     */
+    public void setTypes(int types) {
+        this.types = types;
+    }
+
+    /**
+     * @return how many fields, constructors and methods the result has
+     */
+    public int getMembers() {
+        return members;
+    }
+
+    /**
+     * @param members how many fields, constructors and methods the result has
+     */
+    public void setMembers(int members) {
+        this.members = members;
+    }
+
+    /**
+     * @return the peak heap usage in bytes
+     */
+    public long getPeakHeapBytes() {
+        return peakHeapBytes.get();
+    }
+
+    /**
+     * Returns a one line summary like {@code scanned 120 files (12 parsed, 1.2
+     * MiB), 130 types, 950 members in 1234 ms (discovery 10 ms, parsing 1100
+     * ms), peak heap 256.0 MiB}
+     */
+    @Override
+    public String toString() {
+        String phases = phaseNanos.entrySet().stream()
+                .map(entry -> entry.getKey().getDisplayName() + " " + entry.getValue() / 1_000_000 + " ms")
+                .collect(Collectors.joining(", "));
+        String quarantined = quarantinedFiles > 0 ? ", " + quarantinedFiles + " quarantined" : "";
+        return String.format("scanned %d files (%d parsed%s, %s), %d types, %d members in %d ms (%s), peak heap %s",
+                files, parsedFiles, quarantined, formatBytes(bytes), types, members, getTotalDuration().toMillis(),
+                phases, formatBytes(peakHeapBytes.get()));
+    }
+
+    /**
+     * Formats an amount of bytes
+     *
+     * @param amount the amount of bytes
+     * @return the formatted amount, like {@code 1.2 MiB}
+     */
+    private static String formatBytes(long amount) {
+        if (amount < 1024)
+            return amount + " B";
+        if (amount < 1024 * 1024)
+            return String.format("%.1f KiB", amount / 1024.0);
+        return String.format("%.1f MiB", amount / (1024.0 * 1024.0));
+    }
+
+    /**
+     * Times a phase and emits a {@link ScanPhaseEvent} for it
+     */
+    public class PhaseTimer {
+        /**
+         * the timed phase
+         */
+        private final Phase phase;
+
+        /**
+         * when the phase started, see {@link System#nanoTime()}
+         */
+        private final long phaseStartNanos;
+
+        /**
+         * the flight recorder event of the phase
+         */
+        private final ScanPhaseEvent event = new ScanPhaseEvent();
+
+        /**
+         * Constructor
+         *
+         * @param phase the timed phase
+         */
+        private PhaseTimer(Phase phase) {
+            this.phase = phase;
+            this.phaseStartNanos = System.nanoTime();
+            event.begin();
+        }
+
+        /**
+         * Ends the phase and adds its time to the statistics
+         */
+        public void end() {
+            phaseNanos.merge(phase, System.nanoTime() - phaseStartNanos, Long::sum);
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = phase.getDisplayName();
+                event.fileCount = files;
+                event.byteCount = bytes;
+                event.commit();
+            }
+        }
+    }
+}
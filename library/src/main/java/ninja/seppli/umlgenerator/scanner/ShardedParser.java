@@ -0,0 +1,625 @@
+package ninja.seppli.umlgenerator.scanner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ninja.seppli.umlgenerator.jfr.FileParseEvent;
+import ninja.seppli.umlgenerator.model.DiagramModelMerger;
+import ninja.seppli.umlgenerator.model.PackageModel;
+import ninja.seppli.umlgenerator.options.GeneralUmlOptions;
+import spoon.Launcher;
+import spoon.SpoonException;
+import spoon.compiler.SpoonResource;
+import spoon.reflect.declaration.CtCompilationUnit;
+import spoon.reflect.declaration.CtType;
+import spoon.support.compiler.FileSystemFile;
+import spoon.support.compiler.SpoonProgress;
+
+/**
+ * Parses source files in shards. Every shard is parsed by its own
+ * {@link Launcher} on a bounded thread pool and the types of every file are
+ * extracted right away, so the spoon model of a shard can be garbage collected
+ * as soon as the shard is done. The resulting fragments are merged with the
+ * {@link DiagramModelMerger}.
+ *
+ * With a {@link #setFileTimeout(Duration) file timeout}, every compilation
+ * unit has its own budget. Spoon reports progress after every unit in every
+ * phase, a shard is given up if the unit it works on takes longer than the
+ * timeout. The worker of a shard which is given up aborts at the next progress,
+ * at most {@link #MAX_ABANDONED_WORKERS} such workers may still run in the
+ * whole JVM. If that many already run, a shard waits for its worker as long as
+ * a file may take and quarantines all of its suspects if the worker still
+ * doesn't abort. JDT isn't interrupted, an interrupt closes the channels of the
+ * shared JRT image and fails every later parse. The files the shard didn't
+ * finish in the phase it was given up in are the suspects. A single suspect is quarantined
+ * right away, several suspects are parsed on their own to find the ones which
+ * time out or fail alone. The quarantined files get no fragment, so the rest of
+ * the files are still parsed in a predictable time.
+ */
+public class ShardedParser {
+    /**
+     * how many workers of shards which were given up may still run
+     */
+    public static final int MAX_ABANDONED_WORKERS = 4;
+
+    /**
+     * the permits of the workers which were given up but still run
+     */
+    private static final Semaphore ABANDONED_WORKERS = new Semaphore(MAX_ABANDONED_WORKERS);
+
+    /**
+     * logger
+     */
+    private Logger logger = LoggerFactory.getLogger(getClass());
+
+    /**
+     * creates the launcher of a shard
+     */
+    private Supplier<Launcher> launcherFactory;
+
+    /**
+     * creates the resource spoon parses for a file
+     */
+    private Function<Path, SpoonResource> resourceFactory;
+
+    /**
+     * how many shards are parsed at the same time
+     */
+    private int parallelism;
+
+    /**
+     * how many files a shard has at least
+     */
+    private int minShardSize;
+
+    /**
+     * the options the members are filtered with while extracting, null if all
+     * members are extracted
+     */
+    private GeneralUmlOptions visibilityFilter;
+
+    /**
+     * how long spoon may take for one file, null if there is no limit
+     */
+    private Duration fileTimeout;
+
+    /**
+     * the files which timed out or failed on their own
+     */
+    private Set<Path> quarantinedFiles = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructor
+     *
+     * @param launcherFactory creates the launcher of a shard
+     * @param parallelism     how many shards are parsed at the same time
+     * @param minShardSize    how many files a shard has at least, so that small
+     *                        inputs aren't split into shards which cost more
+     *                        than they save
+     */
+    public ShardedParser(Supplier<Launcher> launcherFactory, int parallelism, int minShardSize) {
+        this(launcherFactory, path -> new FileSystemFile(path.toFile()), parallelism, minShardSize);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param launcherFactory creates the launcher of a shard
+     * @param resourceFactory creates the resource spoon parses for a file, like
+     *                        a virtual file for a source in an archive, or
+     *                        returns null if the file doesn't have to be parsed
+     * @param parallelism     how many shards are parsed at the same time
+     * @param minShardSize    how many files a shard has at least
+     */
+    public ShardedParser(Supplier<Launcher> launcherFactory, Function<Path, SpoonResource> resourceFactory,
+            int parallelism, int minShardSize) {
+        this.launcherFactory = launcherFactory;
+        this.resourceFactory = resourceFactory;
+        this.parallelism = Math.max(1, parallelism);
+        this.minShardSize = Math.max(1, minShardSize);
+    }
+
+    /**
+     * Sets the options the members of the parsed types are filtered with, only
+     * the members visible in the diagram are extracted
+     *
+     * @param visibilityFilter the options, null extracts all members
+     * @returns this instance for a fluent like api
+     * @see DiagramModelExtractor#DiagramModelExtractor(GeneralUmlOptions)
+     */
+    public ShardedParser setVisibilityFilter(GeneralUmlOptions visibilityFilter) {
+        this.visibilityFilter = visibilityFilter;
+        return this;
+    }
+
+    /**
+     * Sets how long spoon may take for one file. A file which takes longer or
+     * fails on its own is quarantined.
+     *
+     * @param fileTimeout the time a file may take, null or zero if there is no
+     *                    limit and a failing file fails the whole parse
+     * @returns this instance for a fluent like api
+     */
+    public ShardedParser setFileTimeout(Duration fileTimeout) {
+        this.fileTimeout = fileTimeout == null || fileTimeout.isZero() ? null : fileTimeout;
+        return this;
+    }
+
+    /**
+     * @return the files which were quarantined by this parser, because they took
+     *         longer than the {@link #setFileTimeout(Duration) file timeout} or
+     *         failed on their own
+     */
+    public Set<Path> getQuarantinedFiles() {
+        return Collections.unmodifiableSet(quarantinedFiles);
+    }
+
+    /**
+     * Parses the given files
+     *
+     * @param files the files to parse
+     * @return a fragment with the declared types of every file by the path of the
+     *         file, the quarantined and skipped files have none
+     * @throws SpoonException if a shard couldn't be parsed and there is no file
+     *                        timeout
+     */
+    public Map<Path, PackageModel> parse(Collection<Path> files) {
+        List<List<Path>> shards = createShards(files);
+        if (shards.isEmpty())
+            return Map.of();
+        // the guarded shards run on their own workers, the idle ones end once the files are parsed
+        ExecutorService workers = Executors.newCachedThreadPool(new ParserThreadFactory("uml-parser-guarded-"));
+        try {
+            if (shards.size() == 1)
+                return parseGuarded(shards.get(0), workers);
+            logger.info("parsing {} files in {} shards", files.size(), shards.size());
+            return parseShards(shards, workers);
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    /**
+     * Parses the shards on a bounded thread pool
+     *
+     * @param shards  the shards
+     * @param workers the workers the guarded shards run on
+     * @return a fragment for every file which isn't quarantined
+     */
+    private Map<Path, PackageModel> parseShards(List<List<Path>> shards, ExecutorService workers) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, shards.size()),
+                new ParserThreadFactory("uml-parser-"));
+        List<Future<Map<Path, PackageModel>>> futures = new ArrayList<>();
+        try {
+            for (List<Path> shard : shards) {
+                futures.add(executor.submit(() -> parseGuarded(shard, workers)));
+            }
+            Map<Path, PackageModel> fragments = new HashMap<>();
+            for (Future<Map<Path, PackageModel>> future : futures) {
+                fragments.putAll(future.get());
+            }
+            return fragments;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SpoonException("Parsing the shards was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException)
+                throw runtimeException;
+            throw new SpoonException("Couldn't parse a shard", e.getCause());
+        } finally {
+            // the shards which didn't start yet are dropped, the running ones aren't interrupted
+            futures.forEach(future -> future.cancel(false));
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Splits the files into shards of about the same size. The biggest files are
+     * distributed first, every file is added to the shard with the least bytes.
+     *
+     * @param files the files to split
+     * @return the shards, each in the order of the given files
+     */
+    List<List<Path>> createShards(Collection<Path> files) {
+        int shardCount = Math.max(1, Math.min(parallelism, files.size() / minShardSize));
+        Map<Path, Long> sizes = new HashMap<>();
+        Map<Path, Integer> order = new HashMap<>();
+        for (Path file : files) {
+            sizes.put(file, getSize(file));
+            order.putIfAbsent(file, order.size());
+        }
+        List<Path> bySize = files.stream().sorted(Comparator.comparing((Path file) -> sizes.get(file)).reversed()
+                .thenComparing(Comparator.naturalOrder())).collect(Collectors.toList());
+
+        PriorityQueue<Shard> queue = new PriorityQueue<>(
+                Comparator.comparingLong(Shard::getBytes).thenComparingInt(Shard::getIndex));
+        for (int i = 0; i < shardCount; i++) {
+            queue.add(new Shard(i));
+        }
+        for (Path file : bySize) {
+            Shard shard = queue.poll();
+            shard.add(file, sizes.get(file));
+            queue.add(shard);
+        }
+        return queue.stream().sorted(Comparator.comparingInt(Shard::getIndex)).map(Shard::getFiles)
+                .filter(shard -> !shard.isEmpty())
+                .map(shard -> shard.stream().sorted(Comparator.comparing(order::get)).collect(Collectors.toList()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Parses the files of one shard. With a file timeout, the shard is parsed on
+     * a worker, which is given up if the compilation unit spoon works on takes
+     * longer than the timeout. The suspects of a shard which is given up or
+     * fails are {@link #isolate(List, List, String, ExecutorService) isolated}.
+     *
+     * @param shardFiles the files of the shard
+     * @param workers    the workers the shard is parsed on
+     * @return a fragment for every file which isn't quarantined or skipped
+     */
+    private Map<Path, PackageModel> parseGuarded(List<Path> shardFiles, ExecutorService workers) {
+        // the resources are created before the timeout applies, so waiting for a slow disk doesn't count
+        Map<Path, SpoonResource> resources = createResources(shardFiles);
+        if (resources.isEmpty())
+            return Map.of();
+        if (fileTimeout == null)
+            return parseShard(resources, null);
+        List<Path> files = List.copyOf(resources.keySet());
+        WatchedProgress progress = new WatchedProgress(fileTimeout);
+        Future<Map<Path, PackageModel>> task = workers.submit(() -> {
+            try {
+                return parseShard(resources, progress);
+            } finally {
+                progress.finish();
+            }
+        });
+        String reason;
+        try {
+            while (true) {
+                long remaining = progress.getDeadline() - System.nanoTime();
+                if (remaining <= 0)
+                    break;
+                try {
+                    return task.get(remaining, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    // spoon may have finished a unit in the meantime
+                }
+            }
+            reason = "it took longer than " + fileTimeout.toMillis() + " ms to parse";
+        } catch (InterruptedException e) {
+            progress.cancel();
+            Thread.currentThread().interrupt();
+            throw new SpoonException("Parsing the shard was interrupted", e);
+        } catch (ExecutionException e) {
+            reason = "it couldn't be parsed: " + e.getCause();
+        }
+        // the worker aborts when spoon reports its next progress
+        progress.cancel();
+        boolean workerStopped = progress.abandon() || awaitWorker(task);
+        List<Path> suspects = progress.getUnfinishedFiles(files);
+        return isolate(files, suspects.isEmpty() ? files : suspects, reason, workerStopped, workers);
+    }
+
+    /**
+     * Waits for the worker of a shard which was given up, because too many
+     * workers which were given up still run. It is waited at most as long as
+     * a file may take.
+     *
+     * @param task the shard of the worker
+     * @return if the worker aborted in time
+     */
+    private boolean awaitWorker(Future<Map<Path, PackageModel>> task) {
+        logger.warn("{} parsers of given up shards still run, waiting up to {} ms for this one to abort",
+                MAX_ABANDONED_WORKERS, fileTimeout.toMillis());
+        try {
+            task.get(fileTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SpoonException("Parsing the shard was interrupted", e);
+        } catch (ExecutionException e) {
+            // the worker aborted
+        } catch (TimeoutException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Finds the files of a shard which was given up or failed. A single suspect
+     * is quarantined, several are parsed on their own, each with its own
+     * budget. If the worker of the shard still runs, the suspects are
+     * quarantined together, so no more workers get stuck on them. The files
+     * which aren't suspects are parsed again together.
+     *
+     * @param files         the files of the shard
+     * @param suspects      the files the shard may have been given up on
+     * @param reason        why the shard was given up
+     * @param workerStopped if the worker of the shard aborted or was abandoned
+     * @param workers       the workers the files are parsed on
+     * @return a fragment for every file which isn't quarantined
+     */
+    private Map<Path, PackageModel> isolate(List<Path> files, List<Path> suspects, String reason,
+            boolean workerStopped, ExecutorService workers) {
+        Map<Path, PackageModel> fragments = new HashMap<>();
+        if (suspects.size() == 1 || !workerStopped) {
+            for (Path suspect : suspects) {
+                logger.warn("Quarantined \"{}\", {}", suspect, reason);
+            }
+            quarantinedFiles.addAll(suspects);
+        } else {
+            logger.info("parsing {} files on their own, {}", suspects.size(), reason);
+            for (Path suspect : suspects) {
+                fragments.putAll(parseGuarded(List.of(suspect), workers));
+            }
+        }
+        Set<Path> suspectSet = new HashSet<>(suspects);
+        List<Path> rest = files.stream().filter(file -> !suspectSet.contains(file)).collect(Collectors.toList());
+        if (!rest.isEmpty()) {
+            fragments.putAll(parseGuarded(rest, workers));
+        }
+        return fragments;
+    }
+
+    /**
+     * Creates the resources of the given files, the files the resource factory
+     * skips are left out
+     *
+     * @param files the files
+     * @return the resource of every file which is parsed, in the order of the
+     *         files
+     */
+    private Map<Path, SpoonResource> createResources(List<Path> files) {
+        Map<Path, SpoonResource> resources = new LinkedHashMap<>();
+        for (Path file : files) {
+            SpoonResource resource = resourceFactory.apply(file);
+            if (resource != null) {
+                resources.put(file, resource);
+            }
+        }
+        return resources;
+    }
+
+    /**
+     * Parses the files of one shard
+     *
+     * @param resources the resource of every file of the shard
+     * @param progress  the progress which is informed about every file, null if
+     *                  it isn't watched
+     * @return a fragment for every file
+     */
+    private Map<Path, PackageModel> parseShard(Map<Path, SpoonResource> resources, WatchedProgress progress) {
+        Launcher launcher = launcherFactory.get();
+        resources.values().forEach(launcher::addInputResource);
+        if (progress != null) {
+            progress.setDelegate(launcher.getEnvironment().getSpoonProgress());
+            launcher.getEnvironment().setSpoonProgress(progress);
+        }
+        launcher.buildModel();
+
+        Set<Path> shardFiles = resources.keySet();
+        DiagramModelExtractor extractor = new DiagramModelExtractor(visibilityFilter).setMarkUnresolvedRefs(true);
+        Map<Path, PackageModel> fragments = new HashMap<>();
+        for (CtCompilationUnit unit : launcher.getFactory().CompilationUnit().getMap().values()) {
+            Path file = unit.getFile() == null ? null : unit.getFile().toPath().toAbsolutePath().normalize();
+            if (file == null || !shardFiles.contains(file))
+                continue;
+            FileParseEvent event = new FileParseEvent();
+            event.begin();
+            List<CtType<?>> types = unit.getDeclaredTypes();
+            String packageName = types.isEmpty() ? DiagramModelMerger.UNNAMED_PACKAGE
+                    : types.get(0).getPackage().getQualifiedName();
+            fragments.put(file, new PackageModel(packageName, extractor.extractTypes(types)));
+            event.end();
+            if (event.shouldCommit()) {
+                event.path = file.toString();
+                event.stage = "EXTRACTION";
+                event.byteCount = getSize(file);
+                event.typeCount = types.size();
+                event.commit();
+            }
+        }
+        // files without any type still get a fragment, so that they are cached
+        for (Path file : shardFiles) {
+            fragments.putIfAbsent(file, new PackageModel(DiagramModelMerger.UNNAMED_PACKAGE, List.of()));
+        }
+        return fragments;
+    }
+
+    /**
+     * Returns the size of the given file
+     *
+     * @param file the file
+     * @return the size in bytes or 0 if it couldn't be read
+     */
+    private long getSize(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * A shard which is being filled
+     */
+    private static class Shard {
+        private final int index;
+        private final List<Path> files = new ArrayList<>();
+        private long bytes = 0;
+
+        Shard(int index) {
+            this.index = index;
+        }
+
+        void add(Path file, long size) {
+            files.add(file);
+            bytes += size;
+        }
+
+        int getIndex() {
+            return index;
+        }
+
+        long getBytes() {
+            return bytes;
+        }
+
+        List<Path> getFiles() {
+            return files;
+        }
+    }
+
+    /**
+     * Gives the compilation unit spoon works on its own budget. Spoon reports
+     * every unit it finished in a phase, the budget of the next unit starts
+     * then. A cancelled shard is aborted the next time spoon reports progress.
+     */
+    private static class WatchedProgress implements SpoonProgress {
+        private final long budget;
+        private volatile long deadline;
+        private volatile boolean cancelled = false;
+        private boolean finished = false;
+        private boolean abandoned = false;
+        private final Set<String> finishedUnits = ConcurrentHashMap.newKeySet();
+        private SpoonProgress delegate;
+
+        WatchedProgress(Duration budget) {
+            this.budget = budget.toNanos();
+            this.deadline = System.nanoTime() + this.budget;
+        }
+
+        void setDelegate(SpoonProgress delegate) {
+            this.delegate = delegate;
+        }
+
+        long getDeadline() {
+            return deadline;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * Leaves the worker running until it aborts, if not too many workers
+         * which were given up still run
+         *
+         * @return if the worker finished or may run on its own
+         */
+        synchronized boolean abandon() {
+            if (finished)
+                return true;
+            abandoned = ABANDONED_WORKERS.tryAcquire();
+            return abandoned;
+        }
+
+        /**
+         * Called by the worker when it ends
+         */
+        synchronized void finish() {
+            finished = true;
+            if (abandoned) {
+                ABANDONED_WORKERS.release();
+            }
+        }
+
+        /**
+         * @param files the files of the shard
+         * @return the files which weren't finished in the current phase yet
+         */
+        List<Path> getUnfinishedFiles(List<Path> files) {
+            return files.stream().filter(file -> !finishedUnits.contains(file.toString()))
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public void start(Process process) {
+            report();
+            finishedUnits.clear();
+            if (delegate != null) {
+                delegate.start(process);
+            }
+        }
+
+        @Override
+        public void step(Process process, String task, int taskId, int nbTask) {
+            report();
+            // the task is the file name of the finished unit
+            finishedUnits.add(task);
+            if (delegate != null) {
+                delegate.step(process, task, taskId, nbTask);
+            }
+        }
+
+        @Override
+        public void step(Process process, String task) {
+            report();
+            if (delegate != null) {
+                delegate.step(process, task);
+            }
+        }
+
+        @Override
+        public void end(Process process) {
+            report();
+            if (delegate != null) {
+                delegate.end(process);
+            }
+        }
+
+        private void report() {
+            if (cancelled)
+                throw new CancellationException("The shard was given up");
+            deadline = System.nanoTime() + budget;
+        }
+    }
+
+    /**
+     * Creates the daemon threads the shards are parsed on
+     */
+    private static class ParserThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        ParserThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
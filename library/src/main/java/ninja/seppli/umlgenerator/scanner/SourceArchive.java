@@ -0,0 +1,106 @@
+package ninja.seppli.umlgenerator.scanner;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import spoon.compiler.SpoonResource;
+import spoon.support.compiler.VirtualFile;
+
+/**
+ * Reads the java sources in a jar or zip archive, like the
+ * {@code -sources.jar} of a library, through the zip file system instead of
+ * extracting it. Every source is identified by a virtual path, which is the
+ * path of the archive followed by {@code !} and the path of the entry, for
+ * example {@code /libs/lib-sources.jar!/com/example/Main.java}. The sources are
+ * handed to spoon as {@link VirtualFile}s with this path, so the compilation
+ * units of the model point to it as well.
+ */
+public class SourceArchive {
+    /**
+     * the extensions of the supported archives
+     */
+    public static final List<String> EXTENSIONS = List.of(".jar", ".zip");
+
+    /**
+     * the separator between the path of the archive and the path of an entry
+     */
+    private static final String ENTRY_SEPARATOR = "!";
+
+    /**
+     * Constructor
+     */
+    private SourceArchive() {
+    }
+
+    /**
+     * Checks if the given file is an archive
+     *
+     * @param file the file
+     * @return if the file is a jar or zip archive
+     */
+    public static boolean isArchive(Path file) {
+        return file.getFileName() != null && EXTENSIONS.stream().anyMatch(file.getFileName().toString()::endsWith);
+    }
+
+    /**
+     * Reads all java sources in the given archive. Entries in {@code META-INF},
+     * like the versioned sources of a multi-release jar, are skipped.
+     *
+     * @param archive the archive
+     * @param filter  which sources are read, tested with the path of the entry
+     *                relative to the root of the archive
+     * @return the content of every source by its virtual path, sorted by the
+     *         path
+     * @throws IOException if the archive couldn't be read
+     */
+    public static Map<Path, String> readSources(Path archive, Predicate<Path> filter) throws IOException {
+        Map<Path, String> sources = new TreeMap<>();
+        try (FileSystem fileSystem = FileSystems.newFileSystem(archive);
+                Stream<Path> entries = Files.walk(fileSystem.getPath("/"))) {
+            Path root = fileSystem.getPath("/");
+            for (Path entry : entries.filter(path -> path.toString().endsWith(".java"))
+                    .filter(path -> !path.startsWith("/META-INF")).collect(Collectors.toList())) {
+                String relativePath = root.relativize(entry).toString();
+                // the filter matches paths of the default file system
+                if (filter.test(Paths.get(relativePath))) {
+                    sources.put(toEntryPath(archive, relativePath),
+                            new String(Files.readAllBytes(entry), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * Creates the virtual path of an entry
+     *
+     * @param archive the archive
+     * @param entry   the path of the entry relative to the root of the archive
+     * @return the virtual path
+     */
+    public static Path toEntryPath(Path archive, String entry) {
+        return Paths.get(archive.toString() + ENTRY_SEPARATOR, entry);
+    }
+
+    /**
+     * Creates the resource spoon parses for an entry
+     *
+     * @param entryPath the virtual path of the entry
+     * @param content   the content of the entry
+     * @return the resource
+     */
+    public static SpoonResource createResource(Path entryPath, String content) {
+        return new VirtualFile(content, entryPath.toString());
+    }
+}
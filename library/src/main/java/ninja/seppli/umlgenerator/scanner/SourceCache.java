@@ -0,0 +1,117 @@
+package ninja.seppli.umlgenerator.scanner;
+
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers the content hash of every scanned source file together with what
+ * was built from it, e.g. the types which were declared in it. This allows a
+ * rescan to only parse the files which changed since the last scan.
+ *
+ * @param <T> the type of the entries built from a file
+ */
+public class SourceCache<T> {
+    /**
+     * the cached sources by their path
+     */
+    private Map<Path, CachedSource<T>> sources = new HashMap<>();
+
+    /**
+     * Checks if the given file was cached with the given content hash
+     *
+     * @param path the path of the file
+     * @param hash the current content hash of the file
+     * @return if the cached declarations of the file are still up to date
+     */
+    public boolean isUpToDate(Path path, String hash) {
+        CachedSource<T> source = sources.get(path);
+        return source != null && source.hash().equals(hash);
+    }
+
+    /**
+     * Caches the entries built from the given file
+     *
+     * @param path    the path of the file
+     * @param hash    the content hash of the file
+     * @param entries the entries built from the file
+     */
+    public void put(Path path, String hash, List<T> entries) {
+        sources.put(path, new CachedSource<>(hash, List.copyOf(entries)));
+    }
+
+    /**
+     * Returns the entries built from the given file
+     *
+     * @param path the path of the file
+     * @return the cached entries or an empty list if the file isn't cached
+     */
+    public List<T> get(Path path) {
+        CachedSource<T> source = sources.get(path);
+        return source == null ? List.of() : source.entries();
+    }
+
+    /**
+     * Removes the given file from the cache
+     *
+     * @param path the path of the file
+     * @return the entries which were built from the file or an empty list if
+     *         the file wasn't cached
+     */
+    public List<T> remove(Path path) {
+        CachedSource<T> source = sources.remove(path);
+        return source == null ? List.of() : source.entries();
+    }
+
+    /**
+     * @return the paths of all cached files
+     */
+    public Set<Path> getPaths() {
+        return Collections.unmodifiableSet(sources.keySet());
+    }
+
+    /**
+     * @return how many files are cached
+     */
+    public int size() {
+        return sources.size();
+    }
+
+    /**
+     * Removes all files from the cache
+     */
+    public void clear() {
+        sources.clear();
+    }
+
+    /**
+     * Computes the content hash of a source file
+     *
+     * @param content the content of the file
+     * @return the hash as a hex string
+     */
+    public static String hash(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            // every java platform has to support SHA-256
+            throw new IllegalStateException("SHA-256 isn't supported", e);
+        }
+    }
+
+    /**
+     * A cached file
+     *
+     * @param <T>     the type of the entries
+     * @param hash    the content hash of the file
+     * @param entries the entries built from the file
+     */
+    private record CachedSource<T>(String hash, List<T> entries) {
+    }
+}
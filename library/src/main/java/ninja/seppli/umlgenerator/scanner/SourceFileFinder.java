@@ -0,0 +1,316 @@
+package ninja.seppli.umlgenerator.scanner;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Expands the paths added to a {@link DiagramGenerator} to the java source
+ * files which are parsed, or to the files with other extensions like
+ * {@code .class}. The paths are canonicalized first, so that a
+ * relative and an absolute path to the same directory or a directory and one
+ * of its subdirectories don't cause any file to be parsed twice. The remaining
+ * directories are then walked in parallel.
+ *
+ * Like {@link Files#walk(Path, java.nio.file.FileVisitOption...)}, symbolic
+ * links to directories aren't followed. Symbolic links to files are resolved,
+ * so a file which is linked more than once is only parsed once.
+ *
+ * The include and exclude glob patterns are compiled once per finder and are
+ * applied while walking, so excluded files are never parsed.
+ */
+public class SourceFileFinder {
+    /**
+     * logger
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SourceFileFinder.class);
+
+    /**
+     * how many directories are listed at the same time
+     */
+    private int parallelism;
+
+    /**
+     * the matchers of the included files, all files are included if there is
+     * none
+     */
+    private List<PathMatcher> includes;
+
+    /**
+     * the matchers of the excluded files
+     */
+    private List<PathMatcher> excludes;
+
+    /**
+     * the extensions of the searched files, like {@code .java}
+     */
+    private List<String> extensions;
+
+    /**
+     * how many matching files were excluded by the last search
+     */
+    private AtomicInteger excludedFiles = new AtomicInteger();
+
+    /**
+     * Constructor
+     *
+     * @param parallelism how many directories are listed at the same time
+     */
+    public SourceFileFinder(int parallelism) {
+        this(parallelism, List.of(), List.of());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param parallelism how many directories are listed at the same time
+     * @param includes    the glob patterns of the included files, relative to
+     *                    the searched directory. All files are included if there
+     *                    is none.
+     * @param excludes    the glob patterns of the excluded files, relative to
+     *                    the searched directory
+     * @throws IllegalArgumentException if a pattern is invalid
+     */
+    public SourceFileFinder(int parallelism, List<String> includes, List<String> excludes) {
+        this(parallelism, includes, excludes, List.of(".java"));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param parallelism how many directories are listed at the same time
+     * @param includes    the glob patterns of the included files, relative to
+     *                    the searched directory. All files are included if there
+     *                    is none.
+     * @param excludes    the glob patterns of the excluded files, relative to
+     *                    the searched directory
+     * @param extensions  the extensions of the searched files, like
+     *                    {@code .java}
+     * @throws IllegalArgumentException if a pattern is invalid
+     */
+    public SourceFileFinder(int parallelism, List<String> includes, List<String> excludes, List<String> extensions) {
+        this.parallelism = Math.max(1, parallelism);
+        this.includes = compileGlobs(includes);
+        this.excludes = compileGlobs(excludes);
+        this.extensions = List.copyOf(extensions);
+    }
+
+    /**
+     * Finds all files with one of the extensions in the given paths
+     *
+     * @param paths the files and directories to search, paths which don't exist
+     *              are skipped
+     * @return the found source files
+     */
+    public SourceFiles find(Collection<Path> paths) {
+        List<Path> realPaths = canonicalize(paths);
+        List<Path> roots = collapseRoots(realPaths);
+        int duplicateRoots = realPaths.size() - roots.size();
+
+        List<List<Path>> filesPerRoot = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            excludedFiles.set(0);
+            for (Path root : roots) {
+                filesPerRoot.add(pool.invoke(new WalkTask(root, root)));
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        Set<Path> files = new TreeSet<>();
+        int foundFiles = 0;
+        for (List<Path> rootFiles : filesPerRoot) {
+            foundFiles += rootFiles.size();
+            files.addAll(rootFiles);
+        }
+        SourceFiles sourceFiles = new SourceFiles(List.copyOf(files), duplicateRoots, foundFiles - files.size(),
+                excludedFiles.get());
+        logger.info("found {} source files in {} paths, removed {} duplicate paths and {} duplicate files, "
+                + "excluded {} files", sourceFiles.files().size(), paths.size(), sourceFiles.duplicateRoots(),
+                sourceFiles.duplicateFiles(), sourceFiles.excludedFiles());
+        return sourceFiles;
+    }
+
+    /**
+     * Resolves the given paths to their real paths. Paths which don't exist are
+     * skipped.
+     *
+     * @param paths the paths
+     * @return the sorted real paths
+     */
+    private List<Path> canonicalize(Collection<Path> paths) {
+        List<Path> realPaths = new ArrayList<>();
+        for (Path path : paths) {
+            try {
+                realPaths.add(path.toRealPath());
+            } catch (IOException e) {
+                logger.warn("File \"{}\" doesn't exist", path);
+            }
+        }
+        realPaths.sort(null);
+        return realPaths;
+    }
+
+    /**
+     * Removes every path which is inside of another path
+     *
+     * @param paths the sorted paths
+     * @return the paths which aren't inside of another path
+     */
+    private List<Path> collapseRoots(List<Path> paths) {
+        List<Path> roots = new ArrayList<>();
+        for (Path path : paths) {
+            // a parent is sorted before all of its children and equal paths are adjacent
+            if (roots.isEmpty() || !path.startsWith(roots.get(roots.size() - 1))) {
+                roots.add(path);
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * Compiles the given glob patterns
+     *
+     * @param globs the glob patterns
+     * @return the matchers
+     */
+    private static List<PathMatcher> compileGlobs(List<String> globs) {
+        return globs.stream().map(glob -> FileSystems.getDefault().getPathMatcher("glob:" + glob))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Checks if the given path has one of the searched extensions
+     *
+     * @param path the path
+     * @return if the path ends with one of the extensions
+     */
+    private boolean hasExtension(Path path) {
+        return path.getFileName() != null && extensions.stream().anyMatch(path.getFileName().toString()::endsWith);
+    }
+
+    /**
+     * Checks if the given file is included by the patterns. A file which is
+     * searched directly is matched by its file name.
+     *
+     * @param root the searched path the file was found in
+     * @param file the file
+     * @return if the file should be parsed
+     */
+    private boolean isIncluded(Path root, Path file) {
+        if (isIncluded(root.equals(file) ? file.getFileName() : root.relativize(file)))
+            return true;
+        excludedFiles.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Checks if a file is included by the patterns
+     *
+     * @param relativePath the path of the file relative to the searched
+     *                     directory, or to the root of an archive
+     * @return if the file should be parsed
+     */
+    public boolean isIncluded(Path relativePath) {
+        boolean included = includes.isEmpty() || includes.stream().anyMatch(matcher -> matcher.matches(relativePath));
+        return included && excludes.stream().noneMatch(matcher -> matcher.matches(relativePath));
+    }
+
+    /**
+     * The source files which were found
+     *
+     * @param files          the sorted source files without duplicates
+     * @param duplicateRoots how many of the given paths were removed, because
+     *                       they were the same as or inside of another path
+     * @param duplicateFiles how many files were found more than once
+     * @param excludedFiles  how many matching files were skipped because of the
+     *                       include and exclude patterns
+     */
+    public record SourceFiles(List<Path> files, int duplicateRoots, int duplicateFiles, int excludedFiles) {
+    }
+
+    /**
+     * Lists a directory and forks a task for every subdirectory
+     */
+    private class WalkTask extends RecursiveTask<List<Path>> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Path root;
+        private final transient Path path;
+
+        WalkTask(Path root, Path path) {
+            this.root = root;
+            this.path = path;
+        }
+
+        @Override
+        protected List<Path> compute() {
+            List<Path> files = new ArrayList<>();
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (IOException e) {
+                logger.warn("Couldn't read \"{}\"", path, e);
+                return files;
+            }
+            if (attributes.isRegularFile()) {
+                if (hasExtension(path) && isIncluded(root, path))
+                    files.add(path);
+                return files;
+            }
+            if (attributes.isSymbolicLink()) {
+                addLinkedFile(files);
+                return files;
+            }
+            if (!attributes.isDirectory())
+                return files;
+
+            List<WalkTask> subtasks = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+                for (Path child : stream) {
+                    subtasks.add(new WalkTask(root, child));
+                }
+            } catch (IOException e) {
+                logger.warn("Couldn't list the files in \"{}\"", path, e);
+            }
+            for (WalkTask subtask : invokeAll(subtasks)) {
+                files.addAll(subtask.join());
+            }
+            return files;
+        }
+
+        /**
+         * Adds the file the link points to, links to directories are ignored
+         *
+         * @param files the found files
+         */
+        private void addLinkedFile(List<Path> files) {
+            try {
+                Path target = path.toRealPath();
+                if (Files.isRegularFile(target) && hasExtension(path) && isIncluded(root, path)) {
+                    files.add(target);
+                }
+            } catch (IOException e) {
+                logger.warn("Couldn't resolve the link \"{}\"", path, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package ninja.seppli.umlgenerator.scanner;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads and hashes the source files of a scan on a pool of reader threads,
+ * ahead of the parser. The size and modification time of every file are
+ * checked first, only the files which may have changed are read. They are read
+ * in the order the parser needs them and kept until the parser takes them, so
+ * a shard can start as soon as its files are read while the next files are
+ * still being read.
+ *
+ * The contents which weren't taken yet may have at most the read-ahead budget.
+ * The reads start in order, a read waits until its file fits into the budget,
+ * unless no content is kept at all. The content of a file whose hash shows
+ * that it doesn't have to be parsed is dropped right after it is read.
+ */
+class SourcePrefetcher implements Closeable {
+    /**
+     * logger
+     */
+    private Logger logger = LoggerFactory.getLogger(getClass());
+
+    /**
+     * reads the files
+     */
+    private ExecutorService executor;
+
+    /**
+     * how many bytes the contents which weren't taken yet may have, 0 if there
+     * is no limit
+     */
+    private long readAheadBudget;
+
+    /**
+     * checks if a file with the given content hash doesn't have to be parsed,
+     * called on the reader threads
+     */
+    private BiPredicate<Path, String> upToDate;
+
+    /**
+     * the contents of the sources in archives by their virtual path
+     */
+    private Map<Path, String> archiveSources;
+
+    /**
+     * the stamp of every checked file, the hash is null if the file changed
+     * since it was last hashed
+     */
+    private Map<Path, FileStamp> checkedStamps = new HashMap<>();
+
+    /**
+     * the reads of the files which may have changed
+     */
+    private Map<Path, Future<ReadSource>> reads = new LinkedHashMap<>();
+
+    /**
+     * the contents which weren't taken by the parser yet
+     */
+    private Map<Path, String> contents = new ConcurrentHashMap<>();
+
+    /**
+     * how many bytes were read and hashed
+     */
+    private AtomicLong readBytes = new AtomicLong();
+
+    /**
+     * how many bytes the contents which weren't taken yet have, guarded by this
+     */
+    private long readAheadBytes = 0;
+
+    /**
+     * the index of the read which may start next, guarded by this
+     */
+    private int nextRead = 0;
+
+    /**
+     * Constructor
+     *
+     * @param readParallelism how many files are read at the same time
+     * @param readAheadBudget how many bytes the contents which weren't taken yet
+     *                        may have, 0 if there is no limit
+     * @param upToDate        checks if a file with the given content hash
+     *                        doesn't have to be parsed, it is called on the
+     *                        reader threads
+     * @param archiveSources  the contents of the sources in archives by their
+     *                        virtual path
+     */
+    SourcePrefetcher(int readParallelism, long readAheadBudget, BiPredicate<Path, String> upToDate,
+            Map<Path, String> archiveSources) {
+        this.readAheadBudget = readAheadBudget;
+        this.upToDate = upToDate;
+        this.archiveSources = archiveSources;
+        executor = Executors.newFixedThreadPool(readParallelism, runnable -> {
+            Thread thread = new Thread(runnable, "uml-source-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Checks the size and modification time of the given files against the
+     * stamps they had when they were last hashed
+     *
+     * @param files  the files, including the virtual paths of the sources in
+     *               archives
+     * @param stamps the stamps of the files when they were last hashed
+     * @return the files which have to be parsed, because they changed or aren't
+     *         up to date, in the order of the given files
+     */
+    List<Path> check(List<Path> files, Map<Path, FileStamp> stamps) {
+        Map<Path, Future<FileStamp>> checks = new LinkedHashMap<>();
+        for (Path file : files) {
+            FileStamp stamp = stamps.get(file);
+            checks.put(file, executor.submit(() -> checkFile(file, stamp)));
+        }
+        List<Path> changedFiles = new ArrayList<>();
+        for (Map.Entry<Path, Future<FileStamp>> entry : checks.entrySet()) {
+            Path file = entry.getKey();
+            FileStamp stamp = await(file, entry.getValue(), true);
+            if (stamp == null)
+                continue;
+            checkedStamps.put(file, stamp);
+            if (stamp.hash() == null || !upToDate.test(file, stamp.hash())) {
+                changedFiles.add(file);
+            }
+        }
+        return changedFiles;
+    }
+
+    /**
+     * Starts reading the given files in the given order. The sources in
+     * archives are already in memory and aren't read again.
+     *
+     * @param files the files which have to be parsed, in the order the parser
+     *              needs them
+     */
+    void read(List<Path> files) {
+        for (Path file : files) {
+            FileStamp stamp = checkedStamps.get(file);
+            if (stamp == null || archiveSources.containsKey(file) || reads.containsKey(file))
+                continue;
+            int index = reads.size();
+            reads.put(file, executor.submit(() -> readFile(file, stamp, index)));
+        }
+    }
+
+    /**
+     * Waits until the given file is read
+     *
+     * @param file the file
+     * @return if the file has to be parsed, false if its content didn't change
+     *         or it couldn't be read
+     */
+    boolean hasChanged(Path file) {
+        Future<ReadSource> read = reads.get(file);
+        if (read == null)
+            return true;
+        ReadSource source = await(file, read, false);
+        return source != null && source.changed();
+    }
+
+    /**
+     * Takes the content of a file, the parser keeps it from now on. Waits until
+     * the file is read.
+     *
+     * @param file the file
+     * @return the content of the file, null if it wasn't read, didn't change or
+     *         was taken before
+     */
+    String take(Path file) {
+        if (!hasChanged(file))
+            return null;
+        String content = contents.remove(file);
+        if (content != null) {
+            release(checkedStamps.get(file).size());
+        }
+        return content;
+    }
+
+    /**
+     * @param file the file or the virtual path of a source in an archive
+     * @return the size of the file when it was checked, 0 if it wasn't checked
+     */
+    long getSize(Path file) {
+        FileStamp stamp = checkedStamps.get(file);
+        return stamp == null ? 0 : stamp.size();
+    }
+
+    /**
+     * @return how many bytes were read and hashed so far
+     */
+    long getReadBytes() {
+        return readBytes.get();
+    }
+
+    /**
+     * @return how many bytes the read contents which weren't taken yet have
+     */
+    synchronized long getReadAheadBytes() {
+        return readAheadBytes;
+    }
+
+    /**
+     * Waits until all files are read
+     *
+     * @return the stamp of every file which could be read, including the sources
+     *         in archives
+     */
+    Map<Path, FileStamp> getStamps() {
+        Map<Path, FileStamp> stamps = new HashMap<>(checkedStamps);
+        for (Map.Entry<Path, Future<ReadSource>> entry : reads.entrySet()) {
+            ReadSource source = await(entry.getKey(), entry.getValue(), true);
+            if (source == null) {
+                stamps.remove(entry.getKey());
+            } else {
+                stamps.put(entry.getKey(), source.stamp());
+            }
+        }
+        stamps.values().removeIf(stamp -> stamp.hash() == null);
+        return stamps;
+    }
+
+    /**
+     * Stops the reads and drops the contents which weren't taken
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        contents.clear();
+    }
+
+    /**
+     * Checks a file, a source in an archive is hashed right away. Called on the
+     * reader threads.
+     *
+     * @param file  the file or the virtual path of a source in an archive
+     * @param stamp the stamp of the file when it was last hashed, null if it
+     *              wasn't hashed yet
+     * @return the stamp of the file, with the last hash if its size and
+     *         modification time didn't change and without a hash otherwise
+     * @throws IOException if the file couldn't be checked
+     */
+    private FileStamp checkFile(Path file, FileStamp stamp) throws IOException {
+        String archiveSource = archiveSources.get(file);
+        if (archiveSource != null) {
+            byte[] content = archiveSource.getBytes(StandardCharsets.UTF_8);
+            readBytes.addAndGet(content.length);
+            return new FileStamp(content.length, 0, SourceCache.hash(content));
+        }
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        if (stamp != null && stamp.size() == attributes.size() && stamp.lastModified() == lastModified)
+            return stamp;
+        return new FileStamp(attributes.size(), lastModified, null);
+    }
+
+    /**
+     * Reads and hashes a file once it fits into the read-ahead budget. Called
+     * on the reader threads.
+     *
+     * @param file  the file
+     * @param stamp the stamp of the file when it was checked
+     * @param index the index of the read
+     * @return the read source
+     * @throws IOException          if the file couldn't be read
+     * @throws InterruptedException if the prefetcher was closed while waiting
+     */
+    private ReadSource readFile(Path file, FileStamp stamp, int index) throws IOException, InterruptedException {
+        acquire(index, stamp.size());
+        boolean kept = false;
+        try {
+            byte[] content = Files.readAllBytes(file);
+            readBytes.addAndGet(content.length);
+            String hash = SourceCache.hash(content);
+            boolean changed = !upToDate.test(file, hash);
+            if (changed) {
+                contents.put(file, new String(content, StandardCharsets.UTF_8));
+                kept = true;
+            }
+            return new ReadSource(new FileStamp(stamp.size(), stamp.lastModified(), hash), changed);
+        } finally {
+            if (!kept) {
+                release(stamp.size());
+            }
+        }
+    }
+
+    /**
+     * Waits until it is the turn of the given read and its file fits into the
+     * read-ahead budget
+     *
+     * @param index the index of the read
+     * @param bytes the size of the file
+     * @throws InterruptedException if the prefetcher was closed while waiting
+     */
+    private synchronized void acquire(int index, long bytes) throws InterruptedException {
+        while (index != nextRead
+                || readAheadBudget > 0 && readAheadBytes > 0 && readAheadBytes + bytes > readAheadBudget) {
+            wait();
+        }
+        nextRead++;
+        readAheadBytes += bytes;
+        notifyAll();
+    }
+
+    /**
+     * @param bytes the size of a file whose content was dropped or taken
+     */
+    private synchronized void release(long bytes) {
+        readAheadBytes -= bytes;
+        notifyAll();
+    }
+
+    /**
+     * Waits for a check or read
+     *
+     * @param file   the file
+     * @param future the check or read
+     * @param log    if a failure is logged
+     * @return the result, null if the file couldn't be checked or read
+     */
+    private <T> T await(Path file, Future<T> future, boolean log) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reading the source files was interrupted", e);
+        } catch (ExecutionException e) {
+            if (log) {
+                logger.warn("Couldn't read file \"{}\"", file, e.getCause());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The state of a file when it was hashed
+     *
+     * @param size         the size of the file
+     * @param lastModified the modification time of the file in milliseconds
+     * @param hash         the content hash of the file, null if it wasn't
+     *                     hashed yet
+     */
+    record FileStamp(long size, long lastModified, String hash) {
+    }
+
+    /**
+     * A file read by {@link SourcePrefetcher#readFile(Path, FileStamp, int)}
+     *
+     * @param stamp   the state of the file
+     * @param changed if the file has to be parsed
+     */
+    private record ReadSource(FileStamp stamp, boolean changed) {
+    }
+}
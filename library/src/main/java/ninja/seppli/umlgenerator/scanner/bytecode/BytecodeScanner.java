@@ -0,0 +1,509 @@
+package ninja.seppli.umlgenerator.scanner.bytecode;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ninja.seppli.umlgenerator.model.DiagramModel;
+import ninja.seppli.umlgenerator.model.DiagramModelMerger;
+import ninja.seppli.umlgenerator.model.ExecutableModel;
+import ninja.seppli.umlgenerator.model.FieldModel;
+import ninja.seppli.umlgenerator.model.PackageModel;
+import ninja.seppli.umlgenerator.model.ParameterModel;
+import ninja.seppli.umlgenerator.model.TypeKind;
+import ninja.seppli.umlgenerator.model.TypeModel;
+import ninja.seppli.umlgenerator.model.TypeRef;
+import ninja.seppli.umlgenerator.options.GeneralUmlOptions;
+import ninja.seppli.umlgenerator.options.VisibilityLevel;
+import ninja.seppli.umlgenerator.scanner.DiagramScanner;
+import ninja.seppli.umlgenerator.scanner.ScanStatistics;
+import ninja.seppli.umlgenerator.scanner.ScanStatistics.Phase;
+import ninja.seppli.umlgenerator.scanner.ScanStatistics.PhaseTimer;
+import ninja.seppli.umlgenerator.scanner.SourceFileFinder;
+import ninja.seppli.umlgenerator.scanner.bytecode.ClassFile.InnerClass;
+import ninja.seppli.umlgenerator.scanner.bytecode.ClassFile.Member;
+import ninja.seppli.umlgenerator.scanner.bytecode.SignatureParser.ClassSignature;
+import ninja.seppli.umlgenerator.scanner.bytecode.SignatureParser.MethodSignature;
+
+/**
+ * Generates a {@link DiagramModel} from compiled class files instead of the
+ * sources. Only the declarations in the class files are read, no compiler is
+ * involved, so this is much faster than parsing the sources and works for
+ * libraries whose sources aren't available. Class files are found in the added
+ * directories and in the added jar and zip archives.
+ *
+ * The built model is the same as the one the {@link
+ * ninja.seppli.umlgenerator.scanner.DiagramGenerator} builds from the sources,
+ * with one exception: the names of parameters are only known if the classes
+ * were compiled with {@code -parameters} or {@code -g}. Otherwise, the
+ * parameters are named {@code arg0}, {@code arg1} and so on.
+ */
+public class BytecodeScanner implements DiagramScanner {
+    /**
+     * logger
+     */
+    private Logger logger = LoggerFactory.getLogger(getClass());
+
+    /**
+     * the absolute and normalized paths which should be scanned
+     */
+    private Set<Path> pathList = new TreeSet<>();
+
+    /**
+     * the options
+     */
+    private GeneralUmlOptions options;
+
+    /**
+     * the read classes by their internal name
+     */
+    private Map<String, ClassFile> classes = new LinkedHashMap<>();
+
+    /**
+     * the simple names of the nested classes by their internal name, as listed
+     * in the InnerClasses attributes
+     */
+    private Map<String, String> simpleNames = new HashMap<>();
+
+    /**
+     * the statistics of the last scan, null before the first scan
+     */
+    private ScanStatistics statistics;
+
+    /**
+     * parses the signatures of the read classes
+     */
+    private SignatureParser signatureParser = new SignatureParser(this::getSimpleName);
+
+    /**
+     * Constructor
+     */
+    public BytecodeScanner() {
+        this(GeneralUmlOptions.DEFAULT_OPTIONS);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param options the options, the include and exclude patterns are applied
+     *                to the class files and archives
+     */
+    public BytecodeScanner(GeneralUmlOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * The given class files, jar and zip archives and directories will be
+     * scanned when {@link #generate()} is called.
+     *
+     * @param paths the paths to scan
+     * @returns this instance for a fluent like api
+     */
+    @Override
+    public BytecodeScanner addFiles(Path... paths) {
+        Arrays.stream(paths).map(Path::toAbsolutePath).map(Path::normalize).forEach(pathList::add);
+        return this;
+    }
+
+    /**
+     * Reads all added class files and generates their diagram model. Anonymous,
+     * local and synthetic classes are skipped, as well as all members which
+     * the compiler generated.
+     *
+     * @return the diagram model
+     */
+    @Override
+    public DiagramModel generate() {
+        statistics = ScanStatistics.start();
+        try {
+            DiagramModel model = readModel();
+            logger.info("{}", statistics.finish(model));
+            return model;
+        } finally {
+            // a failed scan doesn't keep sampling the garbage collections
+            statistics.abort();
+        }
+    }
+
+    /**
+     * Reads the added class files and records the phases in
+     * {@link #statistics}
+     *
+     * @return the diagram model
+     * @see #generate()
+     */
+    private DiagramModel readModel() {
+        classes.clear();
+        simpleNames.clear();
+        PhaseTimer discoveryPhase = statistics.startPhase(Phase.DISCOVERY);
+        List<Path> files = new SourceFileFinder(Runtime.getRuntime().availableProcessors(), options.getIncludes(),
+                options.getExcludes(), List.of(".class", ".jar", ".zip")).find(pathList).files();
+        statistics.setFiles(files.size());
+        statistics.setParsedFiles(files.size());
+        discoveryPhase.end();
+
+        PhaseTimer parsingPhase = statistics.startPhase(Phase.PARSING);
+        for (Path file : files) {
+            if (file.getFileName().toString().endsWith(".class")) {
+                readClassFile(file);
+            } else {
+                readArchive(file);
+            }
+        }
+        logger.info("read {} classes from {} files", classes.size(), files.size());
+        parsingPhase.end();
+
+        PhaseTimer modelBuildPhase = statistics.startPhase(Phase.MODEL_BUILD);
+
+        for (ClassFile classFile : classes.values()) {
+            for (InnerClass innerClass : classFile.innerClasses()) {
+                if (innerClass.innerName() != null) {
+                    simpleNames.putIfAbsent(innerClass.name(), innerClass.innerName());
+                }
+            }
+        }
+
+        List<PackageModel> fragments = new ArrayList<>();
+        for (ClassFile classFile : classes.values()) {
+            if (classFile.getOwnInnerClass() == null && isDiagramClass(classFile)) {
+                fragments.add(new PackageModel(getPackageName(classFile.name()), List.of(extractType(classFile))));
+            }
+        }
+        DiagramModel model = DiagramModelMerger.merge(fragments);
+        modelBuildPhase.end();
+        return model;
+    }
+
+    @Override
+    public ScanStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Reads a single class file
+     *
+     * @param file the class file
+     */
+    private void readClassFile(Path file) {
+        try {
+            byte[] content = Files.readAllBytes(file);
+            statistics.addBytes(content.length);
+            addClass(ClassFileReader.read(content));
+        } catch (IOException e) {
+            logger.warn("Couldn't read class file \"{}\"", file, e);
+        }
+    }
+
+    /**
+     * Reads all class files in a jar or zip archive. The versioned classes of a
+     * multi-release jar are skipped.
+     *
+     * @param archive the archive
+     */
+    private void readArchive(Path archive) {
+        try (FileSystem fileSystem = FileSystems.newFileSystem(archive);
+                Stream<Path> entries = Files.walk(fileSystem.getPath("/"))) {
+            for (Path entry : entries.filter(path -> path.toString().endsWith(".class"))
+                    .filter(path -> !path.startsWith("/META-INF")).sorted().collect(Collectors.toList())) {
+                byte[] content = Files.readAllBytes(entry);
+                statistics.addBytes(content.length);
+                addClass(ClassFileReader.read(content));
+            }
+        } catch (IOException e) {
+            logger.warn("Couldn't read archive \"{}\"", archive, e);
+        }
+    }
+
+    /**
+     * Adds a read class, the first class with a name wins
+     *
+     * @param classFile the read class
+     */
+    private void addClass(ClassFile classFile) {
+        if (classFile.is(ClassFile.ACC_MODULE) || classFile.name().endsWith("package-info"))
+            return;
+        classes.putIfAbsent(classFile.name(), classFile);
+    }
+
+    /**
+     * Checks if the given class is shown in a diagram, which excludes synthetic
+     * classes
+     *
+     * @param classFile the class
+     * @return if the class is shown
+     */
+    private boolean isDiagramClass(ClassFile classFile) {
+        return !classFile.is(ClassFile.ACC_SYNTHETIC);
+    }
+
+    /**
+     * Checks if the given entry describes a member class, which excludes local
+     * and anonymous classes
+     *
+     * @param innerClass the entry
+     * @return if it is a member class
+     */
+    private static boolean isMemberClass(InnerClass innerClass) {
+        return innerClass.outerName() != null && innerClass.innerName() != null;
+    }
+
+    /**
+     * Extracts a class and its nested classes
+     *
+     * @param classFile the class
+     * @return the extracted type
+     */
+    private TypeModel extractType(ClassFile classFile) {
+        TypeKind kind = getKind(classFile);
+        InnerClass ownInnerClass = classFile.getOwnInnerClass();
+        int access = ownInnerClass == null ? classFile.access() : ownInnerClass.access();
+
+        List<String> typeParameters = List.of();
+        TypeRef superclass = classFile.superName() == null ? null : signatureParser.toTypeRef(classFile.superName());
+        List<TypeRef> superInterfaces = classFile.interfaces().stream().map(signatureParser::toTypeRef)
+                .collect(Collectors.toList());
+        if (classFile.signature() != null) {
+            ClassSignature signature = signatureParser.parseClassSignature(classFile.signature());
+            typeParameters = signature.typeParameters();
+            superclass = signature.superclass();
+            superInterfaces = signature.interfaces();
+        }
+        if (kind == TypeKind.INTERFACE || kind == TypeKind.ANNOTATION || superclass == null || superclass.isObject()) {
+            superclass = null;
+        } else if (kind == TypeKind.ENUM) {
+            // like in the sources, the superclass of an enum is the raw java.lang.Enum
+            superclass = signatureParser.toTypeRef(classFile.superName());
+        }
+        if (kind == TypeKind.ANNOTATION) {
+            superInterfaces = List.of();
+        }
+
+        List<FieldModel> fields = classFile.fields().stream().filter(field -> !field.is(ClassFile.ACC_SYNTHETIC))
+                .map(this::extractField).collect(Collectors.toList());
+        List<ExecutableModel> constructors = extractExecutables(classFile, kind, true);
+        List<ExecutableModel> methods = extractExecutables(classFile, kind, false);
+        List<TypeModel> nestedTypes = getNestedClasses(classFile).stream().filter(this::isDiagramClass)
+                .map(this::extractType).collect(Collectors.toList());
+
+        boolean isAbstract = kind == TypeKind.INTERFACE || kind == TypeKind.ANNOTATION
+                || kind == TypeKind.CLASS && (access & ClassFile.ACC_ABSTRACT) != 0;
+        return new TypeModel(kind, SignatureParser.toQualifiedName(classFile.name()),
+                getSimpleName(classFile.name()), getVisibility(access), isAbstract, typeParameters, superclass,
+                superInterfaces, fields, constructors, methods, nestedTypes);
+    }
+
+    /**
+     * Returns the member classes of a class in the order they are declared in.
+     * javac lists them in the InnerClasses attribute of the enclosing class in
+     * reverse order.
+     *
+     * @param classFile the enclosing class
+     * @return the read member classes
+     */
+    private List<ClassFile> getNestedClasses(ClassFile classFile) {
+        List<ClassFile> nestedClasses = classFile.innerClasses().stream()
+                .filter(innerClass -> isMemberClass(innerClass) && innerClass.outerName().equals(classFile.name()))
+                .map(innerClass -> classes.get(innerClass.name())).filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        Collections.reverse(nestedClasses);
+        return nestedClasses;
+    }
+
+    /**
+     * Extracts a field
+     *
+     * @param field the field
+     * @return the extracted field
+     */
+    private FieldModel extractField(Member field) {
+        TypeRef type = signatureParser
+                .parseFieldSignature(field.signature() != null ? field.signature() : field.descriptor());
+        return new FieldModel(field.name(), getVisibility(field.access()), field.is(ClassFile.ACC_STATIC), type);
+    }
+
+    /**
+     * Extracts the constructors or the methods of a class, sorted by their
+     * signature like spoon sorts them
+     *
+     * @param classFile    the class
+     * @param kind         the kind of the class
+     * @param constructors if the constructors or the methods are extracted
+     * @return the extracted constructors or methods
+     */
+    private List<ExecutableModel> extractExecutables(ClassFile classFile, TypeKind kind, boolean constructors) {
+        if (constructors && (kind == TypeKind.INTERFACE || kind == TypeKind.ANNOTATION))
+            return List.of();
+        Map<String, ExecutableModel> executables = new HashMap<>();
+        for (Member method : classFile.methods()) {
+            if (constructors != "<init>".equals(method.name()) || isGenerated(classFile, kind, method))
+                continue;
+            int syntheticParameters = constructors ? getSyntheticParameterCount(classFile, kind) : 0;
+            MethodSignature descriptor = signatureParser.parseMethodSignature(method.descriptor());
+            List<TypeRef> erasedTypes = skip(descriptor.parameterTypes(), syntheticParameters);
+            List<TypeRef> parameterTypes = erasedTypes;
+            TypeRef returnType = descriptor.returnType();
+            if (method.signature() != null) {
+                MethodSignature signature = signatureParser.parseMethodSignature(method.signature());
+                // the signature doesn't always contain the synthetic parameters
+                parameterTypes = signature.parameterTypes().size() == erasedTypes.size()
+                        ? signature.parameterTypes()
+                        : skip(signature.parameterTypes(), syntheticParameters);
+                returnType = signature.returnType();
+            }
+            if (constructors) {
+                returnType = signatureParser.toTypeRef(classFile.name());
+            }
+
+            List<String> names = method.parameterNames().size() == descriptor.parameterTypes().size()
+                    ? skip(method.parameterNames(), syntheticParameters)
+                    : List.of();
+            List<ParameterModel> parameters = new ArrayList<>();
+            for (int i = 0; i < parameterTypes.size(); i++) {
+                String name = i < names.size() && names.get(i) != null ? names.get(i) : "arg" + i;
+                parameters.add(new ParameterModel(name, parameterTypes.get(i)));
+            }
+            String sortKey = method.name() + erasedTypes.stream().map(TypeRef::qualifiedName)
+                    .collect(Collectors.joining(",", "(", ")"));
+            executables.put(sortKey,
+                    new ExecutableModel(method.name(), getVisibility(method.access()),
+                            method.is(ClassFile.ACC_ABSTRACT), method.is(ClassFile.ACC_STATIC), returnType,
+                            parameters));
+        }
+        return executables.entrySet().stream().sorted(Map.Entry.comparingByKey()).map(Map.Entry::getValue)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Checks if the given method was generated by the compiler and isn't part of
+     * the sources
+     *
+     * @param classFile the class declaring the method
+     * @param kind      the kind of the class
+     * @param method    the method
+     * @return if the method was generated
+     */
+    private static boolean isGenerated(ClassFile classFile, TypeKind kind, Member method) {
+        if (method.is(ClassFile.ACC_SYNTHETIC) || method.is(ClassFile.ACC_BRIDGE) || "<clinit>".equals(method.name()))
+            return true;
+        if (kind == TypeKind.ENUM) {
+            return "values".equals(method.name()) && method.descriptor().equals("()[L" + classFile.name() + ";")
+                    || "valueOf".equals(method.name())
+                            && method.descriptor().equals("(Ljava/lang/String;)L" + classFile.name() + ";");
+        }
+        if (kind == TypeKind.RECORD && method.is(ClassFile.ACC_FINAL)) {
+            return "toString".equals(method.name()) && method.descriptor().equals("()Ljava/lang/String;")
+                    || "hashCode".equals(method.name()) && method.descriptor().equals("()I")
+                    || "equals".equals(method.name()) && method.descriptor().equals("(Ljava/lang/Object;)Z");
+        }
+        return false;
+    }
+
+    /**
+     * Returns how many parameters the compiler adds in front of the declared
+     * parameters of a constructor. The constructor of an enum gets the name and
+     * the ordinal, the constructor of an inner class the enclosing instance.
+     *
+     * @param classFile the class
+     * @param kind      the kind of the class
+     * @return how many parameters were added
+     */
+    private static int getSyntheticParameterCount(ClassFile classFile, TypeKind kind) {
+        if (kind == TypeKind.ENUM)
+            return 2;
+        InnerClass ownInnerClass = classFile.getOwnInnerClass();
+        boolean innerClass = ownInnerClass != null && isMemberClass(ownInnerClass)
+                && (ownInnerClass.access() & ClassFile.ACC_STATIC) == 0;
+        return innerClass ? 1 : 0;
+    }
+
+    /**
+     * Skips the first elements of a list
+     *
+     * @param <T>   the type of the elements
+     * @param list  the list
+     * @param count how many elements are skipped
+     * @return the remaining elements
+     */
+    private static <T> List<T> skip(List<T> list, int count) {
+        return list.subList(Math.min(count, list.size()), list.size());
+    }
+
+    /**
+     * Returns the kind of a class
+     *
+     * @param classFile the class
+     * @return the kind
+     */
+    private static TypeKind getKind(ClassFile classFile) {
+        if (classFile.is(ClassFile.ACC_ANNOTATION))
+            return TypeKind.ANNOTATION;
+        if (classFile.is(ClassFile.ACC_INTERFACE))
+            return TypeKind.INTERFACE;
+        if (classFile.is(ClassFile.ACC_ENUM))
+            return TypeKind.ENUM;
+        if ("java/lang/Record".equals(classFile.superName()))
+            return TypeKind.RECORD;
+        return TypeKind.CLASS;
+    }
+
+    /**
+     * Returns the visibility of the given access flags
+     *
+     * @param access the access flags
+     * @return the visibility
+     */
+    private static VisibilityLevel getVisibility(int access) {
+        if ((access & ClassFile.ACC_PUBLIC) != 0)
+            return VisibilityLevel.PUBLIC;
+        if ((access & ClassFile.ACC_PROTECTED) != 0)
+            return VisibilityLevel.PROTECTED;
+        if ((access & ClassFile.ACC_PRIVATE) != 0)
+            return VisibilityLevel.PRIVATE;
+        return VisibilityLevel.PACKAGE_PROTECTED;
+    }
+
+    /**
+     * Returns the simple name of a class. The simple names of nested classes are
+     * taken from the InnerClasses attributes, because a {@code $} may also be
+     * part of a name.
+     *
+     * @param internalName the internal name of the class
+     * @return the simple name
+     */
+    private String getSimpleName(String internalName) {
+        String simpleName = simpleNames.get(internalName);
+        if (simpleName != null)
+            return simpleName;
+        String name = internalName.substring(internalName.lastIndexOf('/') + 1);
+        return name.substring(name.lastIndexOf('$') + 1);
+    }
+
+    /**
+     * Returns the package of a class
+     *
+     * @param internalName the internal name of the class
+     * @return the qualified name of the package
+     */
+    private static String getPackageName(String internalName) {
+        int separator = internalName.lastIndexOf('/');
+        return separator < 0 ? DiagramModelMerger.UNNAMED_PACKAGE
+                : SignatureParser.toQualifiedName(internalName.substring(0, separator));
+    }
+}
@@ -0,0 +1,106 @@
+package ninja.seppli.umlgenerator.scanner.bytecode;
+
+import java.util.List;
+
+/**
+ * The parts of a class file which are needed for a diagram. All class names
+ * are internal names like {@code java/lang/String}.
+ *
+ * @param access       the access flags of the class
+ * @param name         the internal name of the class
+ * @param superName    the internal name of the superclass or null for
+ *                     {@code java.lang.Object} and modules
+ * @param interfaces   the internal names of the implemented interfaces
+ * @param signature    the generic signature or null if the class isn't generic
+ * @param fields       the fields
+ * @param methods      the methods and constructors
+ * @param innerClasses the entries of the InnerClasses attribute
+ */
+public record ClassFile(int access, String name, String superName, List<String> interfaces, String signature,
+        List<Member> fields, List<Member> methods, List<InnerClass> innerClasses) {
+    public static final int ACC_PUBLIC = 0x0001;
+    public static final int ACC_PRIVATE = 0x0002;
+    public static final int ACC_PROTECTED = 0x0004;
+    public static final int ACC_STATIC = 0x0008;
+    public static final int ACC_FINAL = 0x0010;
+    public static final int ACC_BRIDGE = 0x0040;
+    public static final int ACC_INTERFACE = 0x0200;
+    public static final int ACC_ABSTRACT = 0x0400;
+    public static final int ACC_SYNTHETIC = 0x1000;
+    public static final int ACC_ANNOTATION = 0x2000;
+    public static final int ACC_ENUM = 0x4000;
+    public static final int ACC_MODULE = 0x8000;
+
+    /**
+     * Constructor
+     *
+     * @param access       the access flags of the class
+     * @param name         the internal name of the class
+     * @param superName    the internal name of the superclass
+     * @param interfaces   the internal names of the implemented interfaces
+     * @param signature    the generic signature
+     * @param fields       the fields
+     * @param methods      the methods and constructors
+     * @param innerClasses the entries of the InnerClasses attribute
+     */
+    public ClassFile {
+        interfaces = List.copyOf(interfaces);
+        fields = List.copyOf(fields);
+        methods = List.copyOf(methods);
+        innerClasses = List.copyOf(innerClasses);
+    }
+
+    /**
+     * Checks if the given flag is set
+     *
+     * @param flag the flag
+     * @return if the flag is set
+     */
+    public boolean is(int flag) {
+        return (access & flag) != 0;
+    }
+
+    /**
+     * Searches the InnerClasses entry which describes this class
+     *
+     * @return the entry or null if this isn't a nested class
+     */
+    public InnerClass getOwnInnerClass() {
+        return innerClasses.stream().filter(innerClass -> innerClass.name().equals(name)).findAny().orElse(null);
+    }
+
+    /**
+     * A field or a method
+     *
+     * @param access         the access flags
+     * @param name           the name, {@code <init>} for constructors
+     * @param descriptor     the descriptor
+     * @param signature      the generic signature or null
+     * @param parameterNames the names of the parameters as far as they are
+     *                       known, a name is null if it is unknown
+     */
+    public record Member(int access, String name, String descriptor, String signature,
+            List<String> parameterNames) {
+        /**
+         * Checks if the given flag is set
+         *
+         * @param flag the flag
+         * @return if the flag is set
+         */
+        public boolean is(int flag) {
+            return (access & flag) != 0;
+        }
+    }
+
+    /**
+     * An entry of the InnerClasses attribute
+     *
+     * @param name      the internal name of the nested class
+     * @param outerName the internal name of the enclosing class, null for local
+     *                  and anonymous classes
+     * @param innerName the simple name, null for anonymous classes
+     * @param access    the access flags as declared in the source
+     */
+    public record InnerClass(String name, String outerName, String innerName, int access) {
+    }
+}
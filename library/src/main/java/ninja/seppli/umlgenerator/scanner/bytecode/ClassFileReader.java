@@ -0,0 +1,300 @@
+package ninja.seppli.umlgenerator.scanner.bytecode;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ninja.seppli.umlgenerator.scanner.bytecode.ClassFile.InnerClass;
+import ninja.seppli.umlgenerator.scanner.bytecode.ClassFile.Member;
+
+/**
+ * A minimal reader of the class file format. It only reads the declarations
+ * of a class: its names, flags, fields, methods and the attributes Signature,
+ * InnerClasses, MethodParameters and LocalVariableTable. The bytecode itself
+ * is skipped.
+ *
+ * @see <a href="https://docs.oracle.com/javase/specs/jvms/se17/html/jvms-4.html">The
+ *      class file format</a>
+ */
+public class ClassFileReader {
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    /**
+     * the input
+     */
+    private DataInputStream input;
+
+    /**
+     * the utf8 entries of the constant pool, null for other entries
+     */
+    private String[] utf8Constants;
+
+    /**
+     * the name indices of the class entries of the constant pool, 0 for other
+     * entries
+     */
+    private int[] classConstants;
+
+    /**
+     * Constructor
+     *
+     * @param bytes the content of the class file
+     */
+    private ClassFileReader(byte[] bytes) {
+        this.input = new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Reads the given class file
+     *
+     * @param bytes the content of the class file
+     * @return the read class file
+     * @throws IOException if the content isn't a valid class file
+     */
+    public static ClassFile read(byte[] bytes) throws IOException {
+        return new ClassFileReader(bytes).readClassFile();
+    }
+
+    /**
+     * Reads the class file
+     *
+     * @return the read class file
+     * @throws IOException if the content isn't a valid class file
+     */
+    private ClassFile readClassFile() throws IOException {
+        if (input.readInt() != MAGIC)
+            throw new IOException("Not a class file");
+        input.readUnsignedShort(); // minor version
+        input.readUnsignedShort(); // major version
+        readConstantPool();
+
+        int access = input.readUnsignedShort();
+        String name = getClassName(input.readUnsignedShort());
+        String superName = getClassName(input.readUnsignedShort());
+        List<String> interfaces = new ArrayList<>();
+        int interfaceCount = input.readUnsignedShort();
+        for (int i = 0; i < interfaceCount; i++) {
+            interfaces.add(getClassName(input.readUnsignedShort()));
+        }
+        List<Member> fields = readMembers();
+        List<Member> methods = readMembers();
+
+        String signature = null;
+        List<InnerClass> innerClasses = new ArrayList<>();
+        int attributeCount = input.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            String attributeName = getUtf8(input.readUnsignedShort());
+            int length = input.readInt();
+            if ("Signature".equals(attributeName)) {
+                signature = getUtf8(input.readUnsignedShort());
+            } else if ("InnerClasses".equals(attributeName)) {
+                int classCount = input.readUnsignedShort();
+                for (int j = 0; j < classCount; j++) {
+                    innerClasses.add(new InnerClass(getClassName(input.readUnsignedShort()),
+                            getClassName(input.readUnsignedShort()), getUtf8(input.readUnsignedShort()),
+                            input.readUnsignedShort()));
+                }
+            } else {
+                skip(length);
+            }
+        }
+        return new ClassFile(access, name, superName, interfaces, signature, fields, methods, innerClasses);
+    }
+
+    /**
+     * Reads the constant pool. Only utf8 and class entries are kept.
+     *
+     * @throws IOException if the constant pool is invalid
+     */
+    private void readConstantPool() throws IOException {
+        int count = input.readUnsignedShort();
+        utf8Constants = new String[count];
+        classConstants = new int[count];
+        for (int i = 1; i < count; i++) {
+            int tag = input.readUnsignedByte();
+            switch (tag) {
+                case CONSTANT_UTF8 -> utf8Constants[i] = input.readUTF();
+                case CONSTANT_CLASS -> classConstants[i] = input.readUnsignedShort();
+                case CONSTANT_STRING, CONSTANT_METHOD_TYPE, CONSTANT_MODULE, CONSTANT_PACKAGE -> skip(2);
+                case CONSTANT_METHOD_HANDLE -> skip(3);
+                case CONSTANT_INTEGER, CONSTANT_FLOAT, CONSTANT_FIELDREF, CONSTANT_METHODREF,
+                        CONSTANT_INTERFACE_METHODREF, CONSTANT_NAME_AND_TYPE, CONSTANT_DYNAMIC,
+                        CONSTANT_INVOKE_DYNAMIC -> skip(4);
+                case CONSTANT_LONG, CONSTANT_DOUBLE -> {
+                    // takes two entries of the constant pool
+                    skip(8);
+                    i++;
+                }
+                default -> throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+    }
+
+    /**
+     * Reads the fields or the methods
+     *
+     * @return the read members
+     * @throws IOException if a member is invalid
+     */
+    private List<Member> readMembers() throws IOException {
+        int count = input.readUnsignedShort();
+        List<Member> members = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int access = input.readUnsignedShort();
+            String name = getUtf8(input.readUnsignedShort());
+            String descriptor = getUtf8(input.readUnsignedShort());
+            String signature = null;
+            String[] parameterNames = null;
+            String[] localVariableNames = null;
+            int attributeCount = input.readUnsignedShort();
+            for (int j = 0; j < attributeCount; j++) {
+                String attributeName = getUtf8(input.readUnsignedShort());
+                int length = input.readInt();
+                if ("Signature".equals(attributeName)) {
+                    signature = getUtf8(input.readUnsignedShort());
+                } else if ("MethodParameters".equals(attributeName)) {
+                    parameterNames = new String[input.readUnsignedByte()];
+                    for (int k = 0; k < parameterNames.length; k++) {
+                        parameterNames[k] = getUtf8(input.readUnsignedShort());
+                        input.readUnsignedShort(); // access flags
+                    }
+                } else if ("Code".equals(attributeName)) {
+                    localVariableNames = readCode(access, descriptor);
+                } else {
+                    skip(length);
+                }
+            }
+            String[] names = parameterNames != null ? parameterNames : localVariableNames;
+            members.add(new Member(access, name, descriptor, signature,
+                    names == null ? List.of() : Arrays.asList(names)));
+        }
+        return members;
+    }
+
+    /**
+     * Reads the Code attribute of a method and returns the parameter names from
+     * its LocalVariableTable
+     *
+     * @param access     the access flags of the method
+     * @param descriptor the descriptor of the method
+     * @return the parameter names or null if the code has no
+     *         LocalVariableTable
+     * @throws IOException if the attribute is invalid
+     */
+    private String[] readCode(int access, String descriptor) throws IOException {
+        skip(4); // max stack and max locals
+        skip(input.readInt()); // code
+        skip(input.readUnsignedShort() * 8); // exception table
+
+        int[] parameterSlots = getParameterSlots(access, descriptor);
+        String[] names = null;
+        int attributeCount = input.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            String attributeName = getUtf8(input.readUnsignedShort());
+            int length = input.readInt();
+            if (!"LocalVariableTable".equals(attributeName)) {
+                skip(length);
+                continue;
+            }
+            if (names == null)
+                names = new String[parameterSlots.length];
+            int entryCount = input.readUnsignedShort();
+            for (int j = 0; j < entryCount; j++) {
+                int startPc = input.readUnsignedShort();
+                input.readUnsignedShort(); // length
+                String name = getUtf8(input.readUnsignedShort());
+                input.readUnsignedShort(); // descriptor
+                int slot = input.readUnsignedShort();
+                for (int k = 0; k < parameterSlots.length; k++) {
+                    if (startPc == 0 && parameterSlots[k] == slot)
+                        names[k] = name;
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Computes in which local variable slot each parameter is stored
+     *
+     * @param access     the access flags of the method
+     * @param descriptor the descriptor of the method
+     * @return the slot of every parameter
+     */
+    private static int[] getParameterSlots(int access, String descriptor) {
+        List<Integer> slots = new ArrayList<>();
+        int slot = (access & ClassFile.ACC_STATIC) != 0 ? 0 : 1;
+        int index = 1; // skip '('
+        while (descriptor.charAt(index) != ')') {
+            slots.add(slot);
+            char type = descriptor.charAt(index);
+            slot += type == 'J' || type == 'D' ? 2 : 1;
+            while (descriptor.charAt(index) == '[') {
+                index++;
+            }
+            index = descriptor.charAt(index) == 'L' ? descriptor.indexOf(';', index) + 1 : index + 1;
+        }
+        return slots.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Returns the utf8 constant at the given index
+     *
+     * @param index the index in the constant pool, 0 if there is none
+     * @return the constant or null if the index is 0
+     * @throws IOException if the index doesn't point to a utf8 constant
+     */
+    private String getUtf8(int index) throws IOException {
+        if (index == 0)
+            return null;
+        if (index >= utf8Constants.length || utf8Constants[index] == null)
+            throw new IOException("Constant " + index + " isn't a utf8 constant");
+        return utf8Constants[index];
+    }
+
+    /**
+     * Returns the internal class name of the class constant at the given index
+     *
+     * @param index the index in the constant pool, 0 if there is none
+     * @return the internal class name or null if the index is 0
+     * @throws IOException if the index doesn't point to a class constant
+     */
+    private String getClassName(int index) throws IOException {
+        if (index == 0)
+            return null;
+        if (index >= classConstants.length || classConstants[index] == 0)
+            throw new IOException("Constant " + index + " isn't a class constant");
+        return getUtf8(classConstants[index]);
+    }
+
+    /**
+     * Skips the given amount of bytes
+     *
+     * @param length how many bytes are skipped
+     * @throws IOException if the input ends before
+     */
+    private void skip(int length) throws IOException {
+        input.skipNBytes(length);
+    }
+}
@@ -0,0 +1,316 @@
+package ninja.seppli.umlgenerator.scanner.bytecode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import ninja.seppli.umlgenerator.model.TypeRef;
+
+/**
+ * Parses the descriptors and generic signatures of a class file into
+ * {@link TypeRef}s, which are named like the references spoon builds from the
+ * sources. Nested classes are named {@code Outer$Inner}, type variables by
+ * their name, wildcards {@code ?} and arrays {@code Type[]}.
+ *
+ * @see <a href=
+ *      "https://docs.oracle.com/javase/specs/jvms/se17/html/jvms-4.html#jvms-4.7.9.1">Signatures</a>
+ */
+public class SignatureParser {
+    /**
+     * returns the simple name of a class by its internal name
+     */
+    private Function<String, String> simpleNames;
+
+    /**
+     * the signature which is parsed
+     */
+    private String signature;
+
+    /**
+     * the position of the next character to parse
+     */
+    private int position;
+
+    /**
+     * Constructor
+     *
+     * @param simpleNames returns the simple name of a class by its internal name
+     */
+    public SignatureParser(Function<String, String> simpleNames) {
+        this.simpleNames = simpleNames;
+    }
+
+    /**
+     * Converts an internal name like {@code java/util/Map$Entry} to the
+     * qualified name {@code java.util.Map$Entry}
+     *
+     * @param internalName the internal name
+     * @return the qualified name
+     */
+    public static String toQualifiedName(String internalName) {
+        return internalName.replace('/', '.');
+    }
+
+    /**
+     * Creates the reference to a class
+     *
+     * @param internalName the internal name of the class
+     * @return the reference
+     */
+    public TypeRef toTypeRef(String internalName) {
+        return new TypeRef(toQualifiedName(internalName), simpleNames.apply(internalName), List.of());
+    }
+
+    /**
+     * Parses a field descriptor or a field signature
+     *
+     * @param fieldSignature the descriptor or signature
+     * @return the type of the field
+     * @throws IllegalArgumentException if the signature is malformed
+     */
+    public TypeRef parseFieldSignature(String fieldSignature) {
+        start(fieldSignature);
+        return parseJavaType();
+    }
+
+    /**
+     * Parses a class signature
+     *
+     * @param classSignature the signature
+     * @return the parsed signature
+     * @throws IllegalArgumentException if the signature is malformed
+     */
+    public ClassSignature parseClassSignature(String classSignature) {
+        start(classSignature);
+        List<String> typeParameters = parseTypeParameters();
+        TypeRef superclass = parseJavaType();
+        List<TypeRef> interfaces = new ArrayList<>();
+        while (position < signature.length()) {
+            interfaces.add(parseJavaType());
+        }
+        return new ClassSignature(typeParameters, superclass, interfaces);
+    }
+
+    /**
+     * Parses a method descriptor or a method signature
+     *
+     * @param methodSignature the descriptor or signature
+     * @return the parsed signature
+     * @throws IllegalArgumentException if the signature is malformed
+     */
+    public MethodSignature parseMethodSignature(String methodSignature) {
+        start(methodSignature);
+        parseTypeParameters();
+        expect('(');
+        List<TypeRef> parameterTypes = new ArrayList<>();
+        while (peek() != ')') {
+            parameterTypes.add(parseJavaType());
+        }
+        expect(')');
+        // the thrown exceptions after the return type aren't needed
+        return new MethodSignature(parameterTypes, parseJavaType());
+    }
+
+    /**
+     * Starts to parse the given signature
+     *
+     * @param newSignature the signature
+     */
+    private void start(String newSignature) {
+        this.signature = newSignature;
+        this.position = 0;
+    }
+
+    /**
+     * Parses the optional formal type parameters
+     *
+     * @return the names of the type parameters
+     */
+    private List<String> parseTypeParameters() {
+        List<String> typeParameters = new ArrayList<>();
+        if (peek() != '<')
+            return typeParameters;
+        expect('<');
+        while (peek() != '>') {
+            typeParameters.add(readUntil(':'));
+            // the class bound is empty if there are only interface bounds
+            if (peek() != ':') {
+                parseJavaType();
+            }
+            while (peek() == ':') {
+                expect(':');
+                parseJavaType();
+            }
+        }
+        expect('>');
+        return typeParameters;
+    }
+
+    /**
+     * Parses a base type, a class type, a type variable or an array type
+     *
+     * @return the parsed type
+     */
+    private TypeRef parseJavaType() {
+        char type = next();
+        switch (type) {
+            case 'B':
+                return unqualified("byte");
+            case 'C':
+                return unqualified("char");
+            case 'D':
+                return unqualified("double");
+            case 'F':
+                return unqualified("float");
+            case 'I':
+                return unqualified("int");
+            case 'J':
+                return unqualified("long");
+            case 'S':
+                return unqualified("short");
+            case 'Z':
+                return unqualified("boolean");
+            case 'V':
+                return unqualified("void");
+            case 'T':
+                return unqualified(readUntil(';'));
+            case '[':
+                TypeRef componentType = parseJavaType();
+                return new TypeRef(componentType.qualifiedName() + "[]", componentType.simpleName() + "[]",
+                        List.of());
+            case 'L':
+                return parseClassType();
+            default:
+                throw new IllegalArgumentException(
+                        "Unexpected '" + type + "' at " + (position - 1) + " in \"" + signature + "\"");
+        }
+    }
+
+    /**
+     * Parses a class type after its 'L'. Of a nested type like
+     * {@code Outer<T>.Inner<U>} only the type arguments of the innermost class are
+     * kept, like spoon does.
+     *
+     * @return the parsed type
+     */
+    private TypeRef parseClassType() {
+        StringBuilder internalName = new StringBuilder();
+        List<TypeRef> typeArguments = List.of();
+        while (true) {
+            char character = next();
+            if (character == ';')
+                break;
+            if (character == '<') {
+                position--;
+                typeArguments = parseTypeArguments();
+            } else if (character == '.') {
+                internalName.append('$');
+                typeArguments = List.of();
+            } else {
+                internalName.append(character);
+            }
+        }
+        String name = internalName.toString();
+        return new TypeRef(toQualifiedName(name), simpleNames.apply(name), typeArguments);
+    }
+
+    /**
+     * Parses the type arguments of a class type
+     *
+     * @return the type arguments
+     */
+    private List<TypeRef> parseTypeArguments() {
+        List<TypeRef> typeArguments = new ArrayList<>();
+        expect('<');
+        while (peek() != '>') {
+            char indicator = peek();
+            if (indicator == '*') {
+                next();
+                typeArguments.add(unqualified("?"));
+            } else if (indicator == '+' || indicator == '-') {
+                // spoon doesn't keep the bounds of a wildcard in its name either
+                next();
+                parseJavaType();
+                typeArguments.add(unqualified("?"));
+            } else {
+                typeArguments.add(parseJavaType());
+            }
+        }
+        expect('>');
+        return typeArguments;
+    }
+
+    /**
+     * Creates a reference whose qualified and simple names are the same
+     *
+     * @param name the name
+     * @return the reference
+     */
+    private static TypeRef unqualified(String name) {
+        return new TypeRef(name, name, List.of());
+    }
+
+    /**
+     * Reads all characters until the given one, which is skipped
+     *
+     * @param end the character after the read characters
+     * @return the read characters
+     */
+    private String readUntil(char end) {
+        int endPosition = signature.indexOf(end, position);
+        if (endPosition < 0)
+            throw new IllegalArgumentException("Missing '" + end + "' in \"" + signature + "\"");
+        String read = signature.substring(position, endPosition);
+        position = endPosition + 1;
+        return read;
+    }
+
+    /**
+     * Skips the given character
+     *
+     * @param expected the character
+     */
+    private void expect(char expected) {
+        char character = next();
+        if (character != expected)
+            throw new IllegalArgumentException("Expected '" + expected + "' but was '" + character + "' at "
+                    + (position - 1) + " in \"" + signature + "\"");
+    }
+
+    /**
+     * @return the next character, which is consumed
+     */
+    private char next() {
+        char character = peek();
+        position++;
+        return character;
+    }
+
+    /**
+     * @return the next character without consuming it
+     */
+    private char peek() {
+        if (position >= signature.length())
+            throw new IllegalArgumentException("Unexpected end of \"" + signature + "\"");
+        return signature.charAt(position);
+    }
+
+    /**
+     * A parsed class signature
+     *
+     * @param typeParameters the names of the type parameters
+     * @param superclass     the superclass
+     * @param interfaces     the implemented interfaces
+     */
+    public record ClassSignature(List<String> typeParameters, TypeRef superclass, List<TypeRef> interfaces) {
+    }
+
+    /**
+     * A parsed method signature
+     *
+     * @param parameterTypes the types of the parameters
+     * @param returnType     the return type
+     */
+    public record MethodSignature(List<TypeRef> parameterTypes, TypeRef returnType) {
+    }
+}
@@ -0,0 +1,60 @@
+package ninja.seppli.umlgenerator.scanner.jdt;
+
+import ninja.seppli.umlgenerator.scanner.ClasspathIndex;
+import spoon.Launcher;
+import spoon.SpoonModelBuilder;
+import spoon.reflect.factory.Factory;
+import spoon.support.compiler.jdt.JDTBasedSpoonCompiler;
+
+/**
+ * A launcher which resolves the types the scanned sources reference from a
+ * {@link ClasspathIndex}. Without an index, it behaves like a normal
+ * {@link Launcher}.
+ *
+ * @see IndexedNameEnvironment
+ */
+public class ClasspathIndexLauncher extends Launcher {
+    /**
+     * the indexed classpath, null if there is none
+     */
+    private ClasspathIndex classpathIndex;
+
+    /**
+     * @return the indexed classpath, null if there is none
+     */
+    public ClasspathIndex getClasspathIndex() {
+        return classpathIndex;
+    }
+
+    /**
+     * Sets the indexed classpath. It is used by the model builder of
+     * {@link #buildModel()}, which the launcher already created, and by all
+     * compilers created afterwards.
+     *
+     * @param classpathIndex the indexed classpath, null if there is none
+     * @returns this instance for a fluent like api
+     */
+    public ClasspathIndexLauncher setClasspathIndex(ClasspathIndex classpathIndex) {
+        this.classpathIndex = classpathIndex;
+        useClasspathIndex(getModelBuilder());
+        return this;
+    }
+
+    @Override
+    public SpoonModelBuilder createCompiler(Factory factory) {
+        SpoonModelBuilder compiler = super.createCompiler(factory);
+        useClasspathIndex(compiler);
+        return compiler;
+    }
+
+    /**
+     * Lets the given compiler look up the referenced types in the index
+     *
+     * @param compiler the compiler
+     */
+    private void useClasspathIndex(SpoonModelBuilder compiler) {
+        if (classpathIndex != null && compiler instanceof JDTBasedSpoonCompiler jdtCompiler) {
+            jdtCompiler.setEnvironment(new IndexedNameEnvironment(classpathIndex));
+        }
+    }
+}
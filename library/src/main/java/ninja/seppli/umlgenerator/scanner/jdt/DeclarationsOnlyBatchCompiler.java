@@ -0,0 +1,154 @@
+package ninja.seppli.umlgenerator.scanner.jdt;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.jdt.internal.compiler.Compiler;
+import org.eclipse.jdt.internal.compiler.DefaultErrorHandlingPolicies;
+import org.eclipse.jdt.internal.compiler.ICompilerRequestor;
+import org.eclipse.jdt.internal.compiler.IErrorHandlingPolicy;
+import org.eclipse.jdt.internal.compiler.IProblemFactory;
+import org.eclipse.jdt.internal.compiler.ast.CompilationUnitDeclaration;
+import org.eclipse.jdt.internal.compiler.batch.CompilationUnit;
+import org.eclipse.jdt.internal.compiler.env.INameEnvironment;
+import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
+import org.eclipse.jdt.internal.compiler.problem.ProblemReporter;
+import org.eclipse.jdt.internal.compiler.problem.ProblemSeverities;
+
+import spoon.compiler.Environment;
+import spoon.support.compiler.SpoonProgress.Process;
+import spoon.support.compiler.jdt.JDTBasedSpoonCompiler;
+import spoon.support.compiler.jdt.JDTBatchCompiler;
+
+/**
+ * Builds the JDT compilation units like the {@link JDTBatchCompiler}, but with
+ * {@link CompilerOptions#ignoreMethodBodies} set. JDT then only diet-parses the
+ * sources and resolves the declarations, the statements of method bodies are
+ * neither parsed, resolved nor analysed.
+ */
+public class DeclarationsOnlyBatchCompiler extends JDTBatchCompiler {
+    /**
+     * the requestor which collects the problems of the compiled units
+     */
+    private ICompilerRequestor requestor;
+
+    /**
+     * the name environment of the model builder, null if the library access of
+     * the batch compiler should be used
+     */
+    private INameEnvironment nameEnvironment;
+
+    /**
+     * Constructor
+     *
+     * @param jdtCompiler     the model builder
+     * @param requestor       the requestor which collects the problems
+     * @param nameEnvironment the name environment or null
+     */
+    public DeclarationsOnlyBatchCompiler(JDTBasedSpoonCompiler jdtCompiler, ICompilerRequestor requestor,
+            INameEnvironment nameEnvironment) {
+        super(jdtCompiler);
+        this.requestor = requestor;
+        this.nameEnvironment = nameEnvironment;
+    }
+
+    @Override
+    public CompilationUnitDeclaration[] getUnits() {
+        startTime = System.currentTimeMillis();
+        Environment environment = getJdtCompiler().getFactory().getEnvironment();
+        INameEnvironment names = nameEnvironment == null ? getLibraryAccess() : nameEnvironment;
+
+        CompilerOptions compilerOptions = new CompilerOptions(this.options);
+        compilerOptions.parseLiteralExpressionsAsConstants = false;
+        compilerOptions.ignoreMethodBodies = true;
+
+        IErrorHandlingPolicy errorHandlingPolicy = environment.getNoClasspath()
+                ? DefaultErrorHandlingPolicies.proceedWithAllProblems()
+                : DefaultErrorHandlingPolicies.exitAfterAllProblems();
+        IProblemFactory problemFactory = getProblemFactory();
+        DeclarationsCompiler compiler = new DeclarationsCompiler(names, errorHandlingPolicy, compilerOptions,
+                requestor, problemFactory, out, environment);
+        if (environment.getNoClasspath()) {
+            compiler.lookupEnvironment.problemReporter = new ProblemReporter(errorHandlingPolicy, compilerOptions,
+                    problemFactory) {
+                @Override
+                public int computeSeverity(int problemID) {
+                    return ProblemSeverities.Ignore;
+                }
+            };
+            compiler.lookupEnvironment.mayTolerateMissingType = true;
+        }
+
+        environment.getSpoonProgress().start(Process.COMPILE);
+        CompilationUnitDeclaration[] units = compiler.buildUnits(getCompilationUnits());
+        environment.getSpoonProgress().end(Process.COMPILE);
+        return units;
+    }
+
+    /**
+     * The JDT compiler which resolves the diet-parsed units without ever parsing
+     * their method bodies
+     */
+    private static class DeclarationsCompiler extends Compiler {
+        /**
+         * the spoon environment which is informed about the progress
+         */
+        private Environment spoonEnvironment;
+
+        /**
+         * Constructor
+         *
+         * @param environment      the name environment
+         * @param policy           the error handling policy
+         * @param compilerOptions  the compiler options
+         * @param requestor        the requestor
+         * @param problemFactory   the problem factory
+         * @param out              the writer for the compiler output
+         * @param spoonEnvironment the spoon environment
+         */
+        DeclarationsCompiler(INameEnvironment environment, IErrorHandlingPolicy policy,
+                CompilerOptions compilerOptions, ICompilerRequestor requestor, IProblemFactory problemFactory,
+                PrintWriter out, Environment spoonEnvironment) {
+            super(environment, policy, compilerOptions, requestor, problemFactory, out, null);
+            this.spoonEnvironment = spoonEnvironment;
+        }
+
+        /**
+         * Builds and resolves the given units
+         *
+         * @param sourceUnits the units to build
+         * @return the resolved units
+         */
+        CompilationUnitDeclaration[] buildUnits(CompilationUnit[] sourceUnits) {
+            // module declarations have to be known before any other unit is resolved
+            Arrays.sort(sourceUnits, Comparator.comparing(unit -> !isModuleInfo(unit)));
+            beginToCompile(sourceUnits);
+            List<CompilationUnitDeclaration> units = new ArrayList<>();
+            for (int i = 0; i < totalUnits; i++) {
+                CompilationUnitDeclaration unit = unitsToProcess[i];
+                if (unit.scope != null) {
+                    unit.scope.faultInTypes();
+                    unit.scope.verifyMethods(lookupEnvironment.methodVerifier());
+                }
+                unit.resolve();
+                unit.ignoreFurtherInvestigation = false;
+                requestor.acceptResult(unit.compilationResult);
+                units.add(unit);
+                spoonEnvironment.getSpoonProgress().step(Process.COMPILE, new String(unit.getFileName()), i + 1,
+                        totalUnits);
+            }
+            return units.toArray(CompilationUnitDeclaration[]::new);
+        }
+
+        /**
+         * @param unit the unit
+         * @return if the unit is a module-info.java
+         */
+        private boolean isModuleInfo(CompilationUnit unit) {
+            return new String(unit.getFileName()).endsWith("module-info.java");
+        }
+    }
+}
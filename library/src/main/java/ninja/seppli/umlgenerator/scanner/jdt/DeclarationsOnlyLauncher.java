@@ -0,0 +1,26 @@
+package ninja.seppli.umlgenerator.scanner.jdt;
+
+import spoon.SpoonModelBuilder;
+import spoon.reflect.factory.Factory;
+
+/**
+ * A launcher which only builds the declarations of the scanned sources. Types,
+ * fields and the signatures of methods and constructors are part of the model,
+ * but the bodies of methods, constructors and initializers are never parsed
+ * and stay empty.
+ */
+public class DeclarationsOnlyLauncher extends ClasspathIndexLauncher {
+    /**
+     * Constructor
+     */
+    public DeclarationsOnlyLauncher() {
+        // comments are only needed for bodies and pretty-printing, attaching them
+        // would parse every file a second time
+        getEnvironment().setCommentEnabled(false);
+    }
+
+    @Override
+    protected SpoonModelBuilder getCompilerInstance(Factory factory) {
+        return new DeclarationsOnlyModelBuilder(factory);
+    }
+}
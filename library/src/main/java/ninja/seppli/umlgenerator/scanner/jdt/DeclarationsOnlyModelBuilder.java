@@ -0,0 +1,26 @@
+package ninja.seppli.umlgenerator.scanner.jdt;
+
+import spoon.reflect.factory.Factory;
+import spoon.support.compiler.jdt.JDTBasedSpoonCompiler;
+import spoon.support.compiler.jdt.JDTBatchCompiler;
+
+/**
+ * A model builder which tells JDT to skip all method bodies
+ *
+ * @see DeclarationsOnlyLauncher
+ */
+public class DeclarationsOnlyModelBuilder extends JDTBasedSpoonCompiler {
+    /**
+     * Constructor
+     *
+     * @param factory the factory the model is built with
+     */
+    public DeclarationsOnlyModelBuilder(Factory factory) {
+        super(factory);
+    }
+
+    @Override
+    protected JDTBatchCompiler createBatchCompiler() {
+        return new DeclarationsOnlyBatchCompiler(this, requestor, environment);
+    }
+}
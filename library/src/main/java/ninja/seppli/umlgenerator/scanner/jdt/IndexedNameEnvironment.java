@@ -0,0 +1,83 @@
+package ninja.seppli.umlgenerator.scanner.jdt;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.internal.compiler.batch.FileSystem;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFormatException;
+import org.eclipse.jdt.internal.compiler.env.INameEnvironment;
+import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
+
+import ninja.seppli.umlgenerator.scanner.ClasspathIndex;
+
+/**
+ * The name environment JDT looks up the binary types with. The classes of the
+ * JDK are looked up in the runtime image, like the compiler does with its boot
+ * classpath. All other classes are looked up in a {@link ClasspathIndex}, so
+ * JDT never has to open or search the jars of the classpath itself.
+ */
+public class IndexedNameEnvironment implements INameEnvironment {
+    /**
+     * the indexed classpath
+     */
+    private ClasspathIndex index;
+
+    /**
+     * the environment of the JDK classes
+     */
+    private INameEnvironment jdkEnvironment;
+
+    /**
+     * Constructor
+     *
+     * @param index the indexed classpath
+     */
+    public IndexedNameEnvironment(ClasspathIndex index) {
+        this.index = index;
+        Path runtimeImage = Paths.get(System.getProperty("java.home"), "lib", "jrt-fs.jar");
+        this.jdkEnvironment = new FileSystem(new String[] { runtimeImage.toString() }, null, null);
+    }
+
+    @Override
+    public NameEnvironmentAnswer findType(char[][] compoundTypeName) {
+        NameEnvironmentAnswer answer = jdkEnvironment.findType(compoundTypeName);
+        return answer != null ? answer : findIndexedType(CharOperation.concatWith(compoundTypeName, '/'));
+    }
+
+    @Override
+    public NameEnvironmentAnswer findType(char[] typeName, char[][] packageName) {
+        NameEnvironmentAnswer answer = jdkEnvironment.findType(typeName, packageName);
+        return answer != null ? answer : findIndexedType(CharOperation.concatWith(packageName, typeName, '/'));
+    }
+
+    @Override
+    public boolean isPackage(char[][] parentPackageName, char[] packageName) {
+        return jdkEnvironment.isPackage(parentPackageName, packageName)
+                || index.isPackage(new String(CharOperation.concatWith(parentPackageName, packageName, '/')));
+    }
+
+    @Override
+    public void cleanup() {
+        jdkEnvironment.cleanup();
+    }
+
+    /**
+     * Looks up a class in the index
+     *
+     * @param internalName the internal name of the class
+     * @return the answer or null if the class isn't on the classpath
+     */
+    private NameEnvironmentAnswer findIndexedType(char[] internalName) {
+        String name = new String(internalName);
+        byte[] classFile = index.readClass(name);
+        if (classFile == null)
+            return null;
+        try {
+            return new NameEnvironmentAnswer(new ClassFileReader(classFile, (name + ".class").toCharArray()), null);
+        } catch (ClassFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package ninja.seppli.umlgenerator.daemon;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.URISyntaxException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ninja.seppli.umlgenerator.options.GeneralUmlOptions;
+import ninja.seppli.umlgenerator.options.PlantumlOptions;
+import ninja.seppli.umlgenerator.options.UmlOptions;
+import ninja.seppli.umlgenerator.options.VisibilityLevel;
+import ninja.seppli.umlgenerator.renderer.PlantumlRenderer;
+import ninja.seppli.umlgenerator.scanner.DiagramGenerator;
+
+class DiagramDaemonTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void rendersWithAWarmGenerator() throws Exception {
+        Path socket = tempDir.resolve("daemon.sock");
+        DiagramDaemon daemon = new DiagramDaemon(socket);
+        daemon.start();
+        Thread thread = new Thread(() -> {
+            try {
+                daemon.serve();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+
+        DaemonClient client = new DaemonClient(socket);
+        assertTrue(client.isRunning());
+        if (socket.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(socket)));
+        }
+        GeneralUmlOptions options = new GeneralUmlOptions(17, VisibilityLevel.PROTECTED, VisibilityLevel.PRIVATE);
+        Path renderCacheFile = tempDir.resolve("render.cache");
+        RenderRequest request = new RenderRequest(List.of(getSamplePath()), options, true, List.of(),
+                64L * 1024 * 1024, Duration.ofSeconds(30), renderCacheFile);
+        RenderResponse response = client.render(request);
+
+        assertTrue(response.isSuccess(), response.statistics());
+        assertTrue(Files.exists(renderCacheFile));
+        String expected = new PlantumlRenderer().render(new DiagramGenerator(options).addFiles(getSamplePath())
+                .generate(), new UmlOptions(options, new PlantumlOptions()));
+        assertEquals(expected, response.diagram());
+        // the second request is served by the warm generator
+        response = client.render(request);
+        assertEquals(expected, response.diagram());
+        assertTrue(response.statistics().contains("(0 parsed"), response.statistics());
+        // a different heap budget is served by another generator
+        response = client.render(new RenderRequest(List.of(getSamplePath()), options, true, List.of()));
+        assertEquals(expected, response.diagram());
+        assertFalse(response.statistics().contains("(0 parsed"), response.statistics());
+
+        client.stop();
+        thread.join(10_000);
+        assertFalse(thread.isAlive());
+        assertFalse(Files.exists(socket));
+        assertFalse(client.isRunning());
+    }
+
+    @Test
+    void replacesAStaleSocketFile() throws Exception {
+        Path socket = tempDir.resolve("daemon.sock");
+        Files.createFile(socket);
+
+        try (DiagramDaemon daemon = new DiagramDaemon(socket)) {
+            daemon.start();
+            assertTrue(new DaemonClient(socket).isRunning());
+        }
+        assertFalse(Files.exists(socket));
+    }
+
+    @Test
+    void givesUpOnADaemonWhichDoesntAnswer() throws Exception {
+        Path socket = tempDir.resolve("daemon.sock");
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            DaemonClient client = new DaemonClient(socket).setTimeout(Duration.ofMillis(500));
+            GeneralUmlOptions options = new GeneralUmlOptions(17, VisibilityLevel.PROTECTED, VisibilityLevel.PRIVATE);
+            RenderRequest request = new RenderRequest(List.of(getSamplePath()), options, true, List.of());
+
+            // the connection is accepted by the backlog, but the request is never read
+            long start = System.nanoTime();
+            assertThrows(SocketTimeoutException.class, () -> client.render(request));
+            assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+        }
+    }
+
+    private static Path getSamplePath() throws URISyntaxException {
+        return Paths.get(DiagramDaemonTest.class.getResource("/sample").toURI());
+    }
+}
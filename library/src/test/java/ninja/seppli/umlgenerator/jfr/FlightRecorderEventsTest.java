@@ -0,0 +1,61 @@
+package ninja.seppli.umlgenerator.jfr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import ninja.seppli.umlgenerator.model.DiagramModel;
+import ninja.seppli.umlgenerator.renderer.PlantumlRenderer;
+import ninja.seppli.umlgenerator.scanner.DiagramGenerator;
+import ninja.seppli.umlgenerator.scanner.DiagramWriter;
+
+class FlightRecorderEventsTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void emitsEventsForEveryPhase() throws Exception {
+        Path sample = Paths.get(getClass().getResource("/sample").toURI());
+        Path recordingFile = tempDir.resolve("scan.jfr");
+        Path diagramFile = tempDir.resolve("diagram.puml");
+        try (Recording recording = new Recording()) {
+            for (String name : List.of("Scan", "ScanPhase", "FileParse", "RenderPackage", "Write")) {
+                recording.enable("ninja.seppli.umlgenerator." + name).withoutThreshold();
+            }
+            recording.start();
+            DiagramModel model = new DiagramGenerator().setMinShardSize(1).addFiles(sample).generate();
+            new DiagramWriter(model, new PlantumlRenderer()).writeFile(diagramFile);
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+
+        RecordedEvent scan = findEvents(events, "Scan").get(0);
+        RecordedEvent write = findEvents(events, "Write").get(0);
+        assertEquals(write.getInt("typeCount"), scan.getInt("typeCount"));
+        assertTrue(scan.getLong("byteCount") > 0);
+        assertTrue(findEvents(events, "ScanPhase").stream()
+                .anyMatch(event -> "parsing".equals(event.getString("phase"))));
+        List<RecordedEvent> lionEvents = findEvents(events, "FileParse").stream()
+                .filter(event -> event.getString("path").endsWith("Lion.java")).collect(Collectors.toList());
+        assertTrue(lionEvents.stream().anyMatch(event -> "COMPILE".equals(event.getString("stage"))));
+        assertTrue(lionEvents.stream().anyMatch(event -> event.getInt("typeCount") == 1));
+        assertEquals(2, findEvents(events, "RenderPackage").size());
+        assertEquals(diagramFile.toString(), write.getString("path"));
+    }
+
+    private List<RecordedEvent> findEvents(List<RecordedEvent> events, String name) {
+        String eventName = "ninja.seppli.umlgenerator." + name;
+        return events.stream().filter(event -> event.getEventType().getName().equals(eventName))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,34 @@
+package ninja.seppli.umlgenerator.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+class IndentingWriterTest {
+    @Test
+    void indentsLikeSplittingIntoLines() throws Exception {
+        List<String> inputs = List.of("", "a", "a\n", "a\nb\n", "a\n\nb\n\nc", "\n", "\n\n");
+        for (String input : inputs) {
+            StringBuilder out = new StringBuilder();
+            new IndentingWriter(out).indent().append(input);
+
+            String expected = input.lines().map(line -> "\t" + line).collect(Collectors.joining("\n"));
+            assertEquals(input.endsWith("\n") ? expected + "\n" : expected, out.toString(), input);
+        }
+    }
+
+    @Test
+    void indentsEveryLineByTheCurrentDepth() throws Exception {
+        StringBuilder out = new StringBuilder();
+        IndentingWriter writer = new IndentingWriter(out);
+        writer.line("package a {").indent().line("class B {").indent().line("+ int c").line("").outdent()
+                .append("}\nclass ").append('D').line(" {").outdent().line("}");
+
+        assertEquals("package a {\n\tclass B {\n\t\t+ int c\n\t\t\n\t}\n\tclass D {\n}\n", out.toString());
+        assertEquals(0, writer.getDepth());
+        assertThrows(IllegalStateException.class, writer::outdent);
+    }
+}
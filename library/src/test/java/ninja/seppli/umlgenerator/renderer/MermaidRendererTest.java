@@ -0,0 +1,78 @@
+package ninja.seppli.umlgenerator.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringWriter;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ninja.seppli.umlgenerator.model.DiagramModel;
+import ninja.seppli.umlgenerator.options.UmlOptions;
+import ninja.seppli.umlgenerator.scanner.DiagramGenerator;
+import ninja.seppli.umlgenerator.scanner.DiagramWriter;
+
+class MermaidRendererTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void rendersAClassDiagram() throws Exception {
+        DiagramModel model = new DiagramGenerator().addFiles(getSamplePath()).generate();
+        String diagram = new MermaidRenderer().render(model, new UmlOptions());
+
+        assertTrue(diagram.startsWith("classDiagram\n"), diagram);
+        assertTrue(diagram.contains("class zoo_animals_Animal[\"Animal\"] {\n\t<<abstract>>\n"), diagram);
+        assertTrue(diagram.contains("\t+ int MAX_AGE$\n"), diagram);
+        assertTrue(diagram.contains("\t+ makeSound() Sound*\n"), diagram);
+        assertTrue(diagram.contains("class zoo_animals_Feedable[\"Feedable\"] {\n\t<<interface>>\n"), diagram);
+        assertTrue(diagram.contains("\t+ isVegan(Food food) boolean$\n"), diagram);
+        assertTrue(diagram.contains("class zoo_animals_Food[\"Food\"] {\n\t<<enumeration>>\n"), diagram);
+        assertTrue(diagram.contains("\nzoo_animals_Lion --|> zoo_animals_Animal\n"), diagram);
+        assertTrue(diagram.contains("\nzoo_animals_Animal ..|> zoo_animals_Feedable\n"), diagram);
+        assertFalse(diagram.contains("package "), diagram);
+        // a supertype outside of the diagram is labeled as well
+        assertTrue(diagram.contains("\nclass java_lang_Comparable[\"Comparable\"]\n"), diagram);
+    }
+
+    @Test
+    void keepsTypesWithTheSameNameApart() throws Exception {
+        Files.createDirectories(tempDir.resolve("a"));
+        Files.createDirectories(tempDir.resolve("b"));
+        Files.writeString(tempDir.resolve("a/Item.java"), "package a;\n\npublic class Item {\n}\n");
+        Files.writeString(tempDir.resolve("b/Item.java"), "package b;\n\npublic class Item extends a.Item {\n}\n");
+        DiagramModel model = new DiagramGenerator().addFiles(tempDir).generate();
+        String diagram = new MermaidRenderer().render(model, new UmlOptions());
+
+        assertTrue(diagram.contains("\nclass a_Item[\"Item\"] {\n"), diagram);
+        assertTrue(diagram.contains("\nclass b_Item[\"Item\"] {\n"), diagram);
+        assertTrue(diagram.contains("\nb_Item --|> a_Item\n"), diagram);
+    }
+
+    @Test
+    void oneWalkEqualsSeparateRenders() throws Exception {
+        DiagramModel model = new DiagramGenerator().addFiles(getSamplePath()).generate();
+        StringWriter plantuml = new StringWriter();
+        StringWriter mermaid = new StringWriter();
+        new MultiFormatRenderer().addOutput(new PlantumlRenderer(), plantuml)
+                .addOutput(new MermaidRenderer(), mermaid).render(model, new UmlOptions());
+
+        assertEquals(new PlantumlRenderer().render(model, new UmlOptions()), plantuml.toString());
+        assertEquals(new MermaidRenderer().render(model, new UmlOptions()), mermaid.toString());
+
+        Path plantumlFile = tempDir.resolve("diagram.plantuml");
+        Path mermaidFile = tempDir.resolve("diagram.mmd");
+        new DiagramWriter(model, new PlantumlRenderer()).addOutput(mermaidFile, new MermaidRenderer())
+                .writeFile(plantumlFile);
+        assertEquals(plantuml.toString(), Files.readString(plantumlFile));
+        assertEquals(mermaid.toString(), Files.readString(mermaidFile));
+    }
+
+    private static Path getSamplePath() throws URISyntaxException {
+        return Paths.get(MermaidRendererTest.class.getResource("/sample").toURI());
+    }
+}
@@ -0,0 +1,55 @@
+package ninja.seppli.umlgenerator.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ninja.seppli.umlgenerator.model.DiagramModel;
+import ninja.seppli.umlgenerator.options.UmlOptions;
+import ninja.seppli.umlgenerator.scanner.DiagramGenerator;
+import ninja.seppli.umlgenerator.scanner.DiagramWriter;
+
+class PlantumlRendererTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void streamedDiagramEqualsRenderedString() throws Exception {
+        DiagramModel model = new DiagramGenerator().addFiles(getSamplePath()).generate();
+        String diagram = new PlantumlRenderer().render(model, new UmlOptions());
+        Path file = tempDir.resolve("diagram.plantuml");
+        new DiagramWriter(model, new PlantumlRenderer()).writeFile(file);
+
+        assertEquals(diagram, Files.readString(file));
+        assertTrue(diagram.startsWith("@startuml\npackage zoo.animals {\n\t"), diagram);
+        assertTrue(diagram.endsWith("\n@enduml\n"), diagram);
+    }
+
+    @Test
+    void parallelRenderingEqualsSequentialRendering() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            Path packageDir = Files.createDirectories(tempDir.resolve("p" + i));
+            Files.writeString(packageDir.resolve("A.java"), "package p" + i + ";\n\npublic class A extends p"
+                    + (i + 1) % 20 + ".A {\n    public int a" + i + ";\n}\n");
+        }
+        DiagramModel model = new DiagramGenerator().addFiles(tempDir).generate();
+        String diagram = new PlantumlRenderer().setParallelism(1).render(model, new UmlOptions());
+
+        try (AbstractRenderer parallelRenderer = new PlantumlRenderer().setParallelism(4)) {
+            assertEquals(diagram, parallelRenderer.render(model, new UmlOptions()));
+            // the pool of the first render is reused
+            assertEquals(diagram, parallelRenderer.render(model, new UmlOptions()));
+        }
+        assertTrue(diagram.indexOf("package p1 {") < diagram.indexOf("package p10 {"), diagram);
+    }
+
+    private static Path getSamplePath() throws URISyntaxException {
+        return Paths.get(PlantumlRendererTest.class.getResource("/sample").toURI());
+    }
+}
@@ -0,0 +1,61 @@
+package ninja.seppli.umlgenerator.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ninja.seppli.umlgenerator.model.DiagramModel;
+import ninja.seppli.umlgenerator.options.GeneralUmlOptions;
+import ninja.seppli.umlgenerator.options.PlantumlOptions;
+import ninja.seppli.umlgenerator.options.UmlOptions;
+import ninja.seppli.umlgenerator.options.VisibilityLevel;
+import ninja.seppli.umlgenerator.scanner.DiagramGenerator;
+
+class RenderFragmentCacheTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void rendersOnlyChangedTypesAgain() throws Exception {
+        Path sources = Files.createDirectories(tempDir.resolve("src/zoo"));
+        Files.writeString(sources.resolve("Lion.java"),
+                "package zoo;\n\npublic class Lion {\n    public int age;\n}\n");
+        Files.writeString(sources.resolve("Cage.java"), "package zoo;\n\npublic class Cage {\n    Lion lion;\n}\n");
+        Path cacheFile = tempDir.resolve("build/render.cache");
+        DiagramGenerator generator = new DiagramGenerator().addFiles(sources);
+        DiagramModel model = generator.generate();
+        String expected = new PlantumlRenderer().render(model, new UmlOptions());
+
+        RenderFragmentCache cache = new RenderFragmentCache(cacheFile);
+        assertEquals(expected, new PlantumlRenderer().setFragmentCache(cache).render(model, new UmlOptions()));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertTrue(Files.exists(cacheFile));
+
+        // a new cache, e.g. in the next build, reads the fragments from the file
+        cache = new RenderFragmentCache(cacheFile);
+        assertEquals(expected, new PlantumlRenderer().setFragmentCache(cache).render(model, new UmlOptions()));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+
+        Files.writeString(sources.resolve("Lion.java"),
+                "package zoo;\n\npublic class Lion {\n    public long age;\n}\n");
+        model = generator.generate();
+        String diagram = new PlantumlRenderer().setFragmentCache(cache).render(model, new UmlOptions());
+        assertEquals(new PlantumlRenderer().render(model, new UmlOptions()), diagram);
+        assertTrue(diagram.contains("+long age"), diagram);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // the visibility levels change the fragments
+        GeneralUmlOptions restricted = new GeneralUmlOptions(17, VisibilityLevel.PROTECTED, VisibilityLevel.PROTECTED);
+        UmlOptions options = new UmlOptions(restricted, new PlantumlOptions());
+        diagram = new PlantumlRenderer().setFragmentCache(cache).render(model, options);
+        assertEquals(new PlantumlRenderer().render(model, options), diagram);
+        assertEquals(0, cache.getHitCount());
+    }
+}
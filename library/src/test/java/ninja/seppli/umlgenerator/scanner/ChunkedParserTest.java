@@ -0,0 +1,58 @@
+package ninja.seppli.umlgenerator.scanner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Deque;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ChunkedParserTest {
+    private static final Path A1 = Paths.get("/src/a/A1.java");
+    private static final Path A2 = Paths.get("/src/a/A2.java");
+    private static final Path B1 = Paths.get("/src/b/B1.java");
+    private static final Path C1 = Paths.get("/src/c/C1.java");
+    private static final Path C2 = Paths.get("/src/c/C2.java");
+    private static final Path C3 = Paths.get("/src/c/C3.java");
+
+    private final ChunkedParser parser = new ChunkedParser(new ShardedParser(null, 1, 1), 1, file -> 10,
+            ScanStatistics.start());
+
+    @Test
+    void batchesKeepPackagesTogether() {
+        Deque<List<Path>> packages = parser.groupByPackage(List.of(B1, A2, A1));
+
+        assertEquals(List.of(A1, A2), parser.nextBatch(packages, 25));
+        assertEquals(List.of(B1), parser.nextBatch(packages, 25));
+        assertTrue(packages.isEmpty());
+    }
+
+    @Test
+    void splitsPackagesWhichAreBiggerThanABatch() {
+        Deque<List<Path>> packages = parser.groupByPackage(List.of(C3, C1, C2, B1));
+
+        assertEquals(List.of(B1), parser.nextBatch(packages, 25));
+        assertEquals(List.of(C1, C2), parser.nextBatch(packages, 25));
+        assertEquals(List.of(C3), parser.nextBatch(packages, 5));
+        assertTrue(packages.isEmpty());
+    }
+
+    @Test
+    void sortsTheFilesInTheOrderOfTheBatches() {
+        assertEquals(List.of(A1, A2, B1, C1, C2), parser.sortForParsing(List.of(C2, B1, A2, C1, A1)));
+    }
+
+    @Test
+    void adaptsTheBatchSizeToTheMeasuredHeap() {
+        ChunkedParser budgetedParser = new ChunkedParser(new ShardedParser(null, 1, 1), 64_000, file -> 10,
+                ScanStatistics.start());
+        assertEquals(2_000, budgetedParser.getBatchBytes());
+
+        budgetedParser.updateEstimate(1_000, 96_000);
+        assertEquals(1_000, budgetedParser.getBatchBytes());
+        budgetedParser.updateEstimate(1_000, 0);
+        assertEquals(1_000, budgetedParser.getBatchBytes());
+    }
+}
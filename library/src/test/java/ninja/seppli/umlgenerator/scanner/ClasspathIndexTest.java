@@ -0,0 +1,78 @@
+package ninja.seppli.umlgenerator.scanner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ninja.seppli.umlgenerator.model.TypeModel;
+
+class ClasspathIndexTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void resolvesTypesFromTheClasspath() throws Exception {
+        Path jar = createJar("lib.jar",
+                "package lib;\n\npublic class Base<T> {\n    public static class Nested {\n    }\n}\n",
+                "package lib;\n\npublic interface Named {\n}\n");
+        Path sources = Files.createDirectories(tempDir.resolve("src/app"));
+        Files.writeString(sources.resolve("Dog.java"), "package app;\n\nimport lib.*;\n\n"
+                + "public class Dog extends Base<String> implements Named {\n    Base.Nested nested;\n}\n");
+
+        TypeModel guessed = new DiagramGenerator().addFiles(sources).generate().findType("app.Dog").orElseThrow();
+        TypeModel resolved = new DiagramGenerator().setClasspath(List.of(jar)).addFiles(sources).generate()
+                .findType("app.Dog").orElseThrow();
+
+        // without the classpath, the package of a type imported on demand is unknown
+        assertEquals("Base", guessed.superclass().qualifiedName());
+        assertEquals("lib.Base", resolved.superclass().qualifiedName());
+        assertEquals("java.lang.String", resolved.superclass().typeArguments().get(0).qualifiedName());
+        assertEquals("lib.Named", resolved.superInterfaces().get(0).qualifiedName());
+        assertEquals("lib.Base$Nested", resolved.fields().get(0).type().qualifiedName());
+    }
+
+    @Test
+    void reindexesChangedJars() throws Exception {
+        Path jar = createJar("lib.jar", "package lib;\n\npublic class Base {\n}\n");
+        Path indexFile = tempDir.resolve("index/classpath.idx");
+        try (ClasspathIndex index = ClasspathIndex.create(List.of(jar), indexFile)) {
+            assertTrue(index.containsType("lib/Base"));
+            assertTrue(index.isPackage("lib"));
+            assertNotNull(index.readClass("lib/Base"));
+        }
+        byte[] persisted = Files.readAllBytes(indexFile);
+        try (ClasspathIndex index = ClasspathIndex.create(List.of(jar), indexFile)) {
+            assertEquals(1, index.size());
+        }
+        assertArrayEquals(persisted, Files.readAllBytes(indexFile));
+
+        createJar("lib.jar", "package lib;\n\npublic class Base {\n}\n",
+                "package lib.other;\n\npublic class Other {\n}\n");
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(Files.getLastModifiedTime(jar).toMillis() + 1000));
+        try (ClasspathIndex index = ClasspathIndex.create(List.of(jar), indexFile)) {
+            assertTrue(index.containsType("lib/other/Other"));
+            assertTrue(index.isPackage("lib/other"));
+            assertNull(index.readClass("lib/Missing"));
+        }
+    }
+
+    private Path createJar(String name, String... sources) throws Exception {
+        Path sourceDir = Files.createDirectories(tempDir.resolve("lib-src"));
+        List<Path> sourceFiles = new ArrayList<>();
+        for (int i = 0; i < sources.length; i++) {
+            String className = sources[i].replaceAll("(?s).*public (?:class|interface) (\\w+).*", "$1");
+            Path source = sourceDir.resolve(i + "/" + className + ".java");
+            Files.createDirectories(source.getParent());
+            sourceFiles.add(Files.writeString(source, sources[i]));
+        }
+        Path classes = CompiledClasses.compile(sourceFiles, tempDir.resolve("lib-classes"));
+        return CompiledClasses.jar(classes, tempDir.resolve(name));
+    }
+}
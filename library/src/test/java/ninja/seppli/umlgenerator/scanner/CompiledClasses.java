@@ -0,0 +1,81 @@
+package ninja.seppli.umlgenerator.scanner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles and packs the classes the classpath and bytecode tests scan
+ */
+public final class CompiledClasses {
+    private CompiledClasses() {
+    }
+
+    /**
+     * Compiles source files with the compiler of the running JDK
+     *
+     * @param sources   the source files
+     * @param outputDir the directory the classes are written to
+     * @param options   the options of the compiler
+     * @return the directory with the classes
+     * @throws IOException if the output directory couldn't be created
+     */
+    public static Path compile(Collection<Path> sources, Path outputDir, String... options) throws IOException {
+        Files.createDirectories(outputDir);
+        List<String> arguments = new ArrayList<>(List.of(options));
+        arguments.addAll(List.of("-d", outputDir.toString()));
+        sources.stream().map(Path::toString).forEach(arguments::add);
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, compiler.run(null, OutputStream.nullOutputStream(), null, arguments.toArray(String[]::new)));
+        return outputDir;
+    }
+
+    /**
+     * Compiles all source files in a directory
+     *
+     * @param sourceDir the directory with the source files
+     * @param outputDir the directory the classes are written to
+     * @param options   the options of the compiler
+     * @return the directory with the classes
+     * @throws IOException if the sources couldn't be listed
+     */
+    public static Path compileDirectory(Path sourceDir, Path outputDir, String... options) throws IOException {
+        List<Path> sources;
+        try (Stream<Path> files = Files.walk(sourceDir)) {
+            sources = files.filter(file -> file.toString().endsWith(".java")).collect(Collectors.toList());
+        }
+        return compile(sources, outputDir, options);
+    }
+
+    /**
+     * Packs the files of a directory into a jar, sorted by their path
+     *
+     * @param classes the directory with the classes
+     * @param jar     the jar to write
+     * @return the jar
+     * @throws IOException if the jar couldn't be written
+     */
+    public static Path jar(Path classes, Path jar) throws IOException {
+        try (JarOutputStream output = new JarOutputStream(Files.newOutputStream(jar));
+                Stream<Path> files = Files.walk(classes)) {
+            for (Path file : files.filter(Files::isRegularFile).sorted().collect(Collectors.toList())) {
+                output.putNextEntry(new JarEntry(classes.relativize(file).toString().replace('\\', '/')));
+                Files.copy(file, output);
+            }
+        }
+        return jar;
+    }
+}
@@ -0,0 +1,336 @@
+package ninja.seppli.umlgenerator.scanner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ninja.seppli.umlgenerator.model.DiagramModel;
+import ninja.seppli.umlgenerator.model.TypeModel;
+import ninja.seppli.umlgenerator.options.UmlOptions;
+import ninja.seppli.umlgenerator.renderer.PlantumlRenderer;
+import ninja.seppli.umlgenerator.scanner.ScanStatistics.Phase;
+import spoon.processing.AbstractProcessor;
+import spoon.reflect.CtModel;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+class DiagramGeneratorTest {
+    @TempDir
+    Path tempDir;
+
+    static Path getSamplePath() throws URISyntaxException {
+        return Paths.get(DiagramGeneratorTest.class.getResource("/sample").toURI());
+    }
+
+    @Test
+    void scanDoesNotWriteSources() throws Exception {
+        Path outputDir = tempDir.resolve("spooned");
+        List<Path> filesBefore = listFiles(getSamplePath());
+
+        CtModel model = new DiagramGenerator()
+                .setSourceOutputDirectory(outputDir)
+                .addFiles(getSamplePath())
+                .scan();
+
+        assertFalse(model.getAllTypes().isEmpty());
+        assertFalse(Files.exists(outputDir), "no sources should be pretty-printed");
+        assertEquals(filesBefore, listFiles(getSamplePath()));
+    }
+
+    @Test
+    void scanWritesSourcesWhenPrettyPrinting() throws Exception {
+        Path outputDir = tempDir.resolve("spooned");
+
+        CtModel model = new DiagramGenerator()
+                .setPrettyPrintSources(true)
+                .setSourceOutputDirectory(outputDir)
+                .addFiles(getSamplePath())
+                .scan();
+
+        assertTrue(Files.exists(outputDir.resolve("zoo/animals/Lion.java")));
+        assertEquals(model.getAllTypes().stream().map(CtType::getQualifiedName).sorted().toList(),
+                new DiagramGenerator().addFiles(getSamplePath()).scan().getAllTypes().stream()
+                        .map(CtType::getQualifiedName).sorted().toList());
+    }
+
+    @Test
+    void scanRunsAllProcessorsInOnePass() throws Exception {
+        CountingProcessor<CtType<?>> typeCounter = new CountingProcessor<>(CtType.class);
+        CountingProcessor<CtMethod<?>> methodCounter = new CountingProcessor<>(CtMethod.class);
+
+        CtModel model = new DiagramGenerator()
+                .addProcessor(typeCounter)
+                .addProcessor(methodCounter)
+                .addFiles(getSamplePath())
+                .scan();
+
+        assertEquals(model.getElements(new TypeFilter<>(CtType.class)).size(), typeCounter.count);
+        assertEquals(model.getElements(new TypeFilter<>(CtMethod.class)).size(), methodCounter.count);
+        assertEquals(1, typeCounter.initCount);
+        assertTrue(typeCounter.done);
+        assertTrue(methodCounter.done);
+    }
+
+    @Test
+    void rescanOnlyParsesChangedFiles() throws Exception {
+        Path sources = SampleSources.copySample(tempDir);
+        DiagramGenerator generator = new DiagramGenerator().addFiles(sources);
+        CtModel model = generator.scan();
+        CtType<?> animal = findType(model, "zoo.animals.Animal");
+        CtType<?> lion = findType(model, "zoo.animals.Lion");
+
+        assertSame(model, generator.scan());
+        assertSame(animal, findType(generator.scan(), "zoo.animals.Animal"));
+
+        Path lionFile = sources.resolve("zoo/animals/Lion.java");
+        Files.writeString(lionFile, Files.readString(lionFile).replace("static class Mane {",
+                "public void sleep() {\n    }\n\n    static class Mane {"));
+        Files.delete(sources.resolve("zoo/keeping/Inspected.java"));
+        Files.writeString(sources.resolve("zoo/keeping/Ticket.java"),
+                "package zoo.keeping;\n\npublic class Ticket {\n    public int price;\n}\n");
+        model = generator.scan();
+
+        assertSame(animal, findType(model, "zoo.animals.Animal"));
+        assertNotSame(lion, findType(model, "zoo.animals.Lion"));
+        assertNotNull(findType(model, "zoo.animals.Lion").getMethodsByName("sleep").stream().findAny()
+                .orElse(null));
+        assertNull(findType(model, "zoo.keeping.Inspected"));
+        assertNotNull(findType(model, "zoo.keeping.Ticket"));
+        assertEquals(1, model.getAllTypes().stream().filter(type -> type.getSimpleName().equals("Lion")).count());
+    }
+
+    @Test
+    void declarationsOnlyScanRendersTheSameDiagram() throws Exception {
+        CtModel fullModel = new DiagramGenerator().addFiles(getSamplePath()).scan();
+        CtModel declarationsModel = new DiagramGenerator().setDeclarationsOnly(true).addFiles(getSamplePath())
+                .scan();
+
+        PlantumlRenderer renderer = new PlantumlRenderer();
+        assertEquals(renderer.render(fullModel, new UmlOptions()),
+                renderer.render(declarationsModel, new UmlOptions()));
+        CtMethod<?> makeSound = findType(declarationsModel, "zoo.animals.Lion").getMethodsByName("makeSound").get(0);
+        assertTrue(makeSound.getBody() == null || makeSound.getBody().getStatements().isEmpty());
+        assertFalse(findType(fullModel, "zoo.animals.Lion").getMethodsByName("makeSound").get(0).getBody()
+                .getStatements().isEmpty());
+    }
+
+    @Test
+    void shardedGenerateEqualsSequentialScan() throws Exception {
+        DiagramModel sequentialModel = DiagramModelExtractor
+                .extract(new DiagramGenerator().addFiles(getSamplePath()).scan());
+        DiagramModel shardedModel = new DiagramGenerator().setParallelism(4).setMinShardSize(1)
+                .addFiles(getSamplePath()).generate();
+
+        assertEquals(sequentialModel.getPackages(), shardedModel.getPackages());
+        // Animal and Lion are parsed in different shards, the merge resolves the reference
+        TypeModel lion = shardedModel.findType("zoo.animals.Lion").orElseThrow();
+        assertEquals("zoo.animals.Animal$Sound", lion.methods().stream()
+                .filter(method -> method.name().equals("makeSound")).findAny().orElseThrow().type().qualifiedName());
+    }
+
+    @Test
+    void shardedGenerateResolvesReferencesLikeSequentialScan() throws Exception {
+        writeSource("a/Box.java", "package a;\n\npublic class Box<T> {\n    public T value;\n\n"
+                + "    public <E> E map(E element) {\n        return element;\n    }\n}\n");
+        writeSource("c/T.java", "package c;\n\npublic class T {\n}\n");
+        writeSource("c/E.java", "package c;\n\npublic class E {\n}\n");
+        writeSource("b/Item.java", "package b;\n\npublic class Item {\n}\n");
+        writeSource("c/Item.java", "package c;\n\npublic class Item {\n}\n");
+        writeSource("c/Helper.java", "package c;\n\npublic class Helper {\n}\n");
+        writeSource("d/Helper.java", "package d;\n\npublic class Helper {\n}\n");
+        writeSource("d/User.java", "package d;\n\nimport b.Item;\nimport c.*;\n\npublic class User {\n"
+                + "    public Item item;\n    public Helper helper;\n    public Item[] items;\n}\n");
+        writeSource("e/Other.java", "package e;\n\nimport c.*;\n\npublic class Other extends f.Parent {\n"
+                + "    public Item item;\n    public Inner inner;\n}\n");
+        writeSource("f/Parent.java", "package f;\n\npublic class Parent {\n    public static class Inner {\n"
+                + "    }\n}\n");
+        DiagramModel sequentialModel = DiagramModelExtractor.extract(new DiagramGenerator().addFiles(tempDir).scan());
+        DiagramModel shardedModel = new DiagramGenerator().setParallelism(4).setMinShardSize(1).addFiles(tempDir)
+                .generate();
+
+        assertEquals(sequentialModel.getPackages(), shardedModel.getPackages());
+        // type parameters aren't resolved to the types with the same simple name
+        TypeModel box = shardedModel.findType("a.Box").orElseThrow();
+        assertEquals("T", box.fields().get(0).type().qualifiedName());
+        assertEquals("E", box.methods().get(0).type().qualifiedName());
+        TypeModel user = shardedModel.findType("d.User").orElseThrow();
+        assertEquals(List.of("b.Item", "d.Helper", "b.Item[]"),
+                user.fields().stream().map(field -> field.type().qualifiedName()).collect(Collectors.toList()));
+        TypeModel other = shardedModel.findType("e.Other").orElseThrow();
+        assertEquals(List.of("c.Item", "f.Parent$Inner"),
+                other.fields().stream().map(field -> field.type().qualifiedName()).collect(Collectors.toList()));
+    }
+
+    @Test
+    void chunkedGenerateEqualsGenerate() throws Exception {
+        DiagramModel model = new DiagramGenerator().addFiles(getSamplePath()).generate();
+        // every file is parsed in its own batch
+        DiagramModel chunkedModel = new DiagramGenerator().setHeapBudget(1).addFiles(getSamplePath()).generate();
+
+        assertEquals(model.getPackages(), chunkedModel.getPackages());
+    }
+
+    @Test
+    void concurrentlyReadSourcesGenerateTheSameModel() throws Exception {
+        Path sources = SampleSources.copySample(tempDir);
+        Files.writeString(sources.resolve("zoo/keeping/Gehege.java"),
+                "package zoo.keeping;\n\npublic class Gehege {\n    public int gr\u00f6\u00dfe;\n}\n");
+        DiagramModel model = new DiagramGenerator().setReadParallelism(1).addFiles(sources).generate();
+        DiagramModel concurrentModel = new DiagramGenerator().setReadParallelism(8).addFiles(sources).generate();
+
+        assertEquals(model.getPackages(), concurrentModel.getPackages());
+        TypeModel gehege = concurrentModel.findType("zoo.keeping.Gehege").orElseThrow();
+        assertEquals("gr\u00f6\u00dfe", gehege.fields().get(0).name());
+    }
+
+    @Test
+    void regenerateOnlyParsesChangedFiles() throws Exception {
+        Path sources = SampleSources.copySample(tempDir);
+        DiagramGenerator generator = new DiagramGenerator().setParallelism(2).setMinShardSize(1).addFiles(sources);
+        DiagramModel model = generator.generate();
+        assertEquals(model.getPackages(), generator.generate().getPackages());
+        // a touched file is read again, but not parsed
+        Files.setLastModifiedTime(sources.resolve("zoo/animals/Lion.java"), FileTime.fromMillis(0));
+        assertEquals(model.getPackages(), generator.generate().getPackages());
+        assertEquals(0, generator.getStatistics().getParsedFiles());
+        assertTrue(generator.getStatistics().getBytes() > 0);
+
+        Files.writeString(sources.resolve("zoo/keeping/Ticket.java"),
+                "package zoo.keeping;\n\npublic class Ticket {\n    public Lion lion;\n}\n");
+        Files.delete(sources.resolve("zoo/keeping/Inspected.java"));
+        model = generator.generate();
+
+        assertTrue(model.findType("zoo.keeping.Inspected").isEmpty());
+        assertTrue(model.findType("zoo.keeping.Ticket").isPresent());
+        assertEquals(new DiagramGenerator().addFiles(sources).generate().getPackages(), model.getPackages());
+    }
+
+    @Test
+    void newGeneratorLoadsCacheFile() throws Exception {
+        Path sources = SampleSources.copySample(tempDir);
+        Path cacheFile = tempDir.resolve("build/diagram.cache");
+        DiagramModel model = new DiagramGenerator().setCacheFile(cacheFile).addFiles(sources).generate();
+        assertTrue(Files.exists(cacheFile));
+
+        DiagramGenerator generator = new DiagramGenerator().setCacheFile(cacheFile).addFiles(sources);
+        assertEquals(model.getPackages(), generator.generate().getPackages());
+        assertEquals(0, generator.getStatistics().getParsedFiles());
+        // unchanged files aren't even read
+        assertEquals(0, generator.getStatistics().getBytes());
+
+        Files.writeString(sources.resolve("zoo/keeping/Ticket.java"),
+                "package zoo.keeping;\n\npublic class Ticket {\n    public Lion lion;\n}\n");
+        generator = new DiagramGenerator().setCacheFile(cacheFile).addFiles(sources);
+        assertTrue(generator.generate().findType("zoo.keeping.Ticket").isPresent());
+        assertEquals(1, generator.getStatistics().getParsedFiles());
+
+        // the cache file of other settings isn't used
+        generator = new DiagramGenerator().setDeclarationsOnly(true).setCacheFile(cacheFile).addFiles(sources);
+        generator.generate();
+        assertEquals(generator.getStatistics().getFiles(), generator.getStatistics().getParsedFiles());
+    }
+
+    @Test
+    void recordsScanStatistics() throws Exception {
+        DiagramGenerator generator = new DiagramGenerator().addFiles(getSamplePath());
+        DiagramModel model = generator.generate();
+        ScanStatistics statistics = generator.getStatistics();
+
+        assertEquals(listFiles(getSamplePath()).stream().filter(file -> file.toString().endsWith(".java")).count(),
+                statistics.getFiles());
+        assertEquals(statistics.getFiles(), statistics.getParsedFiles());
+        assertTrue(statistics.getBytes() > 0);
+        assertEquals(model.getAllTypes().count(), statistics.getTypes());
+        assertTrue(statistics.getMembers() > statistics.getTypes());
+        assertFalse(statistics.getDuration(Phase.PARSING).isZero());
+        assertTrue(statistics.getPeakHeapBytes() > 0);
+
+        generator.generate();
+        assertEquals(0, generator.getStatistics().getParsedFiles());
+
+        generator.scan();
+        assertEquals(statistics.getTypes(), generator.getStatistics().getTypes());
+        assertEquals(statistics.getMembers(), generator.getStatistics().getMembers());
+        assertFalse(generator.getStatistics().getDuration(Phase.MODEL_BUILD).isZero());
+    }
+
+    @Test
+    void scansSourcesInArchives() throws Exception {
+        Path archive = tempDir.resolve("zoo-sources.jar");
+        try (ZipOutputStream output = new ZipOutputStream(Files.newOutputStream(archive));
+                Stream<Path> files = Files.walk(getSamplePath())) {
+            for (Path file : files.filter(Files::isRegularFile).sorted().collect(Collectors.toList())) {
+                output.putNextEntry(new ZipEntry(getSamplePath().relativize(file).toString().replace('\\', '/')));
+                Files.copy(file, output);
+            }
+        }
+        DiagramModel directoryModel = new DiagramGenerator().addFiles(getSamplePath()).generate();
+
+        DiagramModel archiveModel = new DiagramGenerator().setMinShardSize(1).setParallelism(2).addFiles(archive)
+                .generate();
+        CtModel scannedModel = new DiagramGenerator().addFiles(archive).scan();
+
+        assertEquals(directoryModel.getPackages(), archiveModel.getPackages());
+        assertEquals(directoryModel.getPackages(), DiagramModelExtractor.extract(scannedModel).getPackages());
+        // nothing was extracted
+        assertEquals(List.of(tempDir, archive), listFiles(tempDir));
+    }
+
+    private void writeSource(String path, String content) throws IOException {
+        Path file = tempDir.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private CtType<?> findType(CtModel model, String qualifiedName) {
+        return model.getAllTypes().stream().filter(type -> type.getQualifiedName().equals(qualifiedName))
+                .findAny().orElse(null);
+    }
+
+    private List<Path> listFiles(Path root) throws IOException {
+        try (Stream<Path> stream = Files.walk(root)) {
+            return stream.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static class CountingProcessor<E extends CtElement> extends AbstractProcessor<E> {
+        private int count = 0;
+        private int initCount = 0;
+        private boolean done = false;
+
+        CountingProcessor(Class<?> type) {
+            clearProcessedElementType();
+            addProcessedElementType(type.asSubclass(CtElement.class));
+        }
+
+        @Override
+        public void init() {
+            initCount++;
+        }
+
+        @Override
+        public void process(E element) {
+            count++;
+        }
+
+        @Override
+        public void processingDone() {
+            done = true;
+        }
+    }
+}
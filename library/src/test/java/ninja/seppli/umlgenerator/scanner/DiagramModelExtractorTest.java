@@ -0,0 +1,109 @@
+package ninja.seppli.umlgenerator.scanner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ninja.seppli.umlgenerator.model.DiagramModel;
+import ninja.seppli.umlgenerator.model.ExecutableModel;
+import ninja.seppli.umlgenerator.model.FieldModel;
+import ninja.seppli.umlgenerator.model.PackageModel;
+import ninja.seppli.umlgenerator.model.TypeKind;
+import ninja.seppli.umlgenerator.model.TypeModel;
+import ninja.seppli.umlgenerator.model.TypeRef;
+import ninja.seppli.umlgenerator.options.GeneralUmlOptions;
+import ninja.seppli.umlgenerator.options.PlantumlOptions;
+import ninja.seppli.umlgenerator.options.UmlOptions;
+import ninja.seppli.umlgenerator.options.VisibilityLevel;
+import ninja.seppli.umlgenerator.renderer.PlantumlRenderer;
+import spoon.reflect.CtModel;
+
+class DiagramModelExtractorTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void extractsTypesMembersAndRelationships() throws Exception {
+        DiagramModel model = new DiagramGenerator().addFiles(DiagramGeneratorTest.getSamplePath()).generate();
+
+        assertEquals(List.of("zoo.animals", "zoo.keeping"),
+                model.getPackages().stream().map(PackageModel::qualifiedName).toList());
+        TypeModel lion = model.findType("zoo.animals.Lion").orElseThrow();
+        assertEquals(TypeKind.CLASS, lion.kind());
+        assertEquals("Animal", lion.superclass().simpleName());
+        assertEquals(List.of("Mane"), lion.nestedTypes().stream().map(TypeModel::simpleName).toList());
+        assertTrue(model.findType("zoo.animals.Lion$Mane").isPresent());
+        FieldModel eaten = lion.fields().stream().filter(field -> field.name().equals("eaten")).findAny()
+                .orElseThrow();
+        assertEquals(VisibilityLevel.PRIVATE, eaten.visibility());
+        assertEquals("Map", eaten.type().simpleName());
+        assertEquals(List.of("Food", "Integer"),
+                eaten.type().typeArguments().stream().map(TypeRef::simpleName).toList());
+
+        TypeModel enclosure = model.findType("zoo.keeping.Enclosure").orElseThrow();
+        assertEquals(List.of("T"), enclosure.typeParameters());
+        assertEquals("Iterable", enclosure.superInterfaces().get(0).simpleName());
+        assertEquals(TypeKind.RECORD, model.findType("zoo.keeping.Keeper").orElseThrow().kind());
+        assertEquals(TypeKind.ANNOTATION, model.findType("zoo.keeping.Inspected").orElseThrow().kind());
+        assertEquals(TypeKind.ENUM, model.findType("zoo.animals.Food").orElseThrow().kind());
+        ExecutableModel makeSound = model.findType("zoo.animals.Animal").orElseThrow().methods().stream()
+                .filter(method -> method.name().equals("makeSound")).findAny().orElseThrow();
+        assertTrue(makeSound.isAbstract());
+    }
+
+    @Test
+    void internsNamesAndTypeReferences() throws Exception {
+        DiagramModel model = new DiagramGenerator().addFiles(DiagramGeneratorTest.getSamplePath()).generate();
+
+        TypeModel feedable = model.findType("zoo.animals.Feedable").orElseThrow();
+        TypeModel lion = model.findType("zoo.animals.Lion").orElseThrow();
+        ExecutableModel interfaceFeed = feedable.methods().stream()
+                .filter(method -> method.parameters().size() == 2).findAny().orElseThrow();
+        ExecutableModel lionFeed = lion.methods().stream().filter(method -> method.name().equals("feed")).findAny()
+                .orElseThrow();
+        assertSame(interfaceFeed.name(), lionFeed.name());
+        assertSame(interfaceFeed.parameters().get(0).type(), lionFeed.parameters().get(0).type());
+    }
+
+    @Test
+    void rendersTheSameAsTheSpoonModel() throws Exception {
+        CtModel ctModel = new DiagramGenerator().addFiles(DiagramGeneratorTest.getSamplePath()).scan();
+        DiagramModel model = DiagramModelExtractor.extract(ctModel);
+        PlantumlRenderer renderer = new PlantumlRenderer();
+
+        String rendered = renderer.render(model, new UmlOptions());
+        assertEquals(renderer.render(ctModel, new UmlOptions()), rendered);
+        assertTrue(rendered.contains("Lion --|> Animal"));
+        assertTrue(rendered.contains("class Enclosure<T> {"));
+
+        Path output = tempDir.resolve("diagram.puml");
+        new DiagramWriter(model, renderer).writeFile(output);
+        assertEquals(rendered, Files.readString(output));
+    }
+
+    @Test
+    void skipsHiddenMembersWithoutChangingTheDiagram() throws Exception {
+        GeneralUmlOptions options = new GeneralUmlOptions(17, VisibilityLevel.PROTECTED, VisibilityLevel.PROTECTED);
+        UmlOptions umlOptions = new UmlOptions(options, new PlantumlOptions());
+        DiagramModel model = new DiagramGenerator(options).addFiles(DiagramGeneratorTest.getSamplePath()).generate();
+        DiagramGenerator generator = new DiagramGenerator(options).setSkipHiddenMembers(true)
+                .addFiles(DiagramGeneratorTest.getSamplePath());
+        DiagramModel filteredModel = generator.generate();
+
+        TypeModel lion = filteredModel.findType("zoo.animals.Lion").orElseThrow();
+        assertTrue(lion.fields().stream().allMatch(field -> field.visibility() == VisibilityLevel.PUBLIC));
+        assertTrue(lion.methods().stream().allMatch(method -> method.visibility() == VisibilityLevel.PUBLIC));
+        assertTrue(model.findType("zoo.animals.Lion").orElseThrow().fields().size() > lion.fields().size());
+        PlantumlRenderer renderer = new PlantumlRenderer();
+        assertEquals(renderer.render(model, umlOptions), renderer.render(filteredModel, umlOptions));
+
+        // the cached fragments were extracted with the old levels
+        options.setFieldLevel(VisibilityLevel.PRIVATE);
+        assertEquals(renderer.render(model, umlOptions), renderer.render(generator.generate(), umlOptions));
+    }
+}
@@ -0,0 +1,67 @@
+package ninja.seppli.umlgenerator.scanner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ninja.seppli.umlgenerator.model.DiagramModel;
+
+class DiagramWatcherTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void regeneratesOnlyTheChangedFiles() throws Exception {
+        Path sources = SampleSources.copySample(tempDir);
+        DiagramGenerator generator = new DiagramGenerator().addFiles(sources);
+        BlockingQueue<DiagramModel> models = new LinkedBlockingQueue<>();
+        DiagramWatcher watcher = new DiagramWatcher(generator, models::add).setDebounce(Duration.ofMillis(50));
+        Thread thread = new Thread(() -> {
+            try {
+                watcher.watch();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        try {
+            DiagramModel model = models.poll(30, TimeUnit.SECONDS);
+            assertNotNull(model);
+            assertTrue(model.findType("zoo.keeping.Ticket").isEmpty());
+
+            Files.writeString(sources.resolve("zoo/keeping/Ticket.java"),
+                    "package zoo.keeping;\n\npublic class Ticket {\n}\n");
+            Files.createDirectories(sources.resolve("zoo/shop"));
+            Files.writeString(sources.resolve("zoo/shop/Souvenir.java"),
+                    "package zoo.shop;\n\npublic class Souvenir {\n}\n");
+            model = awaitModel(models, "zoo.shop.Souvenir");
+
+            assertTrue(model.findType("zoo.keeping.Ticket").isPresent());
+            assertEquals(new DiagramGenerator().addFiles(sources).generate().getPackages(), model.getPackages());
+            assertTrue(generator.getStatistics().getParsedFiles() <= 2);
+        } finally {
+            watcher.close();
+            thread.join(10_000);
+        }
+        assertFalse(thread.isAlive());
+    }
+
+    private DiagramModel awaitModel(BlockingQueue<DiagramModel> models, String qualifiedName) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (System.nanoTime() < deadline) {
+            DiagramModel model = models.poll(1, TimeUnit.SECONDS);
+            if (model != null && model.findType(qualifiedName).isPresent())
+                return model;
+        }
+        fail("no model with " + qualifiedName + " was generated");
+        return null;
+    }
+}
@@ -0,0 +1,43 @@
+package ninja.seppli.umlgenerator.scanner;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The sample sources the scanner tests share
+ */
+final class SampleSources {
+    private SampleSources() {
+    }
+
+    /**
+     * Copies the sample sources, so a test can change them
+     *
+     * @param directory the directory to copy them to
+     * @return the {@code sources} directory in the given directory, which holds
+     *         the copy
+     * @throws IOException if the sources couldn't be copied
+     */
+    static Path copySample(Path directory) throws IOException, URISyntaxException {
+        Path samplePath = DiagramGeneratorTest.getSamplePath();
+        Path target = directory.resolve("sources");
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(samplePath)) {
+            files = paths.sorted().collect(Collectors.toList());
+        }
+        for (Path source : files) {
+            Path copy = target.resolve(samplePath.relativize(source).toString());
+            if (Files.isDirectory(source)) {
+                Files.createDirectories(copy);
+            } else {
+                Files.copy(source, copy);
+            }
+        }
+        return target;
+    }
+}
@@ -0,0 +1,151 @@
+package ninja.seppli.umlgenerator.scanner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ninja.seppli.umlgenerator.model.PackageModel;
+import spoon.Launcher;
+import spoon.SpoonException;
+import spoon.compiler.SpoonResource;
+import spoon.reflect.CtModel;
+
+class ShardedParserTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void quarantinesFilesWhichTimeOutOrFail() throws Exception {
+        List<Path> files = List.of(writeSource("A"), writeSource("B"), writeSource("Slow"), writeSource("Broken"),
+                writeSource("C"));
+        ShardedParser parser = new ShardedParser(StallingLauncher::new, 1, 1)
+                .setFileTimeout(Duration.ofSeconds(2));
+
+        long start = System.nanoTime();
+        Map<Path, PackageModel> fragments = parser.parse(files);
+
+        assertEquals(Set.of(files.get(0), files.get(1), files.get(4)), fragments.keySet());
+        assertEquals(Set.of(files.get(2), files.get(3)), parser.getQuarantinedFiles());
+        assertEquals("C", fragments.get(files.get(4)).types().get(0).simpleName());
+        // the slow file is given up instead of being waited for
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(20).toNanos());
+    }
+
+    @Test
+    void quarantinesAStallingFileInBoundedTime() throws Exception {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 24; i++) {
+            files.add(writeSource("Type" + i));
+        }
+        files.add(12, writeSource("Slow"));
+        Duration fileTimeout = Duration.ofSeconds(3);
+        ShardedParser parser = new ShardedParser(() -> new StallingLauncher(fileTimeout.plusSeconds(2)), 1, 1)
+                .setFileTimeout(fileTimeout);
+
+        long start = System.nanoTime();
+        Map<Path, PackageModel> fragments = parser.parse(files);
+        long elapsed = System.nanoTime() - start;
+
+        assertEquals(Set.of(files.get(12)), parser.getQuarantinedFiles());
+        assertEquals(24, fragments.size());
+        // the shard and the stalling file on its own time out once each, halving the shard would time out per half
+        assertTrue(elapsed < fileTimeout.multipliedBy(4).toNanos(), Duration.ofNanos(elapsed).toString());
+        // the workers which were given up abort once the stall is over
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (hasGuardedWorker() && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertFalse(hasGuardedWorker());
+    }
+
+    @Test
+    void doesNotWaitForStuckWorkersBeyondTheTimeout() throws Exception {
+        int shardCount = ShardedParser.MAX_ABANDONED_WORKERS + 2;
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            Path directory = Files.createDirectories(tempDir.resolve("p" + i));
+            files.add(Files.writeString(directory.resolve("Slow.java"), "public class Slow {\n}\n"));
+        }
+        Duration fileTimeout = Duration.ofSeconds(1);
+        ShardedParser parser = new ShardedParser(() -> new StallingLauncher(Duration.ofSeconds(8)), shardCount, 1)
+                .setFileTimeout(fileTimeout);
+
+        long start = System.nanoTime();
+        Map<Path, PackageModel> fragments = parser.parse(files);
+        long elapsed = System.nanoTime() - start;
+
+        assertTrue(fragments.isEmpty());
+        assertEquals(Set.copyOf(files), parser.getQuarantinedFiles());
+        // the shards without a permit wait for their worker once more, not until the stall is over
+        assertTrue(elapsed < Duration.ofSeconds(6).toNanos(), Duration.ofNanos(elapsed).toString());
+        long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+        while (hasGuardedWorker() && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertFalse(hasGuardedWorker());
+    }
+
+    @Test
+    void failsWithoutFileTimeout() throws Exception {
+        ShardedParser parser = new ShardedParser(StallingLauncher::new, 1, 1).setFileTimeout(null);
+
+        assertThrows(SpoonException.class, () -> parser.parse(List.of(writeSource("A"), writeSource("Broken"))));
+    }
+
+    private static boolean hasGuardedWorker() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().startsWith("uml-parser-guarded-"));
+    }
+
+    private Path writeSource(String name) throws Exception {
+        Path file = tempDir.resolve(name + ".java");
+        Files.writeString(file, "public class " + name + " {\n}\n");
+        return file.toAbsolutePath().normalize();
+    }
+
+    /**
+     * A launcher which stalls if it should parse a file named Slow.java and
+     * fails if it should parse a file named Broken.java
+     */
+    private static class StallingLauncher extends Launcher {
+        private List<String> names = new ArrayList<>();
+        private Duration stall;
+
+        StallingLauncher() {
+            this(Duration.ofSeconds(30));
+        }
+
+        StallingLauncher(Duration stall) {
+            this.stall = stall;
+        }
+
+        @Override
+        public void addInputResource(SpoonResource resource) {
+            names.add(resource.getName());
+            super.addInputResource(resource);
+        }
+
+        @Override
+        public CtModel buildModel() {
+            if (names.contains("Broken.java"))
+                throw new SpoonException("Broken.java can't be parsed");
+            if (names.contains("Slow.java")) {
+                try {
+                    Thread.sleep(stall.toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.buildModel();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ninja.seppli.umlgenerator.scanner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ninja.seppli.umlgenerator.options.GeneralUmlOptions;
+import ninja.seppli.umlgenerator.scanner.SourceFileFinder.SourceFiles;
+import spoon.reflect.CtModel;
+import spoon.reflect.declaration.CtType;
+
+class SourceFileFinderTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void collapsesNestedAndEqualRoots() throws Exception {
+        Path root = tempDir.toRealPath().resolve("src");
+        Path fileA = createFile(root.resolve("a/A.java"));
+        Path fileB = createFile(root.resolve("a/b/B.java"));
+        createFile(root.resolve("a/notes.txt"));
+
+        SourceFiles sourceFiles = new SourceFileFinder(4).find(List.of(root, root.resolve("a"),
+                root.resolve("a/b/../b"), fileB, root.resolve("missing")));
+
+        assertEquals(List.of(fileA, fileB), sourceFiles.files());
+        assertEquals(3, sourceFiles.duplicateRoots());
+        assertEquals(0, sourceFiles.duplicateFiles());
+    }
+
+    @Test
+    void resolvesLinkedFiles() throws Exception {
+        Path root = tempDir.toRealPath();
+        Path file = createFile(root.resolve("src/A.java"));
+        Path links = Files.createDirectories(root.resolve("links"));
+        Files.createSymbolicLink(links.resolve("First.java"), file);
+        Files.createSymbolicLink(links.resolve("Second.java"), file);
+        Files.createSymbolicLink(links.resolve("dir"), root.resolve("src"));
+
+        SourceFiles sourceFiles = new SourceFileFinder(2).find(List.of(root.resolve("src"), links));
+
+        assertEquals(List.of(file), sourceFiles.files());
+        assertEquals(2, sourceFiles.duplicateFiles());
+    }
+
+    @Test
+    void appliesIncludeAndExcludePatterns() throws Exception {
+        Path root = tempDir.toRealPath().resolve("src");
+        Path main = createFile(root.resolve("app/Main.java"));
+        createFile(root.resolve("app/package-info.java"));
+        createFile(root.resolve("generated/Proto.java"));
+        Path single = createFile(tempDir.toRealPath().resolve("Single.java"));
+
+        SourceFiles sourceFiles = new SourceFileFinder(2, List.of("app/**", "*.java"),
+                List.of("**package-info.java")).find(List.of(root, single));
+
+        assertEquals(List.of(single, main), sourceFiles.files());
+        assertEquals(2, sourceFiles.excludedFiles());
+    }
+
+    @Test
+    void excludedFilesAreNotParsed() throws Exception {
+        GeneralUmlOptions options = new GeneralUmlOptions();
+        options.setExcludes(List.of("**Inspected.java", "zoo/animals/L*.java"));
+
+        CtModel model = new DiagramGenerator(options).addFiles(DiagramGeneratorTest.getSamplePath()).scan();
+
+        List<String> typeNames = model.getAllTypes().stream().map(CtType::getQualifiedName).toList();
+        assertFalse(typeNames.contains("zoo.keeping.Inspected"));
+        assertFalse(typeNames.contains("zoo.animals.Lion"));
+        assertTrue(typeNames.contains("zoo.animals.Animal"));
+    }
+
+    private Path createFile(Path file) throws Exception {
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, "class A {}\n");
+    }
+}
@@ -0,0 +1,76 @@
+package ninja.seppli.umlgenerator.scanner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ninja.seppli.umlgenerator.scanner.SourcePrefetcher.FileStamp;
+
+class SourcePrefetcherTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readsAheadWithinTheBudget() throws Exception {
+        List<Path> files = List.of(writeSource("A"), writeSource("B"), writeSource("C"));
+        try (SourcePrefetcher prefetcher = new SourcePrefetcher(4, 150, (file, hash) -> false, Map.of())) {
+            assertEquals(files, prefetcher.check(files, Map.of()));
+            prefetcher.read(files);
+
+            // the second file only fits once the first one is taken
+            assertTrue(prefetcher.hasChanged(files.get(0)));
+            assertEquals(100, prefetcher.getReadAheadBytes());
+            assertEquals(100, prefetcher.getReadBytes());
+            assertEquals(Files.readString(files.get(0)), prefetcher.take(files.get(0)));
+            assertNull(prefetcher.take(files.get(0)));
+
+            assertEquals(Files.readString(files.get(1)), prefetcher.take(files.get(1)));
+            assertEquals(Files.readString(files.get(2)), prefetcher.take(files.get(2)));
+            assertEquals(0, prefetcher.getReadAheadBytes());
+            assertEquals(300, prefetcher.getReadBytes());
+            assertEquals(3, prefetcher.getStamps().size());
+        }
+    }
+
+    @Test
+    void dropsTheContentOfTouchedFiles() throws Exception {
+        Path touched = writeSource("Touched");
+        Path unchanged = writeSource("Unchanged");
+        String touchedHash = SourceCache.hash(Files.readAllBytes(touched));
+        String unchangedHash = SourceCache.hash(Files.readAllBytes(unchanged));
+        Map<Path, FileStamp> stamps = Map.of(touched, new FileStamp(Files.size(touched), 0, touchedHash), unchanged,
+                new FileStamp(Files.size(unchanged), Files.getLastModifiedTime(unchanged).toMillis(), unchangedHash));
+
+        try (SourcePrefetcher prefetcher = new SourcePrefetcher(1, 0, (file, hash) -> true, Map.of())) {
+            // only the touched file is read, it is hashed but not kept
+            assertEquals(List.of(touched), prefetcher.check(List.of(touched, unchanged), stamps));
+            prefetcher.read(List.of(touched));
+
+            assertFalse(prefetcher.hasChanged(touched));
+            assertNull(prefetcher.take(touched));
+            assertEquals(0, prefetcher.getReadAheadBytes());
+            assertEquals(100, prefetcher.getReadBytes());
+            Map<Path, FileStamp> newStamps = prefetcher.getStamps();
+            assertEquals(touchedHash, newStamps.get(touched).hash());
+            assertEquals(unchangedHash, newStamps.get(unchanged).hash());
+        }
+    }
+
+    /**
+     * Writes a source file of 100 bytes
+     *
+     * @param name the name of the class
+     * @return the file
+     * @throws Exception if the file couldn't be written
+     */
+    private Path writeSource(String name) throws Exception {
+        String source = "class " + name + " {}";
+        return Files.writeString(tempDir.resolve(name + ".java"), source + " ".repeat(99 - source.length()) + "\n");
+    }
+}
@@ -0,0 +1,48 @@
+package ninja.seppli.umlgenerator.scanner.bytecode;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ninja.seppli.umlgenerator.model.DiagramModel;
+import ninja.seppli.umlgenerator.scanner.CompiledClasses;
+import ninja.seppli.umlgenerator.scanner.DiagramGenerator;
+
+class BytecodeScannerTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void bytecodeModelEqualsSourceModel() throws Exception {
+        Path sample = Paths.get(getClass().getResource("/sample").toURI());
+        Path classes = compile(sample, "-g", "-parameters");
+
+        DiagramModel sourceModel = new DiagramGenerator().addFiles(sample).generate();
+        DiagramModel bytecodeModel = new BytecodeScanner().addFiles(classes).generate();
+
+        assertEquals(sourceModel.getPackages(), bytecodeModel.getPackages());
+    }
+
+    @Test
+    void readsClassesFromJars() throws Exception {
+        Path sample = Paths.get(getClass().getResource("/sample").toURI());
+        Path classes = compile(sample);
+        Path jar = CompiledClasses.jar(classes, tempDir.resolve("sample.jar"));
+
+        DiagramModel model = new BytecodeScanner().addFiles(jar).generate();
+
+        assertEquals(new BytecodeScanner().addFiles(classes).generate().getPackages(), model.getPackages());
+        assertTrue(model.findType("zoo.animals.Lion$Mane").isPresent());
+        // without debug information, the parameter names are unknown
+        assertEquals("arg0", model.findType("zoo.animals.Lion").orElseThrow().constructors().get(0).parameters()
+                .get(0).name());
+    }
+
+    private Path compile(Path sourceDir, String... options) throws Exception {
+        return CompiledClasses.compileDirectory(sourceDir, tempDir.resolve("classes"), options);
+    }
+}
@@ -0,0 +1,45 @@
+package zoo.animals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public abstract class Animal implements Comparable<Animal>, Feedable {
+    public static final int MAX_AGE = 120;
+    protected String name;
+    private int age;
+    List<String> nicknames = new ArrayList<>();
+
+    protected Animal(String name, int age) {
+        this.name = name;
+        this.age = age;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public abstract Sound makeSound();
+
+    protected void rename(String... names) {
+        for (String newName : names) {
+            nicknames.add(newName);
+        }
+    }
+
+    @Override
+    public int compareTo(Animal other) {
+        return Integer.compare(age, other.age);
+    }
+
+    public enum Sound {
+        ROAR, SQUEAK, SILENCE;
+
+        public boolean isLoud() {
+            return this == ROAR;
+        }
+    }
+}
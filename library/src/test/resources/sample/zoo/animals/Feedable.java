@@ -0,0 +1,15 @@
+package zoo.animals;
+
+public interface Feedable {
+    int DEFAULT_PORTIONS = 2;
+
+    void feed(Food food, int portions);
+
+    default void feed(Food food) {
+        feed(food, DEFAULT_PORTIONS);
+    }
+
+    static boolean isVegan(Food food) {
+        return food != Food.MEAT;
+    }
+}
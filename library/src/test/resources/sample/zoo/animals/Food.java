@@ -0,0 +1,15 @@
+package zoo.animals;
+
+public enum Food {
+    MEAT("kg"), HAY("bale"), FRUIT("piece");
+
+    private final String unit;
+
+    Food(String unit) {
+        this.unit = unit;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+}
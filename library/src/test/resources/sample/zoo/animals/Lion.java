@@ -0,0 +1,33 @@
+package zoo.animals;
+
+import java.util.Map;
+import java.util.HashMap;
+
+public class Lion extends Animal {
+    private final Map<Food, Integer> eaten = new HashMap<>();
+    public Lion pride;
+
+    public Lion(String name) {
+        super(name, 0);
+    }
+
+    @Override
+    public Sound makeSound() {
+        int volume = 0;
+        for (int i = 0; i < 10; i++) {
+            volume += i * getAge();
+        }
+        return volume > 10 ? Sound.ROAR : Sound.SILENCE;
+    }
+
+    @Override
+    public void feed(Food food, int portions) {
+        eaten.merge(food, portions, Integer::sum);
+        Runnable log = () -> System.out.println(getName() + " ate " + food.getUnit());
+        log.run();
+    }
+
+    static class Mane {
+        double length;
+    }
+}
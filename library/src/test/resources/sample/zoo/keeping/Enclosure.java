@@ -0,0 +1,32 @@
+package zoo.keeping;
+
+import java.util.List;
+import java.util.Optional;
+
+import zoo.animals.Animal;
+
+public class Enclosure<T extends Animal> implements Iterable<T> {
+    private final List<T> residents;
+    protected Keeper keeper;
+
+    public Enclosure(List<T> residents) {
+        this.residents = residents;
+    }
+
+    public Optional<T> oldest() {
+        return residents.stream().max((a, b) -> Integer.compare(a.getAge(), b.getAge()));
+    }
+
+    public <R> R visit(java.util.function.Function<T, R> visitor) {
+        R last = null;
+        for (T resident : residents) {
+            last = visitor.apply(resident);
+        }
+        return last;
+    }
+
+    @Override
+    public java.util.Iterator<T> iterator() {
+        return residents.iterator();
+    }
+}
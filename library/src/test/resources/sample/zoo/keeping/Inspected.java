@@ -0,0 +1,7 @@
+package zoo.keeping;
+
+public @interface Inspected {
+    String by();
+
+    int year() default 2022;
+}
@@ -0,0 +1,13 @@
+package zoo.keeping;
+
+public record Keeper(String name, int shift) {
+    public Keeper {
+        if (shift < 0) {
+            throw new IllegalArgumentException("negative shift");
+        }
+    }
+
+    public boolean worksAtNight() {
+        return shift >= 2;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Everything needed to keep animals.
+ */
+package zoo.keeping;
@@ -1,6 +1,12 @@
 package ninja.seppli.umlgenerator.gradle;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Supplier;
 
@@ -13,11 +19,14 @@ import org.gradle.api.tasks.SourceSetContainer;
 import org.gradle.util.internal.ConfigureUtil;
 
 import groovy.lang.Closure;
+import ninja.seppli.umlgenerator.daemon.DaemonClient;
+import ninja.seppli.umlgenerator.daemon.DiagramDaemon;
 import ninja.seppli.umlgenerator.options.GeneralUmlOptions;
 import ninja.seppli.umlgenerator.options.PlantumlOptions;
 import ninja.seppli.umlgenerator.options.UmlOptions;
+import ninja.seppli.umlgenerator.renderer.AbstractRenderer;
+import ninja.seppli.umlgenerator.renderer.MermaidRenderer;
 import ninja.seppli.umlgenerator.renderer.PlantumlRenderer;
-import ninja.seppli.umlgenerator.renderer.Renderer;
 
 /**
  * MermaidGeneratorExtension
@@ -26,10 +35,19 @@ public class UmlGeneratorExtension {
     private Project project;
 
     private FileCollection filesToScan;
+    private FileCollection classesToScan;
+    private FileCollection classpath;
     private File outputFile;
     private RendererType rendererType = RendererType.PLANTUML;
+    private Map<RendererType, File> additionalOutputs = new EnumMap<>(RendererType.class);
+    private boolean declarationsOnly = false;
+    private int heapBudgetMb = 0;
+    private int fileTimeoutSeconds = 60;
+    private Backend backend = Backend.SOURCE;
+    private File daemonSocket = DiagramDaemon.DEFAULT_SOCKET.toFile();
+    private int daemonTimeoutSeconds = (int) DaemonClient.DEFAULT_TIMEOUT.toSeconds();
 
-    private UmlOptions umlOptions = new UmlOptions(GeneralUmlOptions.DEFAULT_OPTIONS, new PlantumlOptions());
+    private UmlOptions umlOptions = new UmlOptions(new GeneralUmlOptions(), new PlantumlOptions());
 
     public UmlGeneratorExtension(Project project) {
         this.project = project;
@@ -45,6 +63,8 @@ public class UmlGeneratorExtension {
             sourceFiles = sourceSets.getByName(SourceSet.MAIN_SOURCE_SET_NAME).getAllSource().getSrcDirs()
                     .toArray(File[]::new);
             filesToScan = project.files((Object) sourceFiles);
+            classesToScan = sourceSets.getByName(SourceSet.MAIN_SOURCE_SET_NAME).getOutput().getClassesDirs();
+            classpath = sourceSets.getByName(SourceSet.MAIN_SOURCE_SET_NAME).getCompileClasspath();
         }
     }
 
@@ -92,6 +112,66 @@ public class UmlGeneratorExtension {
         this.filesToScan = project.files(filesToScan);
     }
 
+    /**
+     * Only scans the source files matching one of the given glob patterns. The
+     * patterns are matched against the path of a file relative to its source
+     * directory.
+     * 
+     * @param patterns the glob patterns of the included files
+     * @see GeneralUmlOptions#setIncludes(List)
+     */
+    public void include(String... patterns) {
+        GeneralUmlOptions options = umlOptions.getGeneralUmlOptions();
+        List<String> includes = new ArrayList<>(options.getIncludes());
+        includes.addAll(Arrays.asList(patterns));
+        options.setIncludes(includes);
+    }
+
+    /**
+     * Never scans the source files matching one of the given glob patterns, e.g.
+     * generated sources. The patterns are matched against the path of a file
+     * relative to its source directory.
+     * 
+     * @param patterns the glob patterns of the excluded files
+     * @see GeneralUmlOptions#setExcludes(List)
+     */
+    public void exclude(String... patterns) {
+        GeneralUmlOptions options = umlOptions.getGeneralUmlOptions();
+        List<String> excludes = new ArrayList<>(options.getExcludes());
+        excludes.addAll(Arrays.asList(patterns));
+        options.setExcludes(excludes);
+    }
+
+    /**
+     * @return the glob patterns of the included files
+     */
+    public List<String> getIncludes() {
+        return umlOptions.getGeneralUmlOptions().getIncludes();
+    }
+
+    /**
+     * @return the glob patterns of the excluded files
+     */
+    public List<String> getExcludes() {
+        return umlOptions.getGeneralUmlOptions().getExcludes();
+    }
+
+    /**
+     * @return the compile classpath the types referenced by the sources are
+     *         resolved from
+     */
+    public FileCollection getClasspath() {
+        return classpath;
+    }
+
+    /**
+     * @param classpath the compile classpath the types referenced by the sources
+     *                  are resolved from, null to guess them from the imports
+     */
+    public void setClasspath(FileCollection classpath) {
+        this.classpath = classpath;
+    }
+
     /**
      * @return the outputFile
      */
@@ -106,6 +186,134 @@ public class UmlGeneratorExtension {
         this.outputFile = outputFile;
     }
 
+    /**
+     * @return if only the declarations of the sources are parsed
+     */
+    public boolean isDeclarationsOnly() {
+        return declarationsOnly;
+    }
+
+    /**
+     * @param declarationsOnly if only the declarations of the sources should be
+     *                         parsed, skipping all method bodies
+     */
+    public void setDeclarationsOnly(boolean declarationsOnly) {
+        this.declarationsOnly = declarationsOnly;
+    }
+
+    /**
+     * @return how many megabytes of heap the parsed sources may need at the same
+     *         time, 0 if there is no budget
+     */
+    public int getHeapBudgetMb() {
+        return heapBudgetMb;
+    }
+
+    /**
+     * @param heapBudgetMb how many megabytes of heap the parsed sources may need
+     *                     at the same time, the sources are parsed in batches
+     *                     which fit into it. 0 parses all sources at once
+     * @see ninja.seppli.umlgenerator.scanner.DiagramGenerator#setHeapBudget(long)
+     */
+    public void setHeapBudgetMb(int heapBudgetMb) {
+        this.heapBudgetMb = heapBudgetMb;
+    }
+
+    /**
+     * @return the socket of the daemon which renders the diagram if it is
+     *         running, null if the diagram is always generated in the build
+     */
+    public File getDaemonSocket() {
+        return daemonSocket;
+    }
+
+    /**
+     * @param daemonSocket the socket of the daemon which renders the diagram if
+     *                     it is running, null to always generate the diagram in
+     *                     the build
+     * @see DiagramDaemon
+     */
+    public void setDaemonSocket(File daemonSocket) {
+        this.daemonSocket = daemonSocket;
+    }
+
+    /**
+     * @return how many seconds the daemon may take to render the diagram, 0 if
+     *         there is no limit
+     */
+    public int getDaemonTimeoutSeconds() {
+        return daemonTimeoutSeconds;
+    }
+
+    /**
+     * @param daemonTimeoutSeconds how many seconds the daemon may take to render
+     *                             the diagram, if it takes longer the diagram is
+     *                             generated in the build. 0 disables the limit
+     * @see DaemonClient#setTimeout(java.time.Duration)
+     */
+    public void setDaemonTimeoutSeconds(int daemonTimeoutSeconds) {
+        this.daemonTimeoutSeconds = daemonTimeoutSeconds;
+    }
+
+    /**
+     * @return how many seconds the parser may take for one source file, 0 if
+     *         there is no limit
+     */
+    public int getFileTimeoutSeconds() {
+        return fileTimeoutSeconds;
+    }
+
+    /**
+     * @param fileTimeoutSeconds how many seconds the parser may take for one
+     *                           source file, a file which takes longer is
+     *                           quarantined until it changes. 0 disables the
+     *                           limit
+     * @see ninja.seppli.umlgenerator.scanner.DiagramGenerator#setFileTimeout(java.time.Duration)
+     */
+    public void setFileTimeoutSeconds(int fileTimeoutSeconds) {
+        this.fileTimeoutSeconds = fileTimeoutSeconds;
+    }
+
+    /**
+     * @return the class directories and jars which are scanned by the bytecode
+     *         backend
+     */
+    public FileCollection getClassesToScan() {
+        return classesToScan;
+    }
+
+    /**
+     * @param classesToScan the class directories and jars which are scanned by
+     *                      the bytecode backend
+     */
+    public void setClassesToScan(FileCollection classesToScan) {
+        this.classesToScan = classesToScan;
+    }
+
+    /**
+     * @param classesToScan the class directory or jar which is scanned by the
+     *                      bytecode backend
+     */
+    public void setClassesToScan(File classesToScan) {
+        setClassesToScan(project.files(classesToScan));
+    }
+
+    /**
+     * @return if the diagram is generated from the sources or the compiled
+     *         classes
+     */
+    public Backend getBackend() {
+        return backend;
+    }
+
+    /**
+     * @param backend if the diagram is generated from the sources or the
+     *                compiled classes
+     */
+    public void setBackend(Backend backend) {
+        this.backend = backend;
+    }
+
     public RendererType getRendererType() {
         return rendererType;
     }
@@ -114,17 +322,62 @@ public class UmlGeneratorExtension {
         this.rendererType = rendererType;
     }
 
+    /**
+     * @return the files the diagram is written to in other formats besides the
+     *         {@link #getOutputFile() output file}, by their format
+     */
+    public Map<RendererType, File> getAdditionalOutputs() {
+        return Collections.unmodifiableMap(additionalOutputs);
+    }
+
+    /**
+     * Writes the diagram to another file in another format as well, e.g.
+     * {@code additionalOutput 'MERMAID', file('diagram.mmd')}. All formats are
+     * rendered with one walk over the scanned types.
+     * 
+     * @param rendererType the format of the file
+     * @param file         the file
+     */
+    public void additionalOutput(RendererType rendererType, File file) {
+        additionalOutputs.put(rendererType, file);
+    }
+
+    /**
+     * @param rendererType the name of the format of the file
+     * @param file         the file
+     * @see #additionalOutput(RendererType, File)
+     */
+    public void additionalOutput(String rendererType, File file) {
+        additionalOutput(RendererType.valueOf(rendererType.toUpperCase()), file);
+    }
+
+    /**
+     * From what a diagram is generated
+     */
+    public enum Backend {
+        /**
+         * the sources in {@link UmlGeneratorExtension#getFilesToScan()} are parsed
+         */
+        SOURCE,
+        /**
+         * the class files and jars in
+         * {@link UmlGeneratorExtension#getClassesToScan()} are read, which is
+         * faster but requires the classes to be compiled first
+         */
+        BYTECODE
+    }
+
     public enum RendererType {
-        // MERMAID(() -> new MermaidRenderer()),
+        MERMAID(() -> new MermaidRenderer()),
         PLANTUML(() -> new PlantumlRenderer());
 
-        private Supplier<Renderer> supplier;
+        private Supplier<AbstractRenderer> supplier;
 
-        private RendererType(Supplier<Renderer> supplier) {
+        private RendererType(Supplier<AbstractRenderer> supplier) {
             this.supplier = supplier;
         }
 
-        public Renderer createRenderer() {
+        public AbstractRenderer createRenderer() {
             return supplier.get();
         }
     }
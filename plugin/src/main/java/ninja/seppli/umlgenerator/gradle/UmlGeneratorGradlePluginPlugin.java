@@ -3,6 +3,9 @@
  */
 package ninja.seppli.umlgenerator.gradle;
 
+import java.util.List;
+import java.util.concurrent.Callable;
+
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 
@@ -11,7 +14,18 @@ import org.gradle.api.Project;
  */
 public class UmlGeneratorGradlePluginPlugin implements Plugin<Project> {
     public void apply(Project project) {
-        project.getExtensions().create("umlGenerator", UmlGeneratorExtension.class);
-        project.getTasks().create("generateUml", UmlGeneratorTask.class);
+        UmlGeneratorExtension extension = project.getExtensions().create("umlGenerator",
+                UmlGeneratorExtension.class);
+        UmlGeneratorTask task = project.getTasks().create("generateUml", UmlGeneratorTask.class);
+        // the classes have to be compiled before they can be scanned
+        task.dependsOn((Callable<Object>) () -> {
+            boolean bytecode = task.getEffectiveBackend(extension) == UmlGeneratorExtension.Backend.BYTECODE;
+            return bytecode && extension.getClassesToScan() != null ? extension.getClassesToScan() : List.of();
+        });
+        // the jars of other projects on the classpath have to be built to be indexed
+        task.dependsOn((Callable<Object>) () -> {
+            boolean source = task.getEffectiveBackend(extension) == UmlGeneratorExtension.Backend.SOURCE;
+            return source && extension.getClasspath() != null ? extension.getClasspath() : List.of();
+        });
     }
 }
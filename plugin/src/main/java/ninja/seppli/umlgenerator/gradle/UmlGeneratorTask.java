@@ -2,40 +2,277 @@ package ninja.seppli.umlgenerator.gradle;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.gradle.api.DefaultTask;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.OutputFiles;
 import org.gradle.api.tasks.TaskAction;
 
-import ninja.seppli.umlgenerator.renderer.Renderer;
+import ninja.seppli.umlgenerator.daemon.DaemonClient;
+import ninja.seppli.umlgenerator.daemon.RenderRequest;
+import ninja.seppli.umlgenerator.daemon.RenderResponse;
+import ninja.seppli.umlgenerator.model.DiagramModel;
+import ninja.seppli.umlgenerator.options.GeneralUmlOptions;
+import ninja.seppli.umlgenerator.renderer.AbstractRenderer;
+import ninja.seppli.umlgenerator.renderer.RenderFragmentCache;
 import ninja.seppli.umlgenerator.scanner.DiagramGenerator;
+import ninja.seppli.umlgenerator.scanner.DiagramScanner;
 import ninja.seppli.umlgenerator.scanner.DiagramWriter;
-import spoon.reflect.CtModel;
+import ninja.seppli.umlgenerator.scanner.bytecode.BytecodeScanner;
 
+/**
+ * Generates the diagram. The scanned files, the classpath and the output file
+ * are declared as inputs and outputs, so the task is skipped while nothing
+ * changed and a continuous build, like {@code gradle generateUml --continuous},
+ * regenerates the diagram whenever a scanned file changes. As the extracted
+ * data is persisted to the build directory, every regeneration only parses the
+ * changed sources.
+ */
 public abstract class UmlGeneratorTask extends DefaultTask {
+    /**
+     * the backend of this task, null if the backend of the extension is used
+     */
+    private UmlGeneratorExtension.Backend backend;
+
+    /**
+     * @return the backend of this task, null if the backend of the extension is
+     *         used
+     */
+    @Internal
+    public UmlGeneratorExtension.Backend getBackend() {
+        return backend;
+    }
+
+    /**
+     * @param backend the backend of this task, overrides the backend of the
+     *                extension
+     */
+    public void setBackend(UmlGeneratorExtension.Backend backend) {
+        this.backend = backend;
+    }
+
+    /**
+     * @param extension the extension
+     * @return the backend this task uses
+     */
+    UmlGeneratorExtension.Backend getEffectiveBackend(UmlGeneratorExtension extension) {
+        return backend != null ? backend : extension.getBackend();
+    }
+
+    /**
+     * @return the sources or class files which are scanned
+     */
+    @InputFiles
+    public FileCollection getInputFiles() {
+        UmlGeneratorExtension extension = getExtension();
+        boolean bytecode = getEffectiveBackend(extension) == UmlGeneratorExtension.Backend.BYTECODE;
+        FileCollection inputFiles = bytecode ? extension.getClassesToScan() : extension.getFilesToScan();
+        return inputFiles != null ? inputFiles : getProject().files();
+    }
+
+    /**
+     * @return the classpath the referenced types are resolved from
+     */
+    @Classpath
+    public FileCollection getClasspath() {
+        FileCollection classpath = getExtension().getClasspath();
+        return classpath != null ? classpath : getProject().files();
+    }
+
+    /**
+     * @return everything else the diagram depends on, like the options
+     */
+    @Input
+    public String getConfiguration() {
+        UmlGeneratorExtension extension = getExtension();
+        return extension.getUmlOptions().getGeneralUmlOptions().getFingerprint() + ";renderer="
+                + extension.getRendererType() + ";additionalRenderers=" + extension.getAdditionalOutputs().keySet()
+                + ";backend=" + getEffectiveBackend(extension);
+    }
+
+    /**
+     * @return the file the diagram is written to
+     */
+    @OutputFile
+    public File getOutputFile() {
+        return getExtension().getOutputFile();
+    }
+
+    /**
+     * @return the files the diagram is written to in other formats
+     */
+    @OutputFiles
+    public Collection<File> getAdditionalOutputFiles() {
+        return getExtension().getAdditionalOutputs().values();
+    }
+
+    /**
+     * @return the extension of the project
+     */
+    private UmlGeneratorExtension getExtension() {
+        return getProject().getExtensions().getByType(UmlGeneratorExtension.class);
+    }
 
     @TaskAction
     public void generateMermaidClassDiagramm() {
         UmlGeneratorExtension extension = getProject().getExtensions().getByType(UmlGeneratorExtension.class);
-        Renderer renderer = extension.getRendererType().createRenderer();
-        FileCollection inputPaths = extension.getFilesToScan();
+        boolean bytecode = getEffectiveBackend(extension) == UmlGeneratorExtension.Backend.BYTECODE;
+        FileCollection inputPaths = bytecode ? extension.getClassesToScan() : extension.getFilesToScan();
         File outputFile = extension.getOutputFile();
-        generateDiagram(renderer, inputPaths, outputFile);
+        GeneralUmlOptions options = extension.getUmlOptions().getGeneralUmlOptions();
+        if (!bytecode && renderWithDaemon(extension, options, inputPaths, outputFile))
+            return;
+        DiagramScanner scanner = bytecode ? new BytecodeScanner(options) : createGenerator(extension, options);
+        generateDiagram(scanner, extension, inputPaths, outputFile);
+    }
+
+    /**
+     * Creates a renderer, which only renders the types which changed since the
+     * last build again. Every format has its own cache file.
+     *
+     * @param rendererType the format
+     * @return the renderer
+     */
+    private AbstractRenderer createRenderer(UmlGeneratorExtension.RendererType rendererType) {
+        AbstractRenderer renderer = rendererType.createRenderer();
+        renderer.setFragmentCache(new RenderFragmentCache(getRenderCacheFile(rendererType)));
+        return renderer;
+    }
+
+    /**
+     * @return the build directory of the project
+     */
+    private Path getBuildDirectory() {
+        return getProject().getLayout().getBuildDirectory().get().getAsFile().toPath();
+    }
+
+    /**
+     * @param rendererType the format
+     * @return the file the rendered fragments of the format are cached in
+     */
+    private Path getRenderCacheFile(UmlGeneratorExtension.RendererType rendererType) {
+        return getBuildDirectory().resolve("umlGenerator/render-" + rendererType.name().toLowerCase() + ".cache");
+    }
+
+    /**
+     * Lets the daemon render the diagram, if one is running. The daemon keeps
+     * the parser warm between builds, so it only parses the changed sources and
+     * doesn't pay the warm up of a new JVM.
+     *
+     * @param extension  the extension
+     * @param options    the options
+     * @param inputPaths the source files and folders
+     * @param outputFile the file the diagram is written to
+     * @return if the daemon rendered the diagram, false if the diagram has to be
+     *         generated in the build
+     */
+    private boolean renderWithDaemon(UmlGeneratorExtension extension, GeneralUmlOptions options,
+            FileCollection inputPaths, File outputFile) {
+        // the daemon only renders plantuml diagrams to one file
+        if (extension.getDaemonSocket() == null
+                || extension.getRendererType() != UmlGeneratorExtension.RendererType.PLANTUML
+                || !extension.getAdditionalOutputs().isEmpty())
+            return false;
+        DaemonClient client = new DaemonClient(extension.getDaemonSocket().toPath())
+                .setTimeout(Duration.ofSeconds(extension.getDaemonTimeoutSeconds()));
+        if (!client.isRunning())
+            return false;
+        try {
+            List<Path> classpath = extension.getClasspath() == null ? List.of()
+                    : extension.getClasspath().getFiles().stream().map(File::toPath).collect(Collectors.toList());
+            RenderRequest request = new RenderRequest(
+                    inputPaths.getFiles().stream().map(File::toPath).collect(Collectors.toList()), options,
+                    extension.isDeclarationsOnly(), classpath, extension.getHeapBudgetMb() * 1024L * 1024L,
+                    Duration.ofSeconds(extension.getFileTimeoutSeconds()),
+                    getRenderCacheFile(extension.getRendererType()));
+            RenderResponse response = client.render(request);
+            if (!response.isSuccess()) {
+                getLogger().warn("The daemon couldn't render the diagram: {}", response.statistics());
+                return false;
+            }
+            Files.writeString(outputFile.toPath(), response.diagram());
+            getLogger().lifecycle("{} by the daemon", response.statistics());
+            getLogger().lifecycle("Generated model to \"{}\"", outputFile);
+            return true;
+        } catch (SocketTimeoutException e) {
+            getLogger().warn("{}, generating the diagram in the build", e.getMessage());
+            return false;
+        } catch (IOException e) {
+            getLogger().warn("Couldn't reach the daemon on \"{}\"", extension.getDaemonSocket(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Creates the generator of the source backend. The extracted diagram data is
+     * persisted to the build directory and the index of the classpath to the
+     * temporary directory of the task, so the next build only parses the changed
+     * sources and only indexes the changed jars.
+     *
+     * @param extension the extension
+     * @param options   the options
+     * @return the generator
+     */
+    private DiagramGenerator createGenerator(UmlGeneratorExtension extension, GeneralUmlOptions options) {
+        DiagramGenerator generator = new DiagramGenerator(options).setDeclarationsOnly(extension.isDeclarationsOnly())
+                .setHeapBudget(extension.getHeapBudgetMb() * 1024L * 1024L).setSkipHiddenMembers(true)
+                .setFileTimeout(Duration.ofSeconds(extension.getFileTimeoutSeconds()))
+                .setCacheFile(getBuildDirectory().resolve("umlGenerator/diagram.cache"));
+        if (extension.getClasspath() != null) {
+            generator.setClasspath(extension.getClasspath().getFiles().stream().map(File::toPath)
+                    .collect(Collectors.toList()))
+                    .setClasspathIndexFile(getTemporaryDir().toPath().resolve("classpath.idx"));
+        }
+        return generator;
     }
 
-    private void generateDiagram(Renderer renderer, FileCollection inputPaths, File outputFile) {
+    private void generateDiagram(DiagramScanner scanner, UmlGeneratorExtension extension, FileCollection inputPaths,
+            File outputFile) {
         try {
             Path[] inputFiles = inputPaths.getFiles().stream().map(File::toPath)
                     .toArray(Path[]::new);
             getLogger().info("scanning directories and files {}", Arrays.toString(inputFiles));
-            CtModel model = new DiagramGenerator()
-                    .addFiles(inputFiles)
-                    .scan();
+            DiagramModel model;
+            // the scanner is closed before rendering, so it doesn't keep the classpath jars open
+            try (scanner) {
+                model = scanner.addFiles(inputFiles).generate();
+                getLogger().lifecycle("{}", scanner.getStatistics());
+            }
 
-            new DiagramWriter(model, renderer).writeFile(outputFile.toPath());
+            // the renderers are closed, so their pools don't outlive the build
+            List<AbstractRenderer> renderers = new ArrayList<>();
+            renderers.add(createRenderer(extension.getRendererType()));
+            DiagramWriter writer = new DiagramWriter(model, renderers.get(0)).setUmlOptions(extension.getUmlOptions());
+            try {
+                for (Map.Entry<UmlGeneratorExtension.RendererType, File> output : extension.getAdditionalOutputs()
+                        .entrySet()) {
+                    AbstractRenderer renderer = createRenderer(output.getKey());
+                    renderers.add(renderer);
+                    writer.addOutput(output.getValue().toPath(), renderer);
+                }
+                writer.writeFile(outputFile.toPath());
+            } finally {
+                renderers.forEach(AbstractRenderer::close);
+            }
             getLogger().lifecycle("Generated model to \"{}\"", outputFile);
+            for (File additionalOutputFile : extension.getAdditionalOutputs().values()) {
+                getLogger().lifecycle("Generated model to \"{}\"", additionalOutputFile);
+            }
         } catch (IOException e) {
             getLogger().error("Couldn't write model to \"{}\"", outputFile, e);
         }